@@ -0,0 +1,230 @@
+package com.videoconverter.harness;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC driver for jdbc:harness:&lt;h2 url&gt;. Hands out H2 connections that count round trips
+ * and rewrite the one MySQL construct H2 rejects (NOW() +/- INTERVAL ? unit) to DATEADD.
+ *
+ * Writes are executeUpdate/executeBatch and execute() of INSERT/UPDATE/DELETE; a batch is one
+ * round trip however many rows it carries, which is what the batching in ProgressSink saves.
+ */
+public class CountingDriver implements Driver {
+    static final String PREFIX = "jdbc:harness:";
+
+    private static final Pattern INTERVAL = Pattern.compile(
+            "NOW\\(\\)\\s*([+-])\\s*INTERVAL\\s+\\?\\s+(SECOND|MINUTE|HOUR|DAY)", Pattern.CASE_INSENSITIVE);
+
+    private static final AtomicLong writes = new AtomicLong();
+    private static final AtomicLong batchedRows = new AtomicLong();
+    private static final AtomicLong reads = new AtomicLong();
+    private static final AtomicLong connections = new AtomicLong();
+    private static final Map<String, String> rewritten = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new CountingDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void register() {
+        // Loading the class runs the static block.
+    }
+
+    static long getWrites() {
+        return writes.get();
+    }
+
+    static long getBatchedRows() {
+        return batchedRows.get();
+    }
+
+    static long getReads() {
+        return reads.get();
+    }
+
+    static long getConnections() {
+        return connections.get();
+    }
+
+    static void reset() {
+        writes.set(0);
+        batchedRows.set(0);
+        reads.set(0);
+        connections.set(0);
+    }
+
+    static String rewrite(String sql) {
+        return rewritten.computeIfAbsent(sql, s -> {
+            Matcher m = INTERVAL.matcher(s);
+            StringBuffer sb = new StringBuffer();
+            while (m.find()) {
+                String amount = "+".equals(m.group(1)) ? "?" : "-CAST(? AS INT)";
+                m.appendReplacement(sb, "DATEADD(" + m.group(2).toUpperCase() + ", " + amount + ", NOW())");
+            }
+            m.appendTail(sb);
+            return sb.toString();
+        });
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Connection target = DriverManager.getConnection("jdbc:h2:" + url.substring(PREFIX.length()), info);
+        connections.incrementAndGet();
+        return proxy(Connection.class, target, new ConnectionHandler(target));
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    private static boolean isWrite(String sql) {
+        String head = sql.trim();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        String verb = head.substring(0, end).toUpperCase();
+        return verb.equals("INSERT") || verb.equals("UPDATE") || verb.equals("DELETE") || verb.equals("REPLACE");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(CountingDriver.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                String sql = (String) args[0];
+                args[0] = rewrite(sql);
+                Object statement = CountingDriver.invoke(target, method, args);
+                return proxy(method.getReturnType(), statement, new StatementHandler(statement, sql));
+            }
+            if (name.equals("createStatement")) {
+                Object statement = CountingDriver.invoke(target, method, args);
+                return proxy(Statement.class, statement, new StatementHandler(statement, null));
+            }
+            return CountingDriver.invoke(target, method, args);
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object target;
+        private final String preparedSql;
+        private int pendingBatch;
+
+        StatementHandler(Object target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            String sql = preparedSql;
+            if (args != null && args.length > 0 && args[0] instanceof String && name.startsWith("execute")) {
+                sql = (String) args[0];
+                args[0] = rewrite(sql);
+            } else if (args != null && args.length > 0 && args[0] instanceof String && name.equals("addBatch")) {
+                args[0] = rewrite((String) args[0]);
+            }
+
+            switch (name) {
+                case "addBatch":
+                    pendingBatch++;
+                    break;
+                case "clearBatch":
+                    pendingBatch = 0;
+                    break;
+                case "executeBatch":
+                case "executeLargeBatch":
+                    writes.incrementAndGet();
+                    batchedRows.addAndGet(pendingBatch);
+                    pendingBatch = 0;
+                    break;
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    writes.incrementAndGet();
+                    break;
+                case "executeQuery":
+                    reads.incrementAndGet();
+                    break;
+                case "execute":
+                    if (sql != null && isWrite(sql)) {
+                        writes.incrementAndGet();
+                    } else {
+                        reads.incrementAndGet();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return CountingDriver.invoke(target, method, args);
+        }
+    }
+}
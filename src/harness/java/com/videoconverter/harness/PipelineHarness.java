@@ -0,0 +1,322 @@
+package com.videoconverter.harness;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.model.bo.JobProgressRegistry;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.ConnectionPool;
+import com.videoconverter.util.DBConnection;
+import com.videoconverter.util.EncoderCapabilities;
+import com.videoconverter.util.MetricsRegistry;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end throughput run of the conversion pipeline: ConversionBO, the job queue, the workers,
+ * FFmpegWrapper and the DAOs, with the stub ffmpeg/ffprobe in src/harness/stub and an in-memory
+ * H2 database loaded from video_converter.sql.
+ *
+ * Submitter threads call submitJob() for N jobs spread over M users and retry with backoff when
+ * the queue turns them away, as the upload page would. Reports jobs/sec, queue wait (submitJob
+ * returned to the worker's "started" event), run time, and DB round trips per accepted job.
+ *
+ * Arguments are key=value: jobs, users, submitters, workers, formats, queue, timeout (seconds).
+ * Any application setting (LEASE_SECONDS, PROGRESS_FLUSH_INTERVAL_MS, ...) can be passed as -DKEY=value.
+ */
+public class PipelineHarness {
+    private static final String DB_URL = CountingDriver.PREFIX
+            + "mem:harness;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final int jobs;
+    private final int users;
+    private final int submitters;
+    private final List<String> formats;
+    private final long timeoutMs;
+
+    private final Map<Integer, Long> submittedAt = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> startedAt = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> finishedAt = new ConcurrentHashMap<>();
+    private final Map<Integer, Boolean> failed = new ConcurrentHashMap<>();
+    private final AtomicLong rejections = new AtomicLong();
+    private final boolean dumpMetrics;
+
+    private PipelineHarness(Map<String, String> args) {
+        this.jobs = Integer.parseInt(args.getOrDefault("jobs", "2000"));
+        this.users = Integer.parseInt(args.getOrDefault("users", "20"));
+        this.submitters = Integer.parseInt(args.getOrDefault("submitters", "4"));
+        this.formats = Arrays.asList(args.getOrDefault("formats", "mp4,webm,avi").split(","));
+        this.timeoutMs = Long.parseLong(args.getOrDefault("timeout", "900")) * 1000L;
+        this.dumpMetrics = Boolean.parseBoolean(args.getOrDefault("metrics", "false"));
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("-D") && eq > 2) {
+                System.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+                continue;
+            }
+            if (eq <= 0) {
+                System.err.println("Usage: PipelineHarness [jobs=2000] [users=20] [submitters=4] [workers=4]"
+                        + " [formats=mp4,webm,avi] [queue=memory|database] [timeout=900] [metrics=false]");
+                System.exit(2);
+            }
+            args.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        configure(args);
+        System.exit(new PipelineHarness(args).run() ? 0 : 1);
+    }
+
+    // Application classes read their settings once, so everything is set before the first is loaded.
+    private static void configure(Map<String, String> args) {
+        String stubDir = System.getProperty("harness.stubDir", "src/harness/stub");
+        String workers = args.getOrDefault("workers", "4");
+
+        setDefault("DB_URL", DB_URL);
+        setDefault("FFMPEG_PATH", new File(stubDir, "ffmpeg").getAbsolutePath());
+        setDefault("FFPROBE_PATH", new File(stubDir, "ffprobe").getAbsolutePath());
+        setDefault("QUEUE_MODE", args.getOrDefault("queue", "memory"));
+        setDefault("WORKER_MIN", workers);
+        setDefault("WORKER_MAX", workers);
+        setDefault("WORKER_INITIAL", workers);
+        // The stub sleeps instead of burning CPU; keep the controller from backing off on this host.
+        setDefault("MIN_FREE_MEMORY_MB", "0");
+        setDefault("MAX_LOAD_PER_CORE", "1000");
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null && System.getenv(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private boolean run() throws Exception {
+        CountingDriver.register();
+        String url = System.getProperty("DB_URL", DB_URL);
+        if (!url.startsWith(CountingDriver.PREFIX)) {
+            throw new IllegalStateException("DB_URL must start with " + CountingDriver.PREFIX + ": " + url);
+        }
+
+        // Setup goes through H2 directly so it does not show up in the counts. The first connection
+        // creates the database, so it has to use the credentials the pool will log in with.
+        Connection setup = DriverManager.getConnection("jdbc:h2:" + url.substring(CountingDriver.PREFIX.length()),
+                AppConfig.getString("DB_USER", "root"), AppConfig.getString("DB_PASSWORD", ""));
+        Path schema = Paths.get(System.getProperty("harness.schema", "video_converter.sql"));
+        System.out.println("[Harness] Loaded " + SchemaLoader.load(setup, schema) + " statements from " + schema);
+        int[] userIds = createUsers(setup);
+
+        Path workDir = Paths.get(System.getProperty("harness.workDir", "target/harness"));
+        File input = workDir.resolve("uploads").resolve("harness-input.mp4").toFile();
+        input.getParentFile().mkdirs();
+        Files.write(input.toPath(), "stub input\n".getBytes(StandardCharsets.UTF_8));
+
+        EncoderCapabilities.getInstance().probe();
+        ConversionBO bo = ConversionBO.getInstance();
+        JobProgressRegistry registry = JobProgressRegistry.getInstance();
+        for (int userId : userIds) {
+            registry.subscribe(userId, this::onEvent);
+        }
+        bo.startWorkers();
+
+        System.out.println("[Harness] " + jobs + " jobs, " + users + " users, " + submitters + " submitters, "
+                + System.getProperty("WORKER_MAX") + " workers, formats " + formats
+                + ", queue " + System.getProperty("QUEUE_MODE"));
+        CountingDriver.reset();
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(submitters);
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < submitters; i++) {
+            pool.execute(() -> submitLoop(bo, next, userIds, input));
+        }
+        pool.shutdown();
+        pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        long submitted = System.nanoTime();
+
+        boolean done = awaitFinished(start + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        long end = System.nanoTime();
+
+        bo.stopWorkers();
+        report(start, submitted, end, done);
+
+        registry.shutdown();
+        DBConnection.shutdown();
+        setup.close();
+        return done;
+    }
+
+    private int[] createUsers(Connection conn) throws Exception {
+        int[] ids = new int[users];
+        String sql = "INSERT INTO users (username, password, email, role) VALUES (?, ?, ?, 'USER')";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < users; i++) {
+                stmt.setString(1, "harness" + i);
+                stmt.setString(2, "x");
+                stmt.setString(3, "harness" + i + "@example.com");
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    rs.next();
+                    ids[i] = rs.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void submitLoop(ConversionBO bo, AtomicInteger next, int[] userIds, File input) {
+        int i;
+        while ((i = next.getAndIncrement()) < jobs) {
+            int userId = userIds[i % userIds.length];
+            String format = formats.get(i % formats.size());
+            long backoffMs = 5;
+            while (true) {
+                long t0 = System.nanoTime();
+                // No content hash: every job is encoded, none is served from the result cache.
+                ConversionJob job = bo.submitJob(userId, input.getName(), input.getAbsolutePath(),
+                        input.length(), format, null);
+                if (job != null) {
+                    submittedAt.put(job.getJobId(), t0);
+                    break;
+                }
+                rejections.incrementAndGet();
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 200);
+            }
+        }
+    }
+
+    private boolean onEvent(String event, int jobId, String data) {
+        if (data == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        String status = field(data, "\"status\":\"", '"');
+        if ("PROCESSING".equals(status)) {
+            startedAt.putIfAbsent(jobId, now);
+        } else if ("COMPLETED".equals(status) || "FAILED".equals(status)) {
+            failed.put(jobId, "FAILED".equals(status));
+            finishedAt.putIfAbsent(jobId, now);
+        }
+        return true;
+    }
+
+    private static String field(String json, String key, char end) {
+        int from = json.indexOf(key) + key.length();
+        return json.substring(from, json.indexOf(end, from));
+    }
+
+    private boolean awaitFinished(long deadline) throws InterruptedException {
+        while (System.nanoTime() < deadline) {
+            if (submittedAt.size() >= jobs && finishedAt.keySet().containsAll(submittedAt.keySet())) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        System.err.println("[Harness] Timed out: " + countFinished() + " of " + submittedAt.size() + " jobs finished");
+        return false;
+    }
+
+    private int countFinished() {
+        int count = 0;
+        for (Integer jobId : submittedAt.keySet()) {
+            if (finishedAt.containsKey(jobId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void report(long start, long submitted, long end, boolean done) {
+        List<Long> waits = new ArrayList<>();
+        List<Long> runs = new ArrayList<>();
+        int completed = 0;
+        int failures = 0;
+        for (Map.Entry<Integer, Long> entry : submittedAt.entrySet()) {
+            Long started = startedAt.get(entry.getKey());
+            Long finished = finishedAt.get(entry.getKey());
+            if (started != null) {
+                waits.add(Math.max(0, started - entry.getValue()));
+                if (finished != null) {
+                    runs.add(finished - started);
+                }
+            }
+            if (finished != null) {
+                if (failed.get(entry.getKey())) {
+                    failures++;
+                } else {
+                    completed++;
+                }
+            }
+        }
+
+        int accepted = submittedAt.size();
+        double seconds = (end - start) / 1e9;
+        ConnectionPool.Stats pool = DBConnection.getPoolStats();
+        System.out.println();
+        System.out.println("[Harness] ---- Result " + (done ? "" : "(TIMED OUT) ") + "----");
+        System.out.printf("[Harness] Jobs:         %d accepted, %d completed, %d failed, %d rejections%n",
+                accepted, completed, failures, rejections.get());
+        System.out.printf("[Harness] Elapsed:      %.2f s (submitting %.2f s)%n", seconds, (submitted - start) / 1e9);
+        System.out.printf("[Harness] Throughput:   %.2f jobs/s%n", (completed + failures) / seconds);
+        System.out.println("[Harness] Queue wait:   " + percentiles(waits));
+        System.out.println("[Harness] Run time:     " + percentiles(runs));
+        System.out.printf("[Harness] DB writes:    %.2f per job (%d round trips, %d batched rows)%n",
+                perJob(CountingDriver.getWrites(), accepted), CountingDriver.getWrites(), CountingDriver.getBatchedRows());
+        System.out.printf("[Harness] DB reads:     %.2f per job (%d queries)%n",
+                perJob(CountingDriver.getReads(), accepted), CountingDriver.getReads());
+        System.out.printf("[Harness] DB pool:      %d borrows, avg wait %.2f ms, max wait %.2f ms, %d timeouts%n",
+                pool.getBorrowCount(), pool.getAvgWaitMs(), pool.getMaxWaitMs(), pool.getTimeouts());
+        if (dumpMetrics) {
+            System.out.println();
+            System.out.print(MetricsRegistry.getInstance().scrape());
+        }
+    }
+
+    private static double perJob(long count, int jobs) {
+        return jobs == 0 ? 0 : (double) count / jobs;
+    }
+
+    private static String percentiles(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return "n/a";
+        }
+        long[] sorted = new long[nanos.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = nanos.get(i);
+        }
+        Arrays.sort(sorted);
+        return String.format("p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+                at(sorted, 0.50), at(sorted, 0.95), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double at(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,116 @@
+package com.videoconverter.harness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads the tables and indexes of video_converter.sql into an H2 database in MySQL mode.
+ *
+ * The phpMyAdmin dump is used as is: session SETs and sample INSERTs are skipped, and each
+ * multi-clause ALTER TABLE is split into statements H2 accepts (ADD KEY becomes CREATE INDEX,
+ * MODIFY becomes MODIFY COLUMN, AUTO_INCREMENT=N is dropped).
+ */
+final class SchemaLoader {
+    private static final Pattern ADD_KEY = Pattern.compile("ADD (UNIQUE )?KEY `(\\w+)` (\\(.*\\))", Pattern.DOTALL);
+
+    private SchemaLoader() {
+    }
+
+    static int load(Connection conn, Path dump) throws IOException, SQLException {
+        int executed = 0;
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements(new String(Files.readAllBytes(dump), StandardCharsets.UTF_8))) {
+                stmt.execute(sql);
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    static List<String> statements(String dump) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : dump.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--") || trimmed.startsWith("/*!")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (!trimmed.endsWith(";")) {
+                continue;
+            }
+            String sql = current.toString().trim();
+            current.setLength(0);
+            sql = sql.substring(0, sql.length() - 1).trim();
+
+            String upper = sql.toUpperCase();
+            if (upper.startsWith("INSERT") || upper.startsWith("SET") || upper.startsWith("START TRANSACTION")
+                    || upper.equals("COMMIT")) {
+                continue;
+            }
+            result.addAll(translate(sql));
+        }
+        return result;
+    }
+
+    private static List<String> translate(String sql) {
+        if (!sql.toUpperCase().startsWith("ALTER TABLE")) {
+            return Collections.singletonList(sql);
+        }
+        int lineEnd = sql.indexOf('\n');
+        String head = lineEnd < 0 ? sql : sql.substring(0, lineEnd).trim();
+        String body = lineEnd < 0 ? "" : sql.substring(lineEnd + 1);
+        String table = head.substring("ALTER TABLE".length()).trim();
+        String bareTable = table.replace("`", "");
+
+        List<String> result = new ArrayList<>();
+        for (String clause : splitTopLevel(body)) {
+            Matcher m = ADD_KEY.matcher(clause);
+            if (m.matches()) {
+                // H2 index names are schema-wide, MySQL key names are per table.
+                result.add("CREATE " + (m.group(1) != null ? "UNIQUE " : "") + "INDEX `" + bareTable + "_" + m.group(2)
+                        + "` ON " + table + " " + m.group(3));
+            } else if (clause.toUpperCase().startsWith("AUTO_INCREMENT=")) {
+                // Only moves the counter past the sample rows, which are not loaded.
+                continue;
+            } else if (clause.toUpperCase().startsWith("MODIFY ")) {
+                result.add("ALTER TABLE " + table + " MODIFY COLUMN " + clause.substring("MODIFY ".length()));
+            } else if (!clause.isEmpty()) {
+                result.add("ALTER TABLE " + table + " " + clause);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> splitTopLevel(String body) {
+        List<String> clauses = new ArrayList<>();
+        StringBuilder clause = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            if (c == ',' && depth == 0) {
+                clauses.add(clause.toString().trim());
+                clause.setLength(0);
+            } else {
+                clause.append(c);
+            }
+        }
+        clauses.add(clause.toString().trim());
+        return clauses;
+    }
+}
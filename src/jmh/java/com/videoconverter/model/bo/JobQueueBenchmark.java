@@ -0,0 +1,102 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offer/take/jobFinished round trips through the in-memory queue ConversionBO uses by default,
+ * with the database claim stubbed out. Every thread offers before it takes, so take() never
+ * waits for good; the contended runs measure the queue lock and the fair-share pick.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobQueueBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Queue {
+        final InMemoryJobQueue queue = new InMemoryJobQueue(new ClaimAlwaysDAO(), 100_000, Integer.MAX_VALUE, 60);
+        final AtomicInteger nextUser = new AtomicInteger();
+
+        @Setup
+        public void start() {
+            queue.start();
+        }
+
+        @TearDown
+        public void stop() {
+            queue.stop();
+        }
+    }
+
+    // Each thread queues as its own user, as concurrent uploaders would.
+    @State(Scope.Thread)
+    public static class Uploader {
+        ConversionJob job;
+        String workerId;
+
+        @Setup
+        public void setup(Queue queue) {
+            int user = queue.nextUser.incrementAndGet();
+            job = new ConversionJob(user, user, "mp4");
+            job.setJobId(user);
+            workerId = "bench-" + user;
+        }
+    }
+
+    private static ConversionJob roundTrip(Queue queue, Uploader uploader) throws InterruptedException {
+        queue.queue.offer(uploader.job);
+        ConversionJob taken = queue.queue.take(uploader.workerId);
+        queue.queue.jobFinished(taken);
+        return taken;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ConversionJob uncontended(Queue queue, Uploader uploader) throws InterruptedException {
+        return roundTrip(queue, uploader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ConversionJob contended4(Queue queue, Uploader uploader) throws InterruptedException {
+        return roundTrip(queue, uploader);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ConversionJob contended16(Queue queue, Uploader uploader) throws InterruptedException {
+        return roundTrip(queue, uploader);
+    }
+
+    private static final class ClaimAlwaysDAO extends ConversionJobDAO {
+        @Override
+        public List<ConversionJob> getPendingJobs() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean startJob(int jobId, String workerId, int leaseSeconds) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.EncodingProfile;
+import com.videoconverter.util.EncodingProfiles;
+import com.videoconverter.util.FFmpegWrapper;
+import com.videoconverter.util.MediaInfo;
+import com.videoconverter.util.MediaProbe;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wall-clock comparison of one ffmpeg run against the segmented pipeline on the same input.
+ * Not a JMH benchmark (each run takes minutes of real ffmpeg); it lives here so it stays out of the WAR.
+ *
+ *   mvn -q -P benchmarks test-compile
+ *   java -cp target/classes:target/test-classes com.videoconverter.model.bo.SegmentedEncodeBenchmark input.mp4 [format] [slots] [pieceSeconds] [profile]
+ *
+ * slots is the number of concurrent encodes allowed (default: the WORKER_MAX default).
+ */
+public class SegmentedEncodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: SegmentedEncodeBenchmark <input> [format=mp4] [slots] [pieceSeconds=120] [profile=default]");
+            return;
+        }
+        String input = args[0];
+        String format = args.length > 1 ? args[1] : "mp4";
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : ConcurrencyController.defaultMaxWorkers();
+        double pieceSeconds = args.length > 3 ? Double.parseDouble(args[3]) : 120;
+        EncodingProfile profile = EncodingProfiles.getInstance().get(args.length > 4 ? args[4] : EncodingProfiles.DEFAULT);
+        if (profile == null) {
+            System.err.println("Unknown profile " + args[4] + "; known: " + EncodingProfiles.getInstance().names());
+            return;
+        }
+
+        MediaInfo info = new MediaProbe().probe(input);
+        if (info == null) {
+            System.err.println("ffprobe failed for " + input);
+            return;
+        }
+        FFmpegWrapper ffmpeg = new FFmpegWrapper();
+        if (!ffmpeg.needsCpuEncode(info, format)) {
+            System.err.println("Input would be remuxed or GPU-encoded to " + format + "; nothing to compare.");
+            return;
+        }
+        System.out.println("Input: " + info);
+        System.out.println("Profile: " + profile);
+        System.out.println("Slots: " + slots + ", piece length: " + pieceSeconds + "s");
+
+        File single = File.createTempFile("bench_single_", "." + format);
+        File segmented = File.createTempFile("bench_segmented_", "." + format);
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            long start = System.nanoTime();
+            boolean singleOk = ffmpeg.convert(input, single.getAbsolutePath(), format, info, profile, null, null) != null;
+            double singleSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Single run:    %8.1f s (%s)%n", singleSeconds, singleOk ? "ok" : "FAILED");
+
+            ConcurrencyController concurrency = new ConcurrencyController(() -> 0);
+            concurrency.setLimits(slots, slots);
+            SegmentedEncoder encoder = new SegmentedEncoder(ffmpeg, concurrency, pool, 1, pieceSeconds, 64);
+            concurrency.encodeStarted(); // the calling thread plays the owning worker
+            start = System.nanoTime();
+            boolean segmentedOk = encoder.encode(input, segmented.getAbsolutePath(), format, info, profile, null, null);
+            double segmentedSeconds = (System.nanoTime() - start) / 1e9;
+            concurrency.encodeFinished();
+            System.out.printf("Segmented run: %8.1f s (%s)%n", segmentedSeconds, segmentedOk ? "ok" : "FAILED");
+
+            if (singleOk && segmentedOk) {
+                System.out.printf("Speedup:       %8.2fx%n", singleSeconds / segmentedSeconds);
+                MediaInfo a = new MediaProbe().probe(single.getAbsolutePath());
+                MediaInfo b = new MediaProbe().probe(segmented.getAbsolutePath());
+                if (a != null && b != null) {
+                    System.out.printf("Output duration: %.3f s vs %.3f s%n", a.getDurationSeconds(), b.getDurationSeconds());
+                }
+            }
+        } finally {
+            pool.shutdown();
+            single.delete();
+            segmented.delete();
+        }
+    }
+}
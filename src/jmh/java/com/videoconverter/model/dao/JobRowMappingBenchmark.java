@@ -0,0 +1,88 @@
+package com.videoconverter.model.dao;
+
+import com.videoconverter.model.bean.ConversionJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConversionJobDAO.extractJob on one row of the status page query. The ResultSet is a map-backed
+ * proxy, so the number includes a reflective call per column; treat it as an upper bound for the
+ * mapping itself and use it to compare changes to extractJob, not against the driver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobRowMappingBenchmark {
+    private final ConversionJobDAO dao = new ConversionJobDAO();
+    private ResultSet row;
+
+    @Setup
+    public void setup() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("job_id", 4711);
+        columns.put("video_id", 1234);
+        columns.put("user_id", 42);
+        columns.put("output_format", "mp4");
+        columns.put("status", "PROCESSING");
+        columns.put("progress", 37);
+        columns.put("output_path", "/usr/local/tomcat/webapps/ROOT/uploads/converted/4711_clip.mp4");
+        columns.put("error_message", null);
+        columns.put("created_at", now);
+        columns.put("completed_at", null);
+        columns.put("worker_id", "host-1:worker-3");
+        columns.put("lease_expires_at", now);
+        columns.put("attempts", 1);
+        columns.put("conversion_mode", "CPU");
+        columns.put("profile", "default");
+        columns.put("output_size", null);
+        columns.put("encode_seconds", null);
+        columns.put("video_filename", "clip.mp4");
+        row = resultSet(columns);
+    }
+
+    private static ResultSet resultSet(Map<String, Object> columns) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object value = columns.get((String) args[0]);
+                    switch (method.getName()) {
+                        case "getInt":
+                            return value == null ? 0 : (Integer) value;
+                        case "getLong":
+                            return value == null ? 0L : (Long) value;
+                        case "getDouble":
+                            return value == null ? 0.0 : (Double) value;
+                        case "getString":
+                            return (String) value;
+                        case "getTimestamp":
+                            return (Timestamp) value;
+                        default:
+                            throw new SQLException("Not supported: " + method.getName());
+                    }
+                });
+    }
+
+    @Benchmark
+    public ConversionJob extractJob() throws SQLException {
+        return dao.extractJob(row);
+    }
+}
@@ -0,0 +1,125 @@
+package com.videoconverter.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One encode's worth of progress reporting: the old readLine + regex loop over ffmpeg's stderr
+ * stats against FFmpegProgressParser over the equivalent "-progress pipe:1" output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressParseBenchmark {
+    // The patterns FFmpegWrapper used before the -progress channel.
+    private static final Pattern DURATION_PATTERN = Pattern.compile("Duration: (\\d{2}):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern TIME_PATTERN = Pattern.compile("time=(\\d{2}):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern SPEED_PATTERN = Pattern.compile("speed=\\s*([0-9.]+)x");
+
+    // Progress updates in the stream (ffmpeg reports about twice a second).
+    @Param({"600", "7200"})
+    public int updates;
+
+    private byte[] statsLog;
+    private byte[] progressOutput;
+    private final FFmpegProgressParser parser = new FFmpegProgressParser();
+
+    @Setup
+    public void setup() {
+        StringBuilder log = new StringBuilder();
+        log.append("Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'input.mp4':\n")
+           .append("  Duration: 01:00:00.00, start: 0.000000, bitrate: 8000 kb/s\n")
+           .append("  Stream #0:0(und): Video: h264 (High), yuv420p, 1920x1080, 7800 kb/s, 30 fps\n")
+           .append("  Stream #0:1(und): Audio: aac (LC), 48000 Hz, stereo, fltp, 192 kb/s\n");
+        StringBuilder progress = new StringBuilder();
+        for (int i = 1; i <= updates; i++) {
+            double seconds = i * 0.5;
+            long frame = i * 15L;
+            log.append(String.format(Locale.ROOT,
+                    "frame=%6d fps= 58 q=28.0 size=%8dkB time=%s bitrate=2345.6kbits/s speed=1.93x    \r",
+                    frame, frame * 10, clock(seconds)));
+            progress.append("frame=").append(frame).append('\n')
+                    .append("fps=58.12\n")
+                    .append("stream_0_0_q=28.0\n")
+                    .append("bitrate=2345.6kbits/s\n")
+                    .append("total_size=").append(frame * 10240).append('\n')
+                    .append("out_time_us=").append((long) (seconds * 1_000_000)).append('\n')
+                    .append("out_time_ms=").append((long) (seconds * 1_000_000)).append('\n')
+                    .append("out_time=").append(clock(seconds)).append('\n')
+                    .append("dup_frames=0\n")
+                    .append("drop_frames=0\n")
+                    .append("speed=1.93x\n")
+                    .append(i == updates ? "progress=end\n" : "progress=continue\n");
+        }
+        statsLog = log.toString().getBytes(StandardCharsets.UTF_8);
+        progressOutput = progress.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String clock(double seconds) {
+        int whole = (int) seconds;
+        return String.format(Locale.ROOT, "%02d:%02d:%05.2f", whole / 3600, whole / 60 % 60, seconds % 60);
+    }
+
+    @Benchmark
+    public void regexLoop(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(statsLog), StandardCharsets.UTF_8))) {
+            String line;
+            double totalDuration = 0;
+            while ((line = reader.readLine()) != null) {
+                if (totalDuration == 0) {
+                    Matcher durationMatcher = DURATION_PATTERN.matcher(line);
+                    if (durationMatcher.find()) {
+                        totalDuration = parseTime(durationMatcher);
+                    }
+                }
+                Matcher timeMatcher = TIME_PATTERN.matcher(line);
+                if (timeMatcher.find() && totalDuration > 0) {
+                    Integer progress = (int) Math.min(100, parseTime(timeMatcher) * 100 / totalDuration);
+                    bh.consume(progress);
+                }
+                Matcher speedMatcher = SPEED_PATTERN.matcher(line);
+                if (speedMatcher.find()) {
+                    bh.consume(Double.parseDouble(speedMatcher.group(1)));
+                }
+            }
+        }
+    }
+
+    private static double parseTime(Matcher matcher) {
+        return Integer.parseInt(matcher.group(1)) * 3600 + Integer.parseInt(matcher.group(2)) * 60
+                + Double.parseDouble(matcher.group(3));
+    }
+
+    @Benchmark
+    public void progressParser(Blackhole bh) throws IOException {
+        double durationUs = 3600 * 1_000_000.0;
+        parser.parse(new ByteArrayInputStream(progressOutput), (outTimeUs, frame, fps, speed, totalSize, end) -> {
+            bh.consume((int) Math.min(100, outTimeUs * 100 / durationUs));
+            bh.consume(speed);
+        });
+    }
+}
@@ -1,9 +1,13 @@
 package com.videoconverter.controller;
 
 import com.videoconverter.model.bean.User;
-import com.videoconverter.model.bo.UserBO;
-import com.videoconverter.model.dao.ConversionJobDAO;
-import com.videoconverter.model.dao.UserDAO;
+import com.videoconverter.model.bean.UserStats;
+import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.model.bo.StatsBO;
+import com.videoconverter.model.dao.UserStatsDAO;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.DBConnection;
+import com.videoconverter.util.EncoderCapabilities;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -12,18 +16,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
-import java.util.Map;
+import java.util.List;
 
 @WebServlet("/admin")
 public class AdminServlet extends HttpServlet {
-    private UserBO userBO;
-    private ConversionJobDAO jobDAO;
-
-    @Override
-    public void init() {
-        userBO = new UserBO();
-        jobDAO = new ConversionJobDAO();
-    }
+    private static final int PAGE_SIZE = Math.max(1, AppConfig.getInt("ADMIN_STATS_PAGE_SIZE", 20));
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -42,14 +39,67 @@ public class AdminServlet extends HttpServlet {
             return;
         }
 
-        // Get statistics
-        int totalUsers = userBO.getTotalUsers();
-        Map<Integer, Integer> conversionCounts = jobDAO.getConversionCountByUser();
+        // Totals come from memory; the per-user table is one indexed page of user_stats.
+        StatsBO stats = StatsBO.getInstance();
+        UserStatsDAO.Sort sort = UserStatsDAO.Sort.parse(request.getParameter("sort"));
+        int page = parsePage(request.getParameter("page"));
+        // One extra row tells whether a next page exists.
+        List<UserStats> userStats = stats.getUserStats(sort, page * PAGE_SIZE, PAGE_SIZE + 1);
+        boolean hasNextPage = userStats.size() > PAGE_SIZE;
+        if (hasNextPage) {
+            userStats = userStats.subList(0, PAGE_SIZE);
+        }
 
-        request.setAttribute("totalUsers", totalUsers);
-        request.setAttribute("conversionCounts", conversionCounts);
+        request.setAttribute("stats", stats);
+        request.setAttribute("userStats", userStats);
+        request.setAttribute("sort", sort);
+        request.setAttribute("page", page);
+        request.setAttribute("pageSize", PAGE_SIZE);
+        request.setAttribute("hasNextPage", hasNextPage);
+        request.setAttribute("conversionModeCounts", stats.getConversionModeCounts());
+        request.setAttribute("dbPoolStats", DBConnection.getPoolStats());
+        request.setAttribute("encoderCaps", EncoderCapabilities.getInstance().getSnapshot());
+        request.setAttribute("gpuDisabled", EncoderCapabilities.getInstance().isGpuDisabledByFailures());
+        request.setAttribute("concurrency", ConversionBO.getInstance().getConcurrency());
+        request.setAttribute("queueSize", ConversionBO.getInstance().getQueueSize());
+        request.setAttribute("queueDepthByUser", ConversionBO.getInstance().getQueueDepthByUser());
 
         request.getRequestDispatcher("admin/dashboard.jsp").forward(request, response);
     }
-}
 
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute("user");
+
+        if (user == null || !user.isAdmin()) {
+            response.sendRedirect("login");
+            return;
+        }
+
+        String action = request.getParameter("action");
+        if ("reprobe".equals(action)) {
+            EncoderCapabilities.getInstance().probe();
+        } else if ("workerLimits".equals(action)) {
+            try {
+                int min = Integer.parseInt(request.getParameter("minWorkers"));
+                int max = Integer.parseInt(request.getParameter("maxWorkers"));
+                ConversionBO.getInstance().setWorkerLimits(min, max);
+            } catch (NumberFormatException e) {
+                response.sendRedirect("admin?error=invalid");
+                return;
+            }
+        }
+        response.sendRedirect("admin");
+    }
+
+    private static int parsePage(String value) {
+        try {
+            // Clamped so that page * PAGE_SIZE cannot overflow into a negative offset.
+            return value == null ? 0 : Math.min(Math.max(0, Integer.parseInt(value)), Integer.MAX_VALUE / PAGE_SIZE - 1);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
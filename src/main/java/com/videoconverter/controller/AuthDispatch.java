@@ -0,0 +1,81 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.util.AppConfig;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Frees the request thread while a password is hashed: the servlet goes async, and when the hashing
+ * pool is done the request is dispatched back to the same servlet with the result as an attribute,
+ * so sessions, redirects and JSP forwards still happen on a container thread.
+ */
+final class AuthDispatch {
+    private static final String RESULT = AuthDispatch.class.getName() + ".result";
+    private static final String FAILED = AuthDispatch.class.getName() + ".failed";
+    private static final long TIMEOUT_MS = Math.max(1000L, AppConfig.getLong("AUTH_TIMEOUT_MS", 30000L));
+
+    private AuthDispatch() {
+    }
+
+    /**
+     * Whether this is the dispatch back after {@link #start}.
+     */
+    static boolean isResult(HttpServletRequest request) {
+        return request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(RESULT) != null;
+    }
+
+    /**
+     * The task's result, or null if it returned null or threw.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T result(HttpServletRequest request) {
+        return request.getAttribute(FAILED) != null ? null : (T) request.getAttribute(RESULT);
+    }
+
+    static <T> void start(HttpServletRequest request, CompletableFuture<T> task) {
+        AsyncContext async = request.startAsync();
+        async.setTimeout(TIMEOUT_MS);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                HttpServletResponse response = (HttpServletResponse) event.getAsyncContext().getResponse();
+                response.setHeader("Retry-After", "5");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        task.whenComplete((value, error) -> {
+            if (error != null) {
+                System.err.println("[Auth] Password task failed: " + error.getMessage());
+                request.setAttribute(FAILED, Boolean.TRUE);
+            }
+            request.setAttribute(RESULT, value != null ? value : Boolean.FALSE);
+            try {
+                async.dispatch();
+            } catch (IllegalStateException e) {
+                // Timed out first; the client already has its 503.
+            }
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.videoconverter.controller;
 import com.videoconverter.model.bean.ConversionJob;
 import com.videoconverter.model.bean.User;
 import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.FFmpegWrapper;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -11,9 +12,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 
 @WebServlet("/download")
 public class DownloadServlet extends HttpServlet {
@@ -55,6 +54,12 @@ public class DownloadServlet extends HttpServlet {
                 return;
             }
 
+            // An HLS output is a playlist plus segments, not a single file
+            if (FFmpegWrapper.HLS_FORMAT.equalsIgnoreCase(job.getOutputFormat())) {
+                response.sendRedirect("watch?jobId=" + jobId);
+                return;
+            }
+
             if (!"COMPLETED".equals(job.getStatus()) || job.getOutputPath() == null) {
                 response.sendError(HttpServletResponse.SC_NOT_FOUND, "File not ready");
                 return;
@@ -77,33 +82,37 @@ public class DownloadServlet extends HttpServlet {
                 return;
             }
 
-            // Sanitize filename
-            String safeFilename = file.getName().replaceAll("[^a-zA-Z0-9._-]", "_");
-
-            // Set response headers
-            response.setContentType("application/octet-stream");
-            response.setContentLengthLong(file.length());
-            response.setHeader("Content-Disposition",
-                "attachment; filename=\"" + safeFilename + "\"");
-
-            // Stream file to client
-            try (FileInputStream in = new FileInputStream(file);
-                 OutputStream out = response.getOutputStream()) {
-
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, bytesRead);
-                }
-                out.flush();
+            // Sanitize filename; name it after the uploaded video, not the (job-prefixed) file on disk
+            String safeFilename = downloadName(job, file).replaceAll("[^a-zA-Z0-9._-]", "_");
+
+            // ?inline=1 lets the browser's player stream and seek the file instead of saving it
+            boolean inline = "1".equals(request.getParameter("inline"));
+            String contentType = inline ? getServletContext().getMimeType(file.getName()) : null;
+            if (contentType == null) {
+                contentType = "application/octet-stream";
             }
 
+            FileSender.send(request, response, file, contentType,
+                (inline ? "inline" : "attachment") + "; filename=\"" + safeFilename + "\"");
+
         } catch (NumberFormatException e) {
             response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid jobId");
         } catch (Exception e) {
             getServletContext().log("Download error", e);
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    private static String downloadName(ConversionJob job, File file) {
+        String original = job.getVideoFilename();
+        if (original == null) {
+            return file.getName();
         }
+        int dotIndex = original.lastIndexOf('.');
+        String baseName = dotIndex > 0 ? original.substring(0, dotIndex) : original;
+        return baseName + "_converted." + job.getOutputFormat();
     }
 }
 
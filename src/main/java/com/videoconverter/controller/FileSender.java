@@ -0,0 +1,255 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.util.TransferStats;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends a file with conditional-request (ETag / Last-Modified, 304) and byte-range (206,
+ * multipart/byteranges) support.
+ *
+ * Bodies go through Tomcat's sendfile when the connector offers it, otherwise through
+ * FileChannel.transferTo into the response stream; the request thread never copies the file
+ * through a heap buffer of its own. Callers do the access checks first.
+ */
+final class FileSender {
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String BOUNDARY = "VIDEO_CONVERTER_BYTERANGES";
+    // More ranges than this is not a player seeking; serve the whole file instead.
+    private static final int MAX_RANGES = 16;
+
+    private FileSender() {
+    }
+
+    /**
+     * @param contentType MIME type of the body
+     * @param disposition Content-Disposition value, or null to omit
+     */
+    static void send(HttpServletRequest request, HttpServletResponse response, File file,
+                     String contentType, String disposition) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified() / 1000 * 1000; // HTTP dates have second precision
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (disposition != null) {
+            response.setHeader("Content-Disposition", disposition);
+        }
+
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            ranges = parseRanges(rangeHeader, length);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                sendBody(request, response, file, 0, length);
+            }
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            if (!head) {
+                sendBody(request, response, file, range[0], range[1] + 1);
+            }
+        } else {
+            sendMultipart(response, file, contentType, ranges, length, head);
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return etagListMatches(ifNoneMatch, etag, true);
+        }
+        long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    // If-Range: the range applies only if the client's copy is still current (strong comparison).
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            return etag.equals(ifRange.trim());
+        }
+        long date = dateHeader(request, "If-Range");
+        return date != -1 && date == lastModified;
+    }
+
+    private static boolean etagListMatches(String header, String etag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (weak && tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Inclusive [start, end] pairs; null if the header should be ignored (bad syntax, other unit,
+     * too many ranges); empty if syntactically fine but nothing is satisfiable.
+     */
+    static List<long[]> parseRanges(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long start;
+            long end;
+            try {
+                if (dash == 0) {
+                    // suffix: last N bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) continue;
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    end = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1));
+                    if (end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < length) {
+                ranges.add(new long[] {start, end});
+            }
+        }
+        return ranges;
+    }
+
+    private static void sendMultipart(HttpServletResponse response, File file, String contentType,
+                                      List<long[]> ranges, long length, boolean head) throws IOException {
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (long[] range : ranges) {
+            byte[] header = ("\r\n--" + BOUNDARY + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            total += header.length + (range[1] - range[0] + 1);
+        }
+        byte[] trailer = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        total += trailer.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+        response.setContentLengthLong(total);
+        if (head) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, range[0], range[1] + 1, target);
+            }
+        }
+        out.write(trailer);
+        out.flush();
+        TransferStats.DOWNLOADS.record(total, started);
+    }
+
+    // end is exclusive
+    private static void sendBody(HttpServletRequest request, HttpServletResponse response, File file,
+                                 long start, long end) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the file itself with sendfile(2) after the servlet returns.
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            TransferStats.DOWNLOADS.recordBytes(end - start);
+            return;
+        }
+
+        long started = System.nanoTime();
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, start, end, Channels.newChannel(out));
+        }
+        out.flush();
+        TransferStats.DOWNLOADS.record(end - start, started);
+    }
+
+    private static void transfer(FileChannel channel, long start, long end, WritableByteChannel target)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
+        }
+    }
+}
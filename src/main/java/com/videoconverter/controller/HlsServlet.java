@@ -0,0 +1,127 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.bean.User;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.FFmpegWrapper;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HLS playback of jobs converted with output format "hls".
+ *
+ *   /watch?jobId=N             player page
+ *   /hls/{jobId}/index.m3u8    playlist, grows while the job is PROCESSING
+ *   /hls/{jobId}/seg_00000.ts  segments
+ *
+ * Same ownership and canonical-path checks as DownloadServlet.
+ */
+@WebServlet(urlPatterns = {"/hls/*", "/watch"})
+public class HlsServlet extends HttpServlet {
+    private static final Pattern HLS_PATH = Pattern.compile("^/(\\d+)/([A-Za-z0-9_-]+\\.(m3u8|ts))$");
+
+    private ConversionJobDAO jobDAO;
+
+    @Override
+    public void init() {
+        jobDAO = new ConversionJobDAO();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute("user");
+
+        if ("/watch".equals(request.getServletPath())) {
+            if (user == null) {
+                response.sendRedirect("login");
+                return;
+            }
+            ConversionJob job = findPlayableJob(request.getParameter("jobId"), user);
+            if (job == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Nothing to play yet");
+                return;
+            }
+            request.setAttribute("job", job);
+            request.getRequestDispatcher("watch.jsp").forward(request, response);
+            return;
+        }
+
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        Matcher matcher = HLS_PATH.matcher(request.getPathInfo() == null ? "" : request.getPathInfo());
+        if (!matcher.matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        ConversionJob job = findPlayableJob(matcher.group(1), user);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        File dir = new File(job.getOutputPath()).getParentFile();
+        File file = new File(dir, matcher.group(2));
+
+        // Security: Prevent path traversal (normalize root + enforce trailing separator)
+        File uploadsRoot = new File(getServletContext().getRealPath("/uploads"));
+        String allowedRoot = uploadsRoot.getCanonicalPath() + File.separator;
+        String canonicalPath = file.getCanonicalPath();
+        if (!canonicalPath.startsWith(allowedRoot)
+                || !file.getCanonicalFile().getParentFile().equals(dir.getCanonicalFile())) {
+            getServletContext().log("Blocked HLS request outside uploads: " + canonicalPath);
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Invalid path");
+            return;
+        }
+
+        if (!file.isFile()) {
+            // Playlist not written yet, or a segment that is still being encoded
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if ("m3u8".equals(matcher.group(3))) {
+            // Rewritten after every segment while encoding; players must revalidate (ETag makes that cheap).
+            response.setHeader("Cache-Control", "private, no-cache");
+            FileSender.send(request, response, file, "application/vnd.apple.mpegurl", null);
+        } else {
+            response.setHeader("Cache-Control", "private, max-age=86400");
+            FileSender.send(request, response, file, "video/mp2t", null);
+        }
+    }
+
+    // The user's HLS job once its playlist location is known (set when encoding starts).
+    private ConversionJob findPlayableJob(String jobIdParam, User user) {
+        int jobId;
+        try {
+            jobId = Integer.parseInt(jobIdParam);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        ConversionJob job = jobDAO.getJobById(jobId);
+        if (job == null || job.getUserId() != user.getUserId()
+                || !FFmpegWrapper.HLS_FORMAT.equalsIgnoreCase(job.getOutputFormat())
+                || job.getOutputPath() == null) {
+            return null;
+        }
+        if (!"PROCESSING".equals(job.getStatus()) && !"COMPLETED".equals(job.getStatus())) {
+            return null;
+        }
+        return job;
+    }
+}
@@ -1,6 +1,7 @@
 package com.videoconverter.controller;
 
 import com.videoconverter.model.bean.User;
+import com.videoconverter.model.bo.LoginThrottle;
 import com.videoconverter.model.bo.UserBO;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -10,14 +11,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
-@WebServlet("/login")
+@WebServlet(urlPatterns = "/login", asyncSupported = true)
 public class LoginServlet extends HttpServlet {
+    static final int SC_TOO_MANY_REQUESTS = 429;
+
     private UserBO userBO;
+    private LoginThrottle throttle;
 
     @Override
     public void init() {
         userBO = new UserBO();
+        throttle = LoginThrottle.getInstance();
     }
 
     @Override
@@ -36,10 +42,41 @@ public class LoginServlet extends HttpServlet {
             throws ServletException, IOException {
         String username = request.getParameter("username");
         String password = request.getParameter("password");
+        String ip = request.getRemoteAddr();
+
+        if (AuthDispatch.isResult(request)) {
+            Object result = AuthDispatch.result(request);
+            finish(request, response, result instanceof User ? (User) result : null, ip, username);
+            return;
+        }
+
+        if (username == null || username.trim().isEmpty() || password == null || password.isEmpty()) {
+            showError(request, response, HttpServletResponse.SC_OK, "Invalid username or password");
+            return;
+        }
+
+        long retryAfter = throttle.tryAcquire(ip, username);
+        if (retryAfter > 0) {
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            showError(request, response, SC_TOO_MANY_REQUESTS,
+                    "Too many failed attempts. Try again in " + ((retryAfter + 59) / 60) + " minute(s).");
+            return;
+        }
 
-        User user = userBO.authenticate(username, password);
+        try {
+            AuthDispatch.start(request, userBO.authenticateAsync(username, password));
+        } catch (RejectedExecutionException e) {
+            throttle.release(ip, username);
+            response.setHeader("Retry-After", "5");
+            showError(request, response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "The server is busy. Please try again in a few seconds.");
+        }
+    }
 
+    private void finish(HttpServletRequest request, HttpServletResponse response, User user, String ip,
+                        String username) throws ServletException, IOException {
         if (user != null) {
+            throttle.succeeded(ip, username);
             HttpSession session = request.getSession();
             session.setAttribute("user", user);
 
@@ -49,10 +86,15 @@ public class LoginServlet extends HttpServlet {
                 response.sendRedirect("upload");
             }
         } else {
-            request.setAttribute("error", "Invalid username or password");
-            request.getRequestDispatcher("login.jsp").forward(request, response);
+            // Already counted when the attempt was reserved.
+            showError(request, response, HttpServletResponse.SC_OK, "Invalid username or password");
         }
     }
-}
-
 
+    private void showError(HttpServletRequest request, HttpServletResponse response, int status, String message)
+            throws ServletException, IOException {
+        response.setStatus(status);
+        request.setAttribute("error", message);
+        request.getRequestDispatcher("login.jsp").forward(request, response);
+    }
+}
@@ -0,0 +1,62 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.model.bean.User;
+import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.MetricsRegistry;
+import com.videoconverter.util.TransferStats;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Prometheus scrape endpoint. Open to a logged-in admin, or to any client sending
+ * "Authorization: Bearer &lt;METRICS_TOKEN&gt;" when that token is configured.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    private static final String TOKEN = AppConfig.getString("METRICS_TOKEN", "");
+
+    @Override
+    public void init() {
+        // Queue/worker gauges and transfer counters register when their classes load.
+        ConversionBO.getInstance();
+        TransferStats.UPLOADS.getClass();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!isAllowed(request)) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        byte[] body = MetricsRegistry.getInstance().scrape().getBytes(StandardCharsets.UTF_8);
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean isAllowed(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (!TOKEN.isEmpty() && header != null && header.startsWith("Bearer ")) {
+            byte[] given = header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+            if (MessageDigest.isEqual(given, TOKEN.getBytes(StandardCharsets.UTF_8))) {
+                return true;
+            }
+        }
+        HttpSession session = request.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute("user");
+        return user != null && user.isAdmin();
+    }
+}
@@ -0,0 +1,169 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.model.bean.User;
+import com.videoconverter.model.bo.JobProgressRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Server-Sent Events stream of job changes for the logged-in user.
+ * The status page renders once from the DB, then applies these deltas; the stream itself only
+ * reads the DB through the registry's poll for jobs running on other nodes.
+ */
+@WebServlet(urlPatterns = "/status/stream", asyncSupported = true)
+public class ProgressStreamServlet extends HttpServlet {
+    private JobProgressRegistry registry;
+
+    @Override
+    public void init() {
+        registry = JobProgressRegistry.getInstance();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute("user");
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+
+        int userId = user.getUserId();
+        ServletOutputStream out = response.getOutputStream();
+        SseListener listener = new SseListener(async, out);
+
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                registry.unsubscribe(userId, listener);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                registry.unsubscribe(userId, listener);
+                event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                registry.unsubscribe(userId, listener);
+                event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        // Tell EventSource how long to wait before reconnecting; the write listener opens the stream.
+        listener.enqueue("retry", "retry: 3000\n\n");
+        out.setWriteListener(listener);
+
+        registry.subscribe(userId, listener);
+    }
+
+    /**
+     * Queues frames and writes them with a non-blocking WriteListener, so a slow client never
+     * stalls the registry's dispatcher thread. Frames are keyed per job and only the newest is
+     * kept; a client that falls more than MAX_PENDING jobs behind is disconnected and replays
+     * the current state when EventSource reconnects.
+     */
+    private static final class SseListener implements JobProgressRegistry.Listener, WriteListener {
+        private static final int MAX_PENDING = 256;
+        private static final String HEARTBEAT = "heartbeat";
+
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final Map<String, byte[]> pending = new LinkedHashMap<>();
+        private volatile boolean open = true;
+
+        SseListener(AsyncContext async, ServletOutputStream out) {
+            this.async = async;
+            this.out = out;
+        }
+
+        @Override
+        public boolean send(String event, int jobId, String data) {
+            if (!open) return false;
+
+            if (event == null) {
+                enqueue(HEARTBEAT, ": keep-alive\n\n");
+            } else {
+                enqueue(event + ":" + jobId, "event: " + event + "\ndata: " + data + "\n\n");
+            }
+            drain();
+            return open;
+        }
+
+        synchronized void enqueue(String key, String frame) {
+            // Re-insert so a replaced frame moves behind ones queued after its predecessor.
+            pending.remove(key);
+            pending.put(key, frame.getBytes(StandardCharsets.UTF_8));
+            if (pending.size() > MAX_PENDING) {
+                close();
+            }
+        }
+
+        private synchronized void drain() {
+            try {
+                while (open && out.isReady()) {
+                    Iterator<byte[]> it = pending.values().iterator();
+                    if (!it.hasNext()) {
+                        out.flush();
+                        return;
+                    }
+                    byte[] frame = it.next();
+                    it.remove();
+                    out.write(frame);
+                }
+                // Not ready: the container calls onWritePossible once the socket drains.
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        private synchronized void close() {
+            if (!open) return;
+            open = false;
+            pending.clear();
+            try {
+                async.complete();
+            } catch (IllegalStateException ignored) {
+            }
+        }
+    }
+}
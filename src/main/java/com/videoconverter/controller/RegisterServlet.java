@@ -1,5 +1,6 @@
 package com.videoconverter.controller;
 
+import com.videoconverter.model.bo.LoginThrottle;
 import com.videoconverter.model.bo.UserBO;
 import com.videoconverter.util.PasswordUtil;
 import jakarta.servlet.ServletException;
@@ -9,14 +10,17 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
-@WebServlet("/register")
+@WebServlet(urlPatterns = "/register", asyncSupported = true)
 public class RegisterServlet extends HttpServlet {
     private UserBO userBO;
+    private LoginThrottle throttle;
 
     @Override
     public void init() {
         userBO = new UserBO();
+        throttle = LoginThrottle.getInstance();
     }
 
     @Override
@@ -31,6 +35,19 @@ public class RegisterServlet extends HttpServlet {
         String username = request.getParameter("username");
         String password = request.getParameter("password");
         String email = request.getParameter("email");
+        String ip = request.getRemoteAddr();
+
+        if (AuthDispatch.isResult(request)) {
+            if (Boolean.TRUE.equals(AuthDispatch.result(request))) {
+                throttle.succeeded(ip, null);
+                response.sendRedirect("login?registered=true");
+            } else {
+                // Already counted against the IP when the attempt was reserved.
+                request.setAttribute("error", "Username or email already exists");
+                request.getRequestDispatcher("register.jsp").forward(request, response);
+            }
+            return;
+        }
 
         // Validation
         if (!userBO.isValidUsername(username)) {
@@ -51,14 +68,24 @@ public class RegisterServlet extends HttpServlet {
             return;
         }
 
-        boolean success = userBO.register(username, password, email);
+        long retryAfter = throttle.tryAcquire(ip, null);
+        if (retryAfter > 0) {
+            response.setStatus(LoginServlet.SC_TOO_MANY_REQUESTS);
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            request.setAttribute("error", "Too many attempts. Try again in " + ((retryAfter + 59) / 60) + " minute(s).");
+            request.getRequestDispatcher("register.jsp").forward(request, response);
+            return;
+        }
 
-        if (success) {
-            response.sendRedirect("login?registered=true");
-        } else {
-            request.setAttribute("error", "Username or email already exists");
+        // Hashing the new password is BCrypt work too.
+        try {
+            AuthDispatch.start(request, userBO.registerAsync(username, password, email));
+        } catch (RejectedExecutionException e) {
+            throttle.release(ip, null);
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "5");
+            request.setAttribute("error", "The server is busy. Please try again in a few seconds.");
             request.getRequestDispatcher("register.jsp").forward(request, response);
         }
     }
 }
-
@@ -0,0 +1,244 @@
+package com.videoconverter.controller;
+
+import com.videoconverter.model.bean.UploadSession;
+import com.videoconverter.model.bean.User;
+import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.model.bo.ResumableUploadBO;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumable uploads following the tus 1.0 core protocol plus the creation, checksum (sha256) and
+ * termination extensions:
+ *
+ *   POST   /resumable        Upload-Length, Upload-Metadata: filename b64,outputFormat b64 -> 201 Location
+ *                            (outputFormat may list several formats, comma-separated;
+ *                            optional profile b64 picks the encoding profile)
+ *   HEAD   /resumable/{id}   -> Upload-Offset, Upload-Length
+ *   PATCH  /resumable/{id}   Upload-Offset, Content-Type: application/offset+octet-stream,
+ *                            optional Upload-Checksum: sha256 b64 -> 204 Upload-Offset
+ *   DELETE /resumable/{id}
+ *
+ * The PATCH that completes the upload also answers Upload-Job-Id with the created job id(s); an
+ * empty PATCH at the final offset repeats them without creating new jobs.
+ */
+@WebServlet(urlPatterns = {"/resumable", "/resumable/*"})
+public class ResumableUploadServlet extends HttpServlet {
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String UPLOAD_DIR = "uploads";
+
+    private ResumableUploadBO uploadBO;
+    private ConversionBO conversionBO;
+
+    @Override
+    public void init() {
+        uploadBO = new ResumableUploadBO();
+        conversionBO = ConversionBO.getInstance();
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setHeader("Tus-Resumable", TUS_VERSION);
+        if ("PATCH".equals(request.getMethod())) {
+            doPatch(request, response);
+        } else {
+            super.service(request, response);
+        }
+    }
+
+    @Override
+    protected void doOptions(HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader("Tus-Version", TUS_VERSION);
+        response.setHeader("Tus-Extension", "creation,checksum,termination");
+        response.setHeader("Tus-Checksum-Algorithm", "sha256");
+        response.setHeader("Tus-Max-Size", String.valueOf(UploadServlet.MAX_FILE_SIZE));
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        User user = getUser(request);
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        long length;
+        try {
+            length = Long.parseLong(request.getHeader("Upload-Length"));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Upload-Length required");
+            return;
+        }
+        if (length <= 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Empty upload");
+            return;
+        }
+        if (length > UploadServlet.MAX_FILE_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        Map<String, String> metadata = parseMetadata(request.getHeader("Upload-Metadata"));
+        String filename = UploadServlet.sanitizeFilename(metadata.get("filename"));
+        List<String> outputFormats = UploadServlet.parseFormats(metadata.get("outputFormat"));
+        if (filename == null || outputFormats == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "filename and a valid outputFormat are required");
+            return;
+        }
+        String profile = UploadServlet.parseProfile(metadata.get("profile"));
+        if (profile == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown profile");
+            return;
+        }
+        if (conversionBO.isUserQueueFull(user.getUserId())) {
+            response.sendError(429, "Too many videos waiting");
+            return;
+        }
+
+        String uploadDir = getServletContext().getRealPath("") + File.separator + UPLOAD_DIR;
+        UploadSession session = uploadBO.create(user.getUserId(), filename, String.join(",", outputFormats),
+                profile, length, Paths.get(uploadDir));
+        if (session == null) {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Cannot create upload");
+            return;
+        }
+
+        response.setHeader("Location", request.getContextPath() + "/resumable/" + session.getUploadId());
+        response.setStatus(HttpServletResponse.SC_CREATED);
+    }
+
+    @Override
+    protected void doHead(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        UploadSession session = findSession(request, response);
+        if (session == null) return;
+
+        response.setHeader("Cache-Control", "no-store");
+        response.setHeader("Upload-Offset", String.valueOf(session.getReceived()));
+        response.setHeader("Upload-Length", String.valueOf(session.getTotalSize()));
+        response.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    protected void doPatch(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        UploadSession session = findSession(request, response);
+        if (session == null) return;
+
+        if (!"application/offset+octet-stream".equals(request.getContentType())) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
+        long offset;
+        byte[] checksum;
+        try {
+            offset = Long.parseLong(request.getHeader("Upload-Offset"));
+            checksum = parseChecksum(request.getHeader("Upload-Checksum"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad Upload-Offset or Upload-Checksum");
+            return;
+        }
+
+        try {
+            long newOffset;
+            try (InputStream in = request.getInputStream()) {
+                newOffset = uploadBO.appendChunk(session, offset, in, checksum);
+            }
+            response.setHeader("Upload-Offset", String.valueOf(newOffset));
+
+            if (session.isComplete()) {
+                List<Integer> jobIds = uploadBO.complete(session);
+                if (jobIds.isEmpty()) {
+                    // Data is kept; an empty PATCH at the final offset retries the submission.
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Queue may be full");
+                    return;
+                }
+                StringBuilder ids = new StringBuilder();
+                for (Integer jobId : jobIds) {
+                    if (ids.length() > 0) ids.append(',');
+                    ids.append(jobId);
+                }
+                response.setHeader("Upload-Job-Id", ids.toString());
+            }
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } catch (ResumableUploadBO.UploadException e) {
+            response.sendError(e.getStatus(), e.getMessage());
+        }
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        UploadSession session = findSession(request, response);
+        if (session == null) return;
+
+        uploadBO.cancel(session);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private UploadSession findSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = getUser(request);
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return null;
+        }
+        String pathInfo = request.getPathInfo();
+        String uploadId = pathInfo == null ? "" : pathInfo.substring(1);
+        UploadSession session = uploadId.isEmpty() ? null : uploadBO.getSession(uploadId, user.getUserId());
+        if (session == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+        return session;
+    }
+
+    private User getUser(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        return session == null ? null : (User) session.getAttribute("user");
+    }
+
+    // "key base64value,key2 base64value2"
+    private static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null) return metadata;
+
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                String value = parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8)
+                        : "";
+                metadata.put(parts[0], value);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return metadata;
+    }
+
+    // "sha256 base64digest"; null when absent
+    private static byte[] parseChecksum(String header) {
+        if (header == null) return null;
+
+        String[] parts = header.trim().split(" ", 2);
+        if (parts.length != 2 || !"sha256".equalsIgnoreCase(parts[0])) {
+            throw new IllegalArgumentException("Unsupported checksum: " + header);
+        }
+        return Base64.getDecoder().decode(parts[1].trim());
+    }
+}
@@ -1,8 +1,10 @@
 package com.videoconverter.controller;
 
 import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.bean.JobPage;
 import com.videoconverter.model.bean.User;
 import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.util.AppConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -15,6 +17,8 @@ import java.util.List;
 
 @WebServlet("/status")
 public class StatusServlet extends HttpServlet {
+    private static final int PAGE_SIZE = Math.max(1, AppConfig.getInt("STATUS_PAGE_SIZE", 20));
+
     private ConversionBO conversionBO;
 
     @Override
@@ -39,8 +43,11 @@ public class StatusServlet extends HttpServlet {
             return;
         }
 
-        List<ConversionJob> jobs = conversionBO.getUserJobs(user.getUserId());
-        request.setAttribute("jobs", jobs);
+        // Active jobs are few and refreshed live; history is read one keyset page at a time.
+        List<ConversionJob> activeJobs = conversionBO.getActiveUserJobs(user.getUserId());
+        JobPage history = conversionBO.getUserJobs(user.getUserId(), request.getParameter("cursor"), PAGE_SIZE);
+        request.setAttribute("activeJobs", activeJobs);
+        request.setAttribute("history", history);
         request.getRequestDispatcher("status.jsp").forward(request, response);
     }
 
@@ -3,28 +3,49 @@ package com.videoconverter.controller;
 import com.videoconverter.model.bean.ConversionJob;
 import com.videoconverter.model.bean.User;
 import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.util.EncodingProfile;
+import com.videoconverter.util.EncodingProfiles;
+import com.videoconverter.util.FileIngest;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import jakarta.servlet.http.Part;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.apache.commons.fileupload.util.Streams;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Upload endpoint.
+ *
+ * POST multipart/form-data (the upload page) and PUT with the raw file as body
+ * (?filename=...&outputFormat=...) are both streamed straight into the uploads directory with
+ * {@link FileIngest}; there is no @MultipartConfig, so the container never buffers the body.
+ * outputFormat may be repeated or comma-separated to get several formats from one upload;
+ * profile picks the encoding profile (default if omitted).
+ */
 @WebServlet("/upload")
-@MultipartConfig(
-    maxFileSize = 3221225472L,
-    maxRequestSize = 3221225472L,
-    fileSizeThreshold = 268435456
-)
 public class UploadServlet extends HttpServlet {
     private ConversionBO conversionBO;
     private static final String UPLOAD_DIR = "uploads";
-    private static final String[] ALLOWED_FORMATS = {"mp4", "avi", "mkv", "mov", "webm"};
+    private static final String[] ALLOWED_FORMATS = {"mp4", "avi", "mkv", "mov", "webm", "hls"};
+    static final long MAX_FILE_SIZE = 3221225472L;
 
     @Override
     public void init() {
@@ -53,82 +74,232 @@ public class UploadServlet extends HttpServlet {
             return;
         }
 
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+            showError(request, response, "Please select a video file");
+            return;
+        }
+
+        // Reject before reading the body: no point receiving gigabytes we will not accept.
+        if (conversionBO.isUserQueueFull(user.getUserId())) {
+            showError(request, response, queueFullMessage());
+            return;
+        }
+
+        Path stored = null;
         try {
-            Part filePart = request.getPart("videoFile");
-            String outputFormat = request.getParameter("outputFormat");
+            String filename = null;
+            List<String> formatValues = new ArrayList<>();
+            String profileValue = null;
+            FileIngest.Result ingest = null;
 
-            if (filePart == null || filePart.getSize() == 0) {
-                showError(request, response, "Please select a video file");
-                return;
+            FileUpload upload = new FileUpload();
+            upload.setSizeMax(MAX_FILE_SIZE + 64 * 1024);
+            FileItemIterator items = upload.getItemIterator(new RequestUploadContext(request));
+            // The form sends the file before outputFormat, so the file is written as soon as it arrives.
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                try (InputStream in = item.openStream()) {
+                    if (item.isFormField()) {
+                        if ("outputFormat".equals(item.getFieldName())) {
+                            formatValues.add(Streams.asString(in, "UTF-8"));
+                        } else if ("profile".equals(item.getFieldName())) {
+                            profileValue = Streams.asString(in, "UTF-8");
+                        }
+                    } else if ("videoFile".equals(item.getFieldName()) && stored == null) {
+                        filename = sanitizeFilename(item.getName());
+                        if (filename == null) {
+                            continue;
+                        }
+                        stored = newUploadPath(filename);
+                        ingest = FileIngest.write(in, stored, MAX_FILE_SIZE);
+                    }
+                }
             }
 
-            if (!isValidFormat(outputFormat)) {
-                showError(request, response, "Invalid output format");
+            if (ingest == null || ingest.getSize() == 0) {
+                showError(request, response, filename == null ? "Please select a video file" : "Invalid file");
                 return;
             }
 
-            String filename = getFileName(filePart);
-            if (filename == null || filename.isEmpty()) {
-                showError(request, response, "Invalid file");
+            List<String> outputFormats = parseFormats(formatValues.toArray(new String[0]));
+            if (outputFormats == null) {
+                showError(request, response, "Invalid output format");
                 return;
             }
-
-            String uploadPath = getServletContext().getRealPath("") + File.separator + UPLOAD_DIR;
-            File uploadDir = new File(uploadPath);
-            if (!uploadDir.exists()) {
-                boolean created = uploadDir.mkdirs();
-                if (!created) {
-                    showError(request, response, "Failed to create upload directory");
-                    return;
-                }
+            String profile = parseProfile(profileValue);
+            if (profile == null) {
+                showError(request, response, "Unknown encoding profile");
+                return;
             }
 
-            String uniqueFilename = System.currentTimeMillis() + "_" + filename;
-            String filePath = uploadPath + File.separator + uniqueFilename;
-            filePart.write(filePath);
-
-            ConversionJob job = conversionBO.submitJob(
+            List<ConversionJob> jobs = conversionBO.submitJobs(
                 user.getUserId(),
                 filename,
-                filePath,
-                filePart.getSize(),
-                outputFormat
+                stored.toString(),
+                ingest.getSize(),
+                outputFormats,
+                profile,
+                ingest.getSha256()
             );
 
-            if (job != null) {
+            if (!jobs.isEmpty()) {
+                stored = null;
                 response.sendRedirect("status?success=true");
             } else {
-                File uploadedFile = new File(filePath);
-                if (uploadedFile.exists()) {
-                    uploadedFile.delete();
-                }
                 showError(request, response, "Failed to create conversion job. Queue may be full.");
             }
 
-        } catch (Exception e) {
+        } catch (FileIngest.FileTooLargeException | FileUploadBase.SizeLimitExceededException e) {
+            showError(request, response, "Upload failed: file is larger than 3 GB");
+        } catch (FileUploadException | IOException e) {
             showError(request, response, "Upload failed: " + e.getMessage());
+        } finally {
+            // Anything still referenced here was not handed to a job.
+            if (stored != null) {
+                Files.deleteIfExists(stored);
+            }
+        }
+    }
+
+    /**
+     * Raw upload: PUT /upload?filename=clip.mp4&outputFormat=webm[&profile=balanced] with the file as the body.
+     * Responds 201 with {"jobId":N,"jobIds":[N,...]} (one job per requested format).
+     */
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HttpSession session = request.getSession(false);
+        User user = session == null ? null : (User) session.getAttribute("user");
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        String filename = sanitizeFilename(request.getParameter("filename"));
+        List<String> outputFormats = parseFormats(request.getParameterValues("outputFormat"));
+        if (filename == null || outputFormats == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "filename and a valid outputFormat are required");
+            return;
+        }
+        String profile = parseProfile(request.getParameter("profile"));
+        if (profile == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown profile; known: "
+                    + EncodingProfiles.getInstance().names());
+            return;
+        }
+        if (request.getContentLengthLong() > MAX_FILE_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        if (conversionBO.isUserQueueFull(user.getUserId())) {
+            response.sendError(429, queueFullMessage());
+            return;
+        }
+
+        Path stored = newUploadPath(filename);
+        boolean submitted = false;
+        try {
+            FileIngest.Result ingest;
+            try (InputStream in = request.getInputStream()) {
+                ingest = FileIngest.write(in, stored, MAX_FILE_SIZE);
+            }
+            if (ingest.getSize() == 0) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Empty body");
+                return;
+            }
+
+            List<ConversionJob> jobs = conversionBO.submitJobs(user.getUserId(), filename, stored.toString(),
+                    ingest.getSize(), outputFormats, profile, ingest.getSha256());
+            if (jobs.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Queue may be full");
+                return;
+            }
+            submitted = true;
+
+            StringBuilder ids = new StringBuilder();
+            for (ConversionJob job : jobs) {
+                if (ids.length() > 0) ids.append(',');
+                ids.append(job.getJobId());
+            }
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"jobId\":" + jobs.get(0).getJobId() + ",\"jobIds\":[" + ids + "]}");
+        } catch (FileIngest.FileTooLargeException e) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        } finally {
+            if (!submitted) {
+                Files.deleteIfExists(stored);
+            }
         }
     }
 
+    private String queueFullMessage() {
+        return "You already have " + conversionBO.getUserMaxQueued()
+                + " videos waiting. Please wait for some of them to finish.";
+    }
+
+    private Path newUploadPath(String filename) throws IOException {
+        String uploadPath = getServletContext().getRealPath("") + File.separator + UPLOAD_DIR;
+        Path uploadDir = Paths.get(uploadPath);
+        Files.createDirectories(uploadDir);
+        return uploadDir.resolve(System.currentTimeMillis() + "_" + filename);
+    }
+
     private void showError(HttpServletRequest request, HttpServletResponse response, String message)
             throws ServletException, IOException {
         request.setAttribute("error", message);
         request.getRequestDispatcher("upload.jsp").forward(request, response);
     }
 
-    private String getFileName(Part part) {
-        String contentDisp = part.getHeader("content-disposition");
-        if (contentDisp == null) return null;
+    /**
+     * Last path segment of a client-supplied filename (some browsers send the full path), or null.
+     */
+    static String sanitizeFilename(String name) {
+        if (name == null) return null;
 
-        for (String token : contentDisp.split(";")) {
-            if (token.trim().startsWith("filename")) {
-                return token.substring(token.indexOf("=") + 2, token.length() - 1);
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        String base = name.substring(slash + 1).trim();
+        if (base.isEmpty() || base.equals(".") || base.equals("..")) {
+            return null;
+        }
+        return base;
+    }
+
+    /**
+     * Requested formats from repeated and/or comma-separated values, lower-cased and de-duplicated.
+     * Null if none was given or any is not allowed.
+     */
+    static List<String> parseFormats(String... values) {
+        if (values == null) return null;
+
+        Set<String> formats = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) continue;
+            for (String format : value.split(",")) {
+                format = format.trim();
+                if (format.isEmpty()) continue;
+                if (!isValidFormat(format)) {
+                    return null;
+                }
+                formats.add(format.toLowerCase());
             }
         }
-        return null;
+        return formats.isEmpty() ? null : new ArrayList<>(formats);
     }
 
-    private boolean isValidFormat(String format) {
+    /**
+     * Registered profile name for the request value (default if blank), or null if unknown.
+     */
+    static String parseProfile(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ConversionJob.DEFAULT_PROFILE;
+        }
+        EncodingProfile profile = EncodingProfiles.getInstance().get(value.trim());
+        return profile == null ? null : profile.getName();
+    }
+
+    static boolean isValidFormat(String format) {
         if (format == null) return false;
 
         for (String allowed : ALLOWED_FORMATS) {
@@ -138,5 +309,41 @@ public class UploadServlet extends HttpServlet {
         }
         return false;
     }
-}
 
+    /**
+     * Adapts the servlet request for commons-fileupload's streaming API.
+     */
+    private static final class RequestUploadContext implements UploadContext {
+        private final HttpServletRequest request;
+
+        RequestUploadContext(HttpServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return request.getCharacterEncoding();
+        }
+
+        @Override
+        public String getContentType() {
+            return request.getContentType();
+        }
+
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return request.getContentLength();
+        }
+
+        @Override
+        public long contentLength() {
+            return request.getContentLengthLong();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return request.getInputStream();
+        }
+    }
+}
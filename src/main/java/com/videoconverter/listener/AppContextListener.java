@@ -1,6 +1,11 @@
 package com.videoconverter.listener;
 
 import com.videoconverter.model.bo.ConversionBO;
+import com.videoconverter.model.bo.JobProgressRegistry;
+import com.videoconverter.model.bo.PasswordHashPool;
+import com.videoconverter.model.bo.StatsBO;
+import com.videoconverter.util.DBConnection;
+import com.videoconverter.util.EncoderCapabilities;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import jakarta.servlet.annotation.WebListener;
@@ -11,6 +16,8 @@ public class AppContextListener implements ServletContextListener {
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         System.out.println("[App] Starting...");
+        EncoderCapabilities.getInstance().probe();
+        StatsBO.getInstance().start();
         ConversionBO.getInstance().startWorkers();
     }
 
@@ -18,6 +25,10 @@ public class AppContextListener implements ServletContextListener {
     public void contextDestroyed(ServletContextEvent sce) {
         System.out.println("[App] Stopping...");
         ConversionBO.getInstance().stopWorkers();
+        StatsBO.getInstance().stop();
+        PasswordHashPool.getInstance().shutdown();
+        JobProgressRegistry.getInstance().shutdown();
+        DBConnection.shutdown();
     }
 }
 
@@ -4,16 +4,26 @@ import java.sql.Timestamp;
 
 
 public class ConversionJob {
+    public static final String DEFAULT_PROFILE = "default";
+
     private int jobId;
     private int videoId;
     private int userId;
     private String outputFormat;
+    private String profile = DEFAULT_PROFILE; // encoding profile name
     private String status; // PENDING, PROCESSING, COMPLETED, FAILED
     private int progress; // 0-100
     private String outputPath;
     private String errorMessage;
     private Timestamp createdAt;
     private Timestamp completedAt;
+    private String workerId; // owner of the current lease while PROCESSING
+    private Timestamp leaseExpiresAt;
+    private int attempts;
+    private String conversionMode; // COPY, COPY_VIDEO, GPU, CPU or CACHED once completed
+    private long outputSize; // bytes of the output once completed
+    private double encodeSeconds; // encode wall time once completed, 0 for CACHED
+    private long queuedAt; // epoch millis when offered to the queue in this JVM, 0 if loaded from the DB
 
     // For display purposes
     private String videoFilename;
@@ -77,6 +87,38 @@ public class ConversionJob {
         this.outputFormat = outputFormat;
     }
 
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public long getOutputSize() {
+        return outputSize;
+    }
+
+    public void setOutputSize(long outputSize) {
+        this.outputSize = outputSize;
+    }
+
+    public double getEncodeSeconds() {
+        return encodeSeconds;
+    }
+
+    public void setEncodeSeconds(double encodeSeconds) {
+        this.encodeSeconds = encodeSeconds;
+    }
+
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+
+    public void setQueuedAt(long queuedAt) {
+        this.queuedAt = queuedAt;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -125,6 +167,38 @@ public class ConversionJob {
         this.completedAt = completedAt;
     }
 
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public Timestamp getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Timestamp leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getConversionMode() {
+        return conversionMode;
+    }
+
+    public void setConversionMode(String conversionMode) {
+        this.conversionMode = conversionMode;
+    }
+
     public String getVideoFilename() {
         return videoFilename;
     }
@@ -0,0 +1,61 @@
+package com.videoconverter.model.bean;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JobPage - One keyset page of a user's job history.
+ *
+ * The cursor is "&lt;created_at millis&gt;-&lt;job_id&gt;" of the last row shown; the next page is
+ * everything strictly older than that pair.
+ */
+public class JobPage {
+    private final List<ConversionJob> jobs;
+    private final String nextCursor;
+
+    public JobPage(List<ConversionJob> jobs, String nextCursor) {
+        this.jobs = jobs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ConversionJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Cursor for the following page, or null when this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public static String cursorOf(ConversionJob job) {
+        return job.getCreatedAt().getTime() + "-" + job.getJobId();
+    }
+
+    /**
+     * @return {createdAtMillis, jobId}, or null if the cursor is missing or malformed
+     */
+    public static long[] parseCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        int dash = cursor.indexOf('-');
+        if (dash <= 0) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(cursor.substring(0, dash)), Integer.parseInt(cursor.substring(dash + 1))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static Timestamp cursorTime(long[] cursor) {
+        return cursor == null ? null : new Timestamp(cursor[0]);
+    }
+}
@@ -0,0 +1,139 @@
+package com.videoconverter.model.bean;
+
+import java.sql.Timestamp;
+
+/**
+ * UploadSession Entity - Represents upload_sessions table (resumable uploads in progress)
+ */
+public class UploadSession {
+    private String uploadId;
+    private int userId;
+    private String filename;
+    private String outputFormat;
+    private String profile = ConversionJob.DEFAULT_PROFILE; // encoding profile for the jobs
+    private String filePath;
+    private long totalSize;
+    private long received; // bytes written contiguously from offset 0
+    private String state = "OPEN"; // OPEN, SUBMITTING, SUBMITTED
+    private String jobIds; // comma-separated, once SUBMITTED
+    private Timestamp createdAt;
+    private Timestamp updatedAt;
+
+    public UploadSession() {
+    }
+
+    public UploadSession(String uploadId, int userId, String filename, String outputFormat,
+                         String filePath, long totalSize) {
+        this.uploadId = uploadId;
+        this.userId = userId;
+        this.filename = filename;
+        this.outputFormat = outputFormat;
+        this.filePath = filePath;
+        this.totalSize = totalSize;
+    }
+
+    // Getters and Setters
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getOutputFormat() {
+        return outputFormat;
+    }
+
+    public void setOutputFormat(String outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getJobIds() {
+        return jobIds;
+    }
+
+    public void setJobIds(String jobIds) {
+        this.jobIds = jobIds;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isComplete() {
+        return received >= totalSize;
+    }
+
+    public boolean isOpen() {
+        return "OPEN".equals(state);
+    }
+}
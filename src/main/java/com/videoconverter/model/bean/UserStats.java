@@ -0,0 +1,69 @@
+package com.videoconverter.model.bean;
+
+/**
+ * UserStats Entity - Represents user_stats table (per-user totals kept up to date on completion)
+ */
+public class UserStats {
+    private int userId;
+    private String username; // for display, joined from users
+    private int completedJobs;
+    private long bytesIn; // uploaded video bytes
+    private long bytesOut; // bytes of completed outputs
+    private double encodeSeconds; // wall time spent encoding those outputs
+
+    public UserStats() {
+    }
+
+    public UserStats(int userId) {
+        this.userId = userId;
+    }
+
+    // Getters and Setters
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public int getCompletedJobs() {
+        return completedJobs;
+    }
+
+    public void setCompletedJobs(int completedJobs) {
+        this.completedJobs = completedJobs;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public void setBytesIn(long bytesIn) {
+        this.bytesIn = bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public void setBytesOut(long bytesOut) {
+        this.bytesOut = bytesOut;
+    }
+
+    public double getEncodeSeconds() {
+        return encodeSeconds;
+    }
+
+    public void setEncodeSeconds(double encodeSeconds) {
+        this.encodeSeconds = encodeSeconds;
+    }
+}
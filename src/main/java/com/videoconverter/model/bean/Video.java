@@ -1,5 +1,7 @@
 package com.videoconverter.model.bean;
 
+import com.videoconverter.util.MediaInfo;
+
 import java.sql.Timestamp;
 
 /**
@@ -12,6 +14,17 @@ public class Video {
     private String filePath;
     private long fileSize;
     private Timestamp uploadedAt;
+    private String contentHash; // SHA-256 of the uploaded file, hex
+
+    // Filled by the ffprobe stage at ingest; null until probed
+    private String container;
+    private Double duration;
+    private String videoCodec;
+    private String audioCodec;
+    private int width;
+    private int height;
+    private double frameRate;
+    private long bitRate;
 
     public Video() {
     }
@@ -81,6 +94,99 @@ public class Video {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getContainer() {
+        return container;
+    }
+
+    public void setContainer(String container) {
+        this.container = container;
+    }
+
+    public Double getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Double duration) {
+        this.duration = duration;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
+    public String getAudioCodec() {
+        return audioCodec;
+    }
+
+    public void setAudioCodec(String audioCodec) {
+        this.audioCodec = audioCodec;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public void setFrameRate(double frameRate) {
+        this.frameRate = frameRate;
+    }
+
+    public long getBitRate() {
+        return bitRate;
+    }
+
+    public void setBitRate(long bitRate) {
+        this.bitRate = bitRate;
+    }
+
+    public boolean isProbed() {
+        return container != null;
+    }
+
+    public MediaInfo getMediaInfo() {
+        if (!isProbed()) return null;
+        return new MediaInfo(container, duration != null ? duration : 0, videoCodec, audioCodec,
+                width, height, frameRate, bitRate);
+    }
+
+    public void setMediaInfo(MediaInfo info) {
+        this.container = info.getFormatName();
+        this.duration = info.getDurationSeconds();
+        this.videoCodec = info.getVideoCodec();
+        this.audioCodec = info.getAudioCodec();
+        this.width = info.getWidth();
+        this.height = info.getHeight();
+        this.frameRate = info.getFrameRate();
+        this.bitRate = info.getBitRate();
+    }
+
     public String getFormattedFileSize() {
         long size = fileSize;
         if (size < 1024) return size + " B";
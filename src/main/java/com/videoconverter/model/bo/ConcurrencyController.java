@@ -0,0 +1,292 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.AppConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * ConcurrencyController - Adjusts how many encodes run at once.
+ *
+ * Every CONTROL_INTERVAL_MS it sums the speed= reported by each running ffmpeg (media seconds
+ * encoded per wall second) and hill-climbs: while the queue is backed up and all slots are busy,
+ * add a slot as long as total throughput keeps rising; step back when throughput drops, the
+ * machine is overloaded (load per core) or free memory runs low. Limits are clamped to
+ * [WORKER_MIN, WORKER_MAX] and can be changed at runtime from the admin page.
+ */
+public class ConcurrencyController {
+    private static final double MIN_GAIN = 0.05;
+    private static final int HOLD_INTERVALS_AFTER_BACKOFF = 3;
+
+    private volatile int minLimit;
+    private volatile int maxLimit;
+    private int limit;
+    private int active = 0;
+    // Slots running ffmpeg: workers with a job (idle workers hold a slot while waiting on the queue)
+    // plus segment helpers borrowing idle slots.
+    private int encoding = 0;
+
+    private final long controlIntervalMs;
+    private final long minFreeMemoryMb;
+    private final double maxLoadPerCore;
+    private final IntSupplier queueDepth;
+
+    // jobId -> running ffmpeg; its speed is updated in place, so progress never touches the map
+    private final Map<Integer, RunningEncode> running = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile double lastThroughput = 0;
+    private volatile double lastLoadPerCore = 0;
+    private volatile long lastFreeMemoryMb = -1;
+    private volatile String lastDecision = "initial";
+    private int lastDirection = 0;
+    private double throughputBeforeChange = 0;
+    private int holdIntervals = 0;
+
+    public ConcurrencyController(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+
+        this.minLimit = Math.max(1, AppConfig.getInt("WORKER_MIN", 1));
+        this.maxLimit = Math.max(minLimit, AppConfig.getInt("WORKER_MAX", defaultMaxWorkers()));
+        this.limit = clamp(AppConfig.getInt("WORKER_INITIAL", 3));
+        this.controlIntervalMs = Math.max(1000, AppConfig.getLong("CONTROL_INTERVAL_MS", 30_000L));
+        this.minFreeMemoryMb = AppConfig.getLong("MIN_FREE_MEMORY_MB", 1024L);
+        this.maxLoadPerCore = AppConfig.getDouble("MAX_LOAD_PER_CORE", 1.5);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "concurrency-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjust, controlIntervalMs, controlIntervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("[Concurrency] Started (limit=" + limit + ", min=" + minLimit + ", max=" + maxLimit + ")");
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Block until an encode slot is free.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (active >= limit) {
+            wait();
+        }
+        active++;
+    }
+
+    public synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    public synchronized void encodeStarted() {
+        encoding++;
+    }
+
+    public synchronized void encodeFinished() {
+        encoding--;
+    }
+
+    /**
+     * Borrow a slot whose worker is idle, without blocking. Release with encodeFinished().
+     */
+    public synchronized boolean tryAcquireIdle() {
+        if (encoding >= limit) {
+            return false;
+        }
+        encoding++;
+        return true;
+    }
+
+    /**
+     * More ffmpeg runs than the limit: a worker took a new job while its slot was lent out.
+     */
+    public synchronized boolean isOverCommitted() {
+        return encoding > limit;
+    }
+
+    void jobRunning(RunningEncode encode) {
+        running.put(encode.getJobId(), encode);
+    }
+
+    public void jobFinished(int jobId) {
+        running.remove(jobId);
+    }
+
+    Collection<RunningEncode> getRunning() {
+        return running.values();
+    }
+
+    public synchronized void setLimits(int min, int max) {
+        minLimit = Math.max(1, min);
+        maxLimit = Math.max(minLimit, max);
+        setLimit(clamp(limit), "limits changed");
+    }
+
+    private void adjust() {
+        try {
+            double throughput = 0;
+            for (RunningEncode encode : running.values()) {
+                throughput += encode.getSpeed();
+            }
+            double loadPerCore = readLoadPerCore();
+            long freeMemoryMb = readFreeMemoryMb();
+            lastThroughput = throughput;
+            lastLoadPerCore = loadPerCore;
+            lastFreeMemoryMb = freeMemoryMb;
+
+            synchronized (this) {
+                if ((freeMemoryMb >= 0 && freeMemoryMb < minFreeMemoryMb)
+                        || (loadPerCore >= 0 && loadPerCore > maxLoadPerCore)) {
+                    backOff("overloaded (load/core=" + String.format("%.2f", loadPerCore)
+                            + ", freeMB=" + freeMemoryMb + ")");
+                    return;
+                }
+
+                if (holdIntervals > 0) {
+                    holdIntervals--;
+                    lastDecision = "holding";
+                    return;
+                }
+
+                if (lastDirection > 0) {
+                    // Judge the previous step up against the throughput measured before it.
+                    if (throughput < throughputBeforeChange * (1 + MIN_GAIN)) {
+                        backOff("no throughput gain (" + String.format("%.2f", throughputBeforeChange)
+                                + "x -> " + String.format("%.2f", throughput) + "x)");
+                        return;
+                    }
+                }
+
+                // Idle workers hold a slot while blocked on the queue, so count running encodes instead.
+                boolean saturated = encoding >= limit && queueDepth.getAsInt() > 0;
+                if (saturated && limit < maxLimit) {
+                    throughputBeforeChange = throughput;
+                    lastDirection = 1;
+                    setLimit(limit + 1, "queue backed up, throughput " + String.format("%.2f", throughput) + "x");
+                } else {
+                    lastDirection = 0;
+                    lastDecision = saturated ? "at max" : "steady";
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[Concurrency] Adjust error: " + e.getMessage());
+        }
+    }
+
+    private void backOff(String reason) {
+        lastDirection = -1;
+        holdIntervals = HOLD_INTERVALS_AFTER_BACKOFF;
+        if (limit > minLimit) {
+            setLimit(limit - 1, reason);
+        } else {
+            lastDecision = "at min: " + reason;
+        }
+    }
+
+    private void setLimit(int newLimit, String reason) {
+        if (newLimit != limit) {
+            System.out.println("[Concurrency] " + limit + " -> " + newLimit + ": " + reason);
+        }
+        limit = newLimit;
+        lastDecision = reason;
+        notifyAll();
+    }
+
+    /**
+     * WORKER_MAX when unset: half the cores, but never below the three fixed workers this replaced.
+     */
+    static int defaultMaxWorkers() {
+        return Math.max(3, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private int clamp(int value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    private static double readLoadPerCore() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        return load < 0 ? -1 : load / os.getAvailableProcessors();
+    }
+
+    /**
+     * MemAvailable from /proc/meminfo (counts reclaimable page cache); falls back to the JMX free figure.
+     */
+    @SuppressWarnings("deprecation") // getFreeMemorySize() needs Java 14; the target is 11
+    private static long readFreeMemoryMb() {
+        Path meminfo = Paths.get("/proc/meminfo");
+        if (Files.isReadable(meminfo)) {
+            try {
+                for (String line : Files.readAllLines(meminfo)) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / (1024 * 1024);
+        }
+        return -1;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getEncoding() {
+        return encoding;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public double getLastThroughput() {
+        return lastThroughput;
+    }
+
+    public double getLastLoadPerCore() {
+        return lastLoadPerCore;
+    }
+
+    public long getLastFreeMemoryMb() {
+        return lastFreeMemoryMb;
+    }
+
+    public String getLastDecision() {
+        return lastDecision;
+    }
+}
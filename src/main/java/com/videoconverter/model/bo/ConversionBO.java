@@ -1,17 +1,29 @@
 package com.videoconverter.model.bo;
 
 import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.bean.JobPage;
 import com.videoconverter.model.bean.Video;
 import com.videoconverter.model.dao.ConversionJobDAO;
 import com.videoconverter.model.dao.VideoDAO;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.ConversionMode;
+import com.videoconverter.util.EncodeStatsListener;
+import com.videoconverter.util.EncodingProfile;
+import com.videoconverter.util.EncodingProfiles;
 import com.videoconverter.util.FFmpegWrapper;
+import com.videoconverter.util.MediaInfo;
+import com.videoconverter.util.MetricsRegistry;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntConsumer;
 
 public class ConversionBO {
     private static volatile ConversionBO instance;
@@ -19,19 +31,78 @@ public class ConversionBO {
     private final VideoDAO videoDAO;
     private final ConversionJobDAO jobDAO;
     private final FFmpegWrapper ffmpegWrapper;
-    private final BlockingQueue<ConversionJob> jobQueue;
+    private final ProgressSink progressSink;
+    private final JobProgressRegistry progressRegistry;
+    private final StatsBO stats;
+    private final JobQueue jobQueue;
     private final ExecutorService executorService;
-
-    private static final int WORKER_COUNT = 3;
-    private static final int MAX_QUEUE_SIZE = 50;
+    private final ConcurrencyController concurrency;
+    private final LeaseManager leaseManager;
+    private final MediaMetadataCache metadataCache;
+    private final ConversionResultCache resultCache;
+    private final SegmentedEncoder segmentedEncoder;
+    // Lease owner for jobs attached to an in-flight duplicate; they have no worker of their own.
+    private final String followerWorkerId;
+
+    private static final int MAX_QUEUE_SIZE = AppConfig.getInt("MAX_QUEUE_SIZE", 50);
+    // "memory" (single node, default) or "database" (durable, shared by several app nodes)
+    private static final String QUEUE_MODE = AppConfig.getString("QUEUE_MODE", "memory");
+    // Per-user caps so one batch upload cannot starve everyone else.
+    private static final int USER_MAX_ACTIVE = AppConfig.getInt("USER_MAX_ACTIVE", 2);
+    private static final int USER_MAX_QUEUED = AppConfig.getInt("USER_MAX_QUEUED", 10);
+
+    private static final MetricsRegistry.Counter REJECTIONS = MetricsRegistry.getInstance().counter(
+            "videoconverter_queue_rejections_total", "Jobs turned away at submit, by reason", "reason");
+    private static final MetricsRegistry.Histogram QUEUE_WAIT = MetricsRegistry.getInstance().histogram(
+            "videoconverter_job_queue_wait_seconds", "Time from submit until a worker starts the job",
+            "format", MetricsRegistry.WAIT_BUCKETS);
+    private static final MetricsRegistry.Histogram ENCODE_TIME = MetricsRegistry.getInstance().histogram(
+            "videoconverter_job_encode_seconds", "Time a worker spent producing a completed job's output",
+            "format", MetricsRegistry.ENCODE_BUCKETS);
     private volatile boolean isRunning = false;
+    private int workerThreads = 0;
 
     private ConversionBO() {
         this.videoDAO = new VideoDAO();
         this.jobDAO = new ConversionJobDAO();
         this.ffmpegWrapper = new FFmpegWrapper();
-        this.jobQueue = new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
-        this.executorService = Executors.newFixedThreadPool(WORKER_COUNT);
+        this.progressSink = new ProgressSink(jobDAO);
+        this.progressRegistry = JobProgressRegistry.getInstance();
+        this.stats = StatsBO.getInstance();
+        this.metadataCache = MediaMetadataCache.getInstance();
+        this.leaseManager = new LeaseManager(jobDAO, this::requeue);
+        this.resultCache = new ConversionResultCache(jobDAO);
+        this.followerWorkerId = leaseManager.workerId("dedup");
+        this.jobQueue = "database".equalsIgnoreCase(QUEUE_MODE)
+                ? new DatabaseJobQueue(jobDAO, USER_MAX_ACTIVE, leaseManager.getLeaseSeconds())
+                : new InMemoryJobQueue(jobDAO, MAX_QUEUE_SIZE, USER_MAX_ACTIVE, leaseManager.getLeaseSeconds());
+        this.executorService = Executors.newCachedThreadPool();
+        this.concurrency = new ConcurrencyController(jobQueue::size);
+        this.segmentedEncoder = new SegmentedEncoder(ffmpegWrapper, concurrency, executorService);
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("videoconverter_queue_depth", "Jobs waiting for a worker", jobQueue::size);
+        metrics.gauge("videoconverter_worker_limit", "Encodes allowed at once", concurrency::getLimit);
+        metrics.gauge("videoconverter_workers_busy", "Encode slots running ffmpeg", concurrency::getEncoding);
+        metrics.gauge("videoconverter_workers_idle", "Encode slots allowed but not running ffmpeg",
+                () -> Math.max(0, concurrency.getLimit() - concurrency.getEncoding()));
+        metrics.gauges("videoconverter_ffmpeg_speed", "Encode speed of a running job (multiple of real time)",
+                samples -> {
+                    for (RunningEncode encode : concurrency.getRunning()) {
+                        samples.add(encode.getSpeed(), "job_id", Integer.toString(encode.getJobId()),
+                                "format", encode.getFormat());
+                    }
+                });
+        metrics.gauges("videoconverter_ffmpeg_fps", "Frames per second of a running job",
+                samples -> {
+                    for (RunningEncode encode : concurrency.getRunning()) {
+                        samples.add(encode.getFps(), "job_id", Integer.toString(encode.getJobId()),
+                                "format", encode.getFormat());
+                    }
+                });
     }
 
     public static ConversionBO getInstance() {
@@ -49,20 +120,62 @@ public class ConversionBO {
         if (isRunning) return;
 
         isRunning = true;
+        progressSink.start();
+
+        jobQueue.start();
+        leaseManager.start();
+
+        ensureWorkerThreads(concurrency.getMaxLimit());
+        concurrency.start();
+    }
 
-        List<ConversionJob> pendingJobs = jobDAO.getPendingJobs();
-        for (ConversionJob job : pendingJobs) {
-            jobQueue.offer(job);
+    // One thread per possible slot; the controller decides how many of them may encode at once.
+    private void ensureWorkerThreads(int count) {
+        while (workerThreads < count) {
+            executorService.submit(new ConversionWorker(workerThreads));
+            workerThreads++;
         }
+    }
 
-        for (int i = 0; i < WORKER_COUNT; i++) {
-            executorService.submit(new ConversionWorker());
+    public synchronized void setWorkerLimits(int min, int max) {
+        concurrency.setLimits(min, max);
+        if (isRunning) {
+            ensureWorkerThreads(concurrency.getMaxLimit());
         }
     }
 
+    public ConcurrencyController getConcurrency() {
+        return concurrency;
+    }
+
+    public int getQueueSize() {
+        return jobQueue.size();
+    }
+
+    public Map<Integer, Integer> getQueueDepthByUser() {
+        return jobQueue.getQueueDepthByUser();
+    }
+
+    public int getUserMaxActive() {
+        return USER_MAX_ACTIVE;
+    }
+
+    public int getUserMaxQueued() {
+        return USER_MAX_QUEUED;
+    }
+
+    /**
+     * Whether the user already has USER_MAX_QUEUED jobs waiting.
+     */
+    public boolean isUserQueueFull(int userId) {
+        return jobQueue.queuedFor(userId) >= USER_MAX_QUEUED;
+    }
+
     public synchronized void stopWorkers() {
         isRunning = false;
-        jobQueue.clear();
+        jobQueue.stop();
+        leaseManager.stop();
+        concurrency.stop();
 
         executorService.shutdown();
         try {
@@ -73,36 +186,123 @@ public class ConversionBO {
             executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        progressSink.stop();
     }
 
+    /**
+     * @param contentHash SHA-256 of the uploaded file, or null if unknown (disables result reuse)
+     */
     public ConversionJob submitJob(int userId, String videoFilename, String filePath,
-                                    long fileSize, String outputFormat) {
+                                    long fileSize, String outputFormat, String contentHash) {
+        List<ConversionJob> jobs = submitJobs(userId, videoFilename, filePath, fileSize,
+                Collections.singletonList(outputFormat), ConversionJob.DEFAULT_PROFILE, contentHash);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * One upload converted to several formats: one video row, one job per format. A worker that
+     * picks up any of them claims the others and, where possible, writes all outputs from a single
+     * ffmpeg run. Returns the jobs that were accepted (empty if none).
+     *
+     * @param profile encoding profile name, see {@link EncodingProfiles}
+     */
+    public List<ConversionJob> submitJobs(int userId, String videoFilename, String filePath, long fileSize,
+                                          List<String> outputFormats, String profile, String contentHash) {
+        List<ConversionJob> jobs = new ArrayList<>();
+        if (outputFormats.isEmpty()) {
+            return jobs;
+        }
+        if (isUserQueueFull(userId)) {
+            REJECTIONS.inc("user_limit");
+            return jobs;
+        }
+
         Video video = new Video(userId, videoFilename, filePath, fileSize);
+        video.setContentHash(contentHash);
         if (!videoDAO.createVideo(video)) {
-            return null;
+            return jobs;
         }
-
-        ConversionJob job = new ConversionJob(video.getVideoId(), userId, outputFormat);
-        if (!jobDAO.createJob(job)) {
-            return null;
+        stats.videoUploaded(userId, fileSize);
+
+        // Create every row before queueing any, so whichever job a worker takes sees all its siblings.
+        for (String outputFormat : outputFormats) {
+            ConversionJob job = new ConversionJob(video.getVideoId(), userId, outputFormat);
+            job.setProfile(profile);
+            if (!jobDAO.createJob(job)) {
+                continue;
+            }
+            ConversionJob createdJob = jobDAO.getJobById(job.getJobId());
+            if (createdJob != null) {
+                progressRegistry.jobCreated(createdJob.getJobId(), userId);
+                jobs.add(createdJob);
+            }
         }
 
-        ConversionJob createdJob = jobDAO.getJobById(job.getJobId());
-        if (createdJob == null) {
-            return null;
-        }
+        boolean probed = false;
+        Iterator<ConversionJob> it = jobs.iterator();
+        while (it.hasNext()) {
+            ConversionJob createdJob = it.next();
+            String outputFormat = createdJob.getOutputFormat();
 
-        boolean added = jobQueue.offer(createdJob);
-        if (!added) {
-            jobDAO.failJob(job.getJobId(), "Queue is full");
-            return null;
+            // Same input, format and profile converted before: reuse that output.
+            ConversionJob cached = resultCache.findCompleted(contentHash, outputFormat, createdJob.getProfile());
+            if (cached != null && completeFromCache(createdJob, cached.getOutputPath(), null)) {
+                continue;
+            }
+
+            // Same conversion running here right now: follow it instead of encoding again. The job is
+            // claimed before it is attached, so the leader can always complete it.
+            String key = ConversionResultCache.key(contentHash, outputFormat, createdJob.getProfile());
+            if (key != null && resultCache.hasLeader(key)
+                    && jobDAO.startJob(createdJob.getJobId(), followerWorkerId, leaseManager.getLeaseSeconds())) {
+                leaseManager.hold(createdJob.getJobId(), followerWorkerId);
+                int leaderId = resultCache.attach(key, createdJob);
+                if (leaderId != 0) {
+                    progressRegistry.jobStarted(createdJob.getJobId(), userId);
+                    System.out.println("[ConversionBO] Job " + createdJob.getJobId() + " follows job " + leaderId);
+                    continue;
+                }
+                // The leader finished in between: queue this one normally.
+                leaseManager.release(createdJob.getJobId());
+                jobDAO.releaseJob(createdJob.getJobId(), followerWorkerId);
+            }
+
+            // Probe at ingest so duration/codecs are known before the job is scheduled.
+            if (!probed) {
+                metadataCache.probe(video);
+                probed = true;
+            }
+
+            createdJob.setQueuedAt(System.currentTimeMillis());
+            boolean added = jobQueue.offer(createdJob);
+            if (!added) {
+                REJECTIONS.inc("queue_full");
+                jobDAO.failJob(createdJob.getJobId(), "Queue is full");
+                progressRegistry.jobFailed(createdJob.getJobId(), "Queue is full");
+                it.remove();
+            }
         }
 
-        return createdJob;
+        return jobs;
     }
 
-    public List<ConversionJob> getUserJobs(int userId) {
-        return jobDAO.getJobsByUserId(userId);
+    /**
+     * Finished jobs older than the cursor (null for the newest page), pageSize at most.
+     */
+    public JobPage getUserJobs(int userId, String cursor, int pageSize) {
+        long[] after = JobPage.parseCursor(cursor);
+        // One extra row tells whether another page exists.
+        List<ConversionJob> jobs = jobDAO.getJobsByUserId(userId, JobPage.cursorTime(after),
+                after == null ? 0 : (int) after[1], pageSize + 1);
+        if (jobs.size() <= pageSize) {
+            return new JobPage(jobs, null);
+        }
+        jobs = new ArrayList<>(jobs.subList(0, pageSize));
+        return new JobPage(jobs, JobPage.cursorOf(jobs.get(pageSize - 1)));
+    }
+
+    public List<ConversionJob> getActiveUserJobs(int userId) {
+        return jobDAO.getActiveJobsByUserId(userId);
     }
 
     public boolean deleteJob(int jobId, int userId) {
@@ -111,24 +311,163 @@ public class ConversionBO {
             return false;
         }
 
-        if (job.getOutputPath() != null) {
+        // Outputs can be shared with other jobs through the result cache; delete only the last reference.
+        if (job.getOutputPath() != null && jobDAO.countJobsByOutputPath(job.getOutputPath()) <= 1) {
             File file = new File(job.getOutputPath());
-            if (file.exists()) {
+            if (FFmpegWrapper.HLS_FORMAT.equalsIgnoreCase(job.getOutputFormat())) {
+                // Playlist plus its segments
+                File[] segments = file.getParentFile().listFiles();
+                if (segments != null) {
+                    for (File segment : segments) {
+                        segment.delete();
+                    }
+                }
+                file.getParentFile().delete();
+            } else if (file.exists()) {
                 file.delete();
             }
         }
 
-        return jobDAO.deleteJob(jobId);
+        progressRegistry.jobRemoved(jobId);
+        if (!jobDAO.deleteJob(jobId)) {
+            return false;
+        }
+        // A deleted leader hands its followers back to the queue instead of leaving them waiting on
+        // an encode that can no longer complete; a deleted follower just stops waiting.
+        releaseFollowers(resultCache.abandon(jobId));
+        if (followerWorkerId.equals(job.getWorkerId())) {
+            leaseManager.release(jobId);
+        }
+        // Last job of the upload gone: nothing will look at its metadata again.
+        if (jobDAO.countJobsByVideoId(job.getVideoId()) == 0) {
+            metadataCache.evict(job.getVideoId());
+        }
+        if ("COMPLETED".equals(job.getStatus())) {
+            stats.jobDeleted(userId, job.getConversionMode(), job.getOutputSize(), job.getEncodeSeconds());
+        }
+        return true;
+    }
+
+    // Terminal writes bypass the progress buffer; pending progress for the job is dropped first.
+    // They only succeed while the worker still owns the job's lease.
+    private void completeJob(ConversionJob job, File output, ConversionMode mode, String workerId,
+                             double encodeSeconds) {
+        int jobId = job.getJobId();
+        long outputBytes = outputBytes(job.getOutputFormat(), output);
+        progressSink.finish(jobId);
+        if (jobDAO.completeJob(jobId, output.getAbsolutePath(), mode.name(), workerId, outputBytes, encodeSeconds)) {
+            progressRegistry.jobCompleted(jobId);
+            stats.jobCompleted(job.getUserId(), mode.name(), outputBytes, encodeSeconds);
+        }
+    }
+
+    // An HLS output is its playlist plus the segments next to it.
+    private static long outputBytes(String outputFormat, File output) {
+        if (!FFmpegWrapper.HLS_FORMAT.equalsIgnoreCase(outputFormat)) {
+            return output.length();
+        }
+        long total = 0;
+        File[] files = output.getParentFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private void failJob(int jobId, String errorMessage, String workerId) {
+        progressSink.finish(jobId);
+        if (jobDAO.failJob(jobId, errorMessage, workerId)) {
+            progressRegistry.jobFailed(jobId, errorMessage);
+        }
+    }
+
+    /**
+     * Complete a job with an existing output. workerId is the job's lease owner, or null if the job
+     * is still PENDING (it is claimed first).
+     */
+    private boolean completeFromCache(ConversionJob job, String outputPath, String workerId) {
+        if (workerId == null) {
+            workerId = followerWorkerId;
+            if (!jobDAO.startJob(job.getJobId(), workerId, leaseManager.getLeaseSeconds())) {
+                return false;
+            }
+        }
+        long outputBytes = outputBytes(job.getOutputFormat(), new File(outputPath));
+        progressSink.finish(job.getJobId());
+        if (jobDAO.completeJob(job.getJobId(), outputPath, ConversionMode.CACHED.name(), workerId, outputBytes, 0)) {
+            progressRegistry.jobCompleted(job.getJobId());
+            stats.jobCompleted(job.getUserId(), ConversionMode.CACHED.name(), outputBytes, 0);
+            return true;
+        }
+        return false;
+    }
+
+    private void completeFollowers(List<ConversionJob> attached, String outputPath) {
+        for (ConversionJob follower : attached) {
+            completeFromCache(follower, outputPath, followerWorkerId);
+            leaseManager.release(follower.getJobId());
+        }
+    }
+
+    // The leader failed: followers go back to the queue, where one of them will encode.
+    private void releaseFollowers(List<ConversionJob> attached) {
+        for (ConversionJob follower : attached) {
+            leaseManager.release(follower.getJobId());
+            if (jobDAO.releaseJob(follower.getJobId(), followerWorkerId)) {
+                requeue(follower);
+            }
+        }
+    }
+
+    // Called by the lease reaper for jobs whose worker died.
+    private void requeue(ConversionJob job) {
+        progressRegistry.jobCreated(job.getJobId(), job.getUserId());
+        if (!jobQueue.offer(job)) {
+            System.err.println("[ConversionBO] Queue full; job " + job.getJobId() + " stays PENDING");
+        }
     }
 
 
+    /**
+     * One job handled by a worker run, with where its output goes and how it was produced.
+     */
+    private static final class Target {
+        final ConversionJob job;
+        String cacheKey;
+        File outputFile;
+        ConversionMode mode;
+        String outputPath;
+
+        Target(ConversionJob job) {
+            this.job = job;
+        }
+    }
+
     private class ConversionWorker implements Runnable {
+        private final String workerId;
+
+        ConversionWorker(int index) {
+            this.workerId = leaseManager.workerId("worker-" + index);
+        }
+
         @Override
         public void run() {
             while (isRunning) {
                 try {
-                    ConversionJob job = jobQueue.take();
-                    processJob(job);
+                    concurrency.acquire();
+                    try {
+                        ConversionJob job = jobQueue.take(workerId);
+                        concurrency.encodeStarted();
+                        try {
+                            processJob(job);
+                        } finally {
+                            concurrency.encodeFinished();
+                        }
+                    } finally {
+                        concurrency.release();
+                    }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
@@ -139,55 +478,233 @@ public class ConversionBO {
         }
 
         private void processJob(ConversionJob job) {
+            leaseManager.hold(job.getJobId(), workerId);
+            List<Target> targets = new ArrayList<>();
+            targets.add(new Target(job));
             try {
-                jobDAO.updateJobStatus(job.getJobId(), "PROCESSING", 0);
+                progressSink.begin(job.getJobId());
+                progressRegistry.jobStarted(job.getJobId(), job.getUserId());
+                observeQueueWait(job);
 
                 Video video = videoDAO.getVideoById(job.getVideoId());
                 if (video == null) {
-                    jobDAO.failJob(job.getJobId(), "Video not found");
+                    failJob(job.getJobId(), "Video not found", workerId);
                     return;
                 }
 
                 File inputFile = new File(video.getFilePath());
                 if (!inputFile.exists()) {
-                    jobDAO.failJob(job.getJobId(), "Video file not found");
+                    failJob(job.getJobId(), "Video file not found", workerId);
                     return;
                 }
 
-                String outputFilename = getOutputFilename(video.getFilename(), job.getOutputFormat());
+                // Other formats requested with the same upload run here too, so the input is decoded once.
+                // Only formats one ffmpeg run can share are claimed; the rest stay PENDING for other workers.
+                MediaInfo mediaInfo = metadataCache.get(video);
+                if (ffmpegWrapper.canShareDecode(mediaInfo, Collections.singletonList(job.getOutputFormat()))) {
+                    for (ConversionJob sibling : jobDAO.getPendingSiblingJobs(job.getVideoId(), job.getJobId(),
+                            job.getProfile())) {
+                        if (!ffmpegWrapper.canShareDecode(mediaInfo, Collections.singletonList(sibling.getOutputFormat()))
+                                || !jobDAO.startJob(sibling.getJobId(), workerId, leaseManager.getLeaseSeconds())) {
+                            // Another worker may claim a sibling first; it then simply runs separately.
+                            continue;
+                        }
+                        sibling.setStatus("PROCESSING");
+                        leaseManager.hold(sibling.getJobId(), workerId);
+                        progressSink.begin(sibling.getJobId());
+                        progressRegistry.jobStarted(sibling.getJobId(), sibling.getUserId());
+                        observeQueueWait(sibling);
+                        targets.add(new Target(sibling));
+                    }
+                }
+
                 String outputDir = inputFile.getParent() + File.separator + "converted";
                 File outputDirFile = new File(outputDir);
                 if (!outputDirFile.exists()) {
                     boolean created = outputDirFile.mkdirs();
                     if (!created) {
-                        jobDAO.failJob(job.getJobId(), "Cannot create output directory");
+                        for (Target target : targets) {
+                            failJob(target.job.getJobId(), "Cannot create output directory", workerId);
+                        }
                         return;
                     }
                 }
-                File outputFile = new File(outputDir, outputFilename);
 
-                boolean success = ffmpegWrapper.convertVideo(
-                    inputFile.getAbsolutePath(),
-                    outputFile.getAbsolutePath(),
-                    job.getOutputFormat(),
-                    progress -> jobDAO.updateJobStatus(job.getJobId(), "PROCESSING", progress)
-                );
+                List<Target> toEncode = new ArrayList<>();
+                for (Target target : targets) {
+                    ConversionJob cached = resultCache.findCompleted(
+                            video.getContentHash(), target.job.getOutputFormat(), target.job.getProfile());
+                    if (cached != null && completeFromCache(target.job, cached.getOutputPath(), workerId)) {
+                        continue;
+                    }
+                    target.cacheKey = ConversionResultCache.key(
+                            video.getContentHash(), target.job.getOutputFormat(), target.job.getProfile());
+                    if (target.cacheKey != null && !resultCache.lead(target.cacheKey, target.job.getJobId())) {
+                        // Another local job already encodes this input; run anyway rather than hold a slot idle.
+                        target.cacheKey = null;
+                    }
 
-                if (success && outputFile.exists()) {
-                    jobDAO.completeJob(job.getJobId(), outputFile.getAbsolutePath());
-                } else {
-                    jobDAO.failJob(job.getJobId(), "Conversion failed");
+                    String outputFilename = getOutputFilename(
+                            target.job.getJobId(), video.getFilename(), target.job.getOutputFormat());
+                    target.outputFile = new File(outputDir, outputFilename);
+                    if (FFmpegWrapper.HLS_FORMAT.equalsIgnoreCase(target.job.getOutputFormat())) {
+                        // One directory per job; publish the playlist path now so playback can start early.
+                        target.outputFile = new File(new File(outputDir, outputFilename), FFmpegWrapper.HLS_PLAYLIST);
+                        jobDAO.setOutputPath(target.job.getJobId(), target.outputFile.getAbsolutePath(), workerId);
+                    }
+                    toEncode.add(target);
+                }
+                if (toEncode.isEmpty()) {
+                    return;
+                }
+
+                // Siblings are claimed only with the same profile, so one profile covers every target.
+                EncodingProfile profile = EncodingProfiles.getInstance().getOrDefault(job.getProfile());
+                RunningEncode onStats = new RunningEncode(job.getJobId(), job.getOutputFormat());
+                concurrency.jobRunning(onStats);
+                long encodeStart = System.nanoTime();
+
+                if (toEncode.size() > 1 && ffmpegWrapper.canShareDecode(mediaInfo, formatsOf(toEncode))) {
+                    List<String> outputPaths = new ArrayList<>();
+                    for (Target target : toEncode) {
+                        outputPaths.add(target.outputFile.getAbsolutePath());
+                    }
+                    ConversionMode[] modes = ffmpegWrapper.convertMulti(inputFile.getAbsolutePath(), outputPaths,
+                            formatsOf(toEncode), mediaInfo, profile, progressFor(toEncode), onStats);
+                    if (modes != null) {
+                        for (int i = 0; i < modes.length; i++) {
+                            toEncode.get(i).mode = modes[i];
+                        }
+                    } else {
+                        // Encoding the siblings one after another here would hold them for several full
+                        // runs; hand them back so idle workers pick them up.
+                        System.err.println("[ConversionBO] Shared decode failed for job " + job.getJobId()
+                                + ", returning " + (toEncode.size() - 1) + " other format(s) to the queue");
+                        for (Target target : toEncode.subList(1, toEncode.size())) {
+                            release(target);
+                        }
+                        toEncode = toEncode.subList(0, 1);
+                    }
+                }
+
+                for (Target target : toEncode) {
+                    // Outputs of a shared run all took the whole run; separate runs are timed one by one.
+                    long targetStart = encodeStart;
+                    if (target.mode == null) {
+                        targetStart = System.nanoTime();
+                        target.mode = encode(target, inputFile, mediaInfo, profile, onStats);
+                    }
+                    if (target.mode != null && target.outputFile.exists()) {
+                        double seconds = (System.nanoTime() - targetStart) / 1e9;
+                        ENCODE_TIME.observe(target.job.getOutputFormat(), seconds);
+                        completeJob(target.job, target.outputFile, target.mode, workerId, seconds);
+                        target.outputPath = target.outputFile.getAbsolutePath();
+                    } else {
+                        failJob(target.job.getJobId(), "Conversion failed", workerId);
+                    }
                 }
 
             } catch (Exception e) {
-                jobDAO.failJob(job.getJobId(), e.getMessage());
+                // Only jobs still leased to this worker are affected; completed ones are left alone.
+                for (Target target : targets) {
+                    failJob(target.job.getJobId(), e.getMessage(), workerId);
+                }
+            } finally {
+                for (Target target : targets) {
+                    List<ConversionJob> attached = resultCache.finish(target.cacheKey, target.job.getJobId());
+                    if (target.outputPath != null) {
+                        completeFollowers(attached, target.outputPath);
+                    } else {
+                        releaseFollowers(attached);
+                    }
+                    leaseManager.release(target.job.getJobId());
+                }
+                concurrency.jobFinished(job.getJobId());
+                jobQueue.jobFinished(job);
+            }
+        }
+
+        // Back to PENDING for another worker; its followers are released with it.
+        private void release(Target target) {
+            int jobId = target.job.getJobId();
+            progressSink.finish(jobId);
+            releaseFollowers(resultCache.finish(target.cacheKey, jobId));
+            target.cacheKey = null;
+            leaseManager.release(jobId);
+            if (jobDAO.releaseJob(jobId, workerId)) {
+                requeue(target.job);
+            }
+        }
+
+        // Queued in this JVM: since the offer; loaded from the database: since the row was created.
+        private void observeQueueWait(ConversionJob job) {
+            long since = job.getQueuedAt();
+            if (since == 0 && job.getCreatedAt() != null) {
+                since = job.getCreatedAt().getTime();
+            }
+            if (since > 0) {
+                QUEUE_WAIT.observe(job.getOutputFormat(), Math.max(0, System.currentTimeMillis() - since) / 1000.0);
+            }
+        }
+
+        // One output on its own: parallel segments for long CPU encodes, otherwise a single ffmpeg run.
+        private ConversionMode encode(Target target, File inputFile, MediaInfo mediaInfo, EncodingProfile profile,
+                                      EncodeStatsListener onStats) {
+            List<Target> only = Collections.singletonList(target);
+            String format = target.job.getOutputFormat();
+            if (segmentedEncoder.shouldSplit(mediaInfo, format)) {
+                if (segmentedEncoder.encode(inputFile.getAbsolutePath(), target.outputFile.getAbsolutePath(),
+                        format, mediaInfo, profile, progressFor(only), onStats)) {
+                    return ConversionMode.CPU_SEGMENTED;
+                }
+                System.err.println("[ConversionBO] Segmented encode failed for job " + target.job.getJobId()
+                        + ", retrying as a single run");
+            }
+            return ffmpegWrapper.convert(
+                inputFile.getAbsolutePath(),
+                target.outputFile.getAbsolutePath(),
+                format,
+                mediaInfo,
+                profile,
+                progressFor(only),
+                onStats
+            );
+        }
+
+        // Progress of one ffmpeg run, reported to every job it produces output for and their followers.
+        private IntConsumer progressFor(List<Target> targets) {
+            return progress -> {
+                for (Target target : targets) {
+                    if (leaseManager.isLost(target.job.getJobId())) {
+                        // Another worker owns the job now; abort this ffmpeg run.
+                        throw new CancellationException("Lease lost");
+                    }
+                }
+                for (Target target : targets) {
+                    int jobId = target.job.getJobId();
+                    progressSink.update(jobId, progress);
+                    progressRegistry.jobProgress(jobId, progress);
+                    for (ConversionJob follower : resultCache.getFollowers(jobId)) {
+                        progressRegistry.jobProgress(follower.getJobId(), progress);
+                    }
+                }
+            };
+        }
+
+        private List<String> formatsOf(List<Target> targets) {
+            List<String> formats = new ArrayList<>();
+            for (Target target : targets) {
+                formats.add(target.job.getOutputFormat());
             }
+            return formats;
         }
 
-        private String getOutputFilename(String originalFilename, String format) {
+        // Prefixed with the job id: outputs are shared through the result cache, so two uploads with the
+        // same name must never overwrite each other's result.
+        private String getOutputFilename(int jobId, String originalFilename, String format) {
             int dotIndex = originalFilename.lastIndexOf('.');
             String baseName = dotIndex > 0 ? originalFilename.substring(0, dotIndex) : originalFilename;
-            return baseName + "_converted." + format;
+            return jobId + "_" + baseName + "_converted." + format;
         }
     }
 }
@@ -0,0 +1,117 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ConversionResultCache - Reuses outputs for identical (content hash, format, profile) requests.
+ *
+ * Finished results are looked up in conversion_jobs (the index is videos.content_hash). Requests
+ * that match a job a worker on this node is converting right now are attached to it as followers
+ * and completed with its output when it finishes, so the same input is never encoded twice at once.
+ * Only running jobs lead: a PENDING job may be deleted, or taken by another node in database queue
+ * mode, and its followers would then wait forever.
+ */
+public class ConversionResultCache {
+    private final ConversionJobDAO jobDAO;
+
+    // Written under this. key -> leader job id, leader job id -> followers. Followers are read
+    // without the lock on every progress tick.
+    private final Map<String, Integer> leaders = new HashMap<>();
+    private final Map<Integer, List<ConversionJob>> followers = new ConcurrentHashMap<>();
+
+    public ConversionResultCache(ConversionJobDAO jobDAO) {
+        this.jobDAO = jobDAO;
+    }
+
+    /**
+     * Cache key, or null if the input was not hashed.
+     */
+    public static String key(String contentHash, String outputFormat, String profile) {
+        if (contentHash == null) return null;
+        return contentHash + ":" + outputFormat.toLowerCase() + ":" + profile;
+    }
+
+    /**
+     * A completed job whose output can be reused, or null. Outputs deleted from disk are skipped.
+     */
+    public ConversionJob findCompleted(String contentHash, String outputFormat, String profile) {
+        if (contentHash == null) return null;
+
+        for (ConversionJob job : jobDAO.findCompletedByContent(contentHash, outputFormat, profile)) {
+            if (new File(job.getOutputPath()).isFile()) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    public synchronized boolean hasLeader(String key) {
+        return leaders.containsKey(key);
+    }
+
+    /**
+     * Attach the job to the running job with the same key. Returns the leader's job id, or 0 if no
+     * job with that key is running here (the caller queues the job normally).
+     */
+    public synchronized int attach(String key, ConversionJob job) {
+        Integer leader = leaders.get(key);
+        if (leader == null || leader == job.getJobId()) {
+            return 0;
+        }
+        followers.computeIfAbsent(leader, k -> new CopyOnWriteArrayList<>()).add(job);
+        return leader;
+    }
+
+    /**
+     * Become the leader for key if no other job holds it. Called by the worker that runs the job.
+     */
+    public synchronized boolean lead(String key, int jobId) {
+        Integer leader = leaders.putIfAbsent(key, jobId);
+        return leader == null || leader == jobId;
+    }
+
+    /**
+     * The leader finished (either way): stop accepting followers and hand back the ones attached.
+     */
+    public synchronized List<ConversionJob> finish(String key, int jobId) {
+        if (key != null) {
+            leaders.remove(key, jobId);
+        }
+        List<ConversionJob> attached = followers.remove(jobId);
+        return attached != null ? new ArrayList<>(attached) : Collections.emptyList();
+    }
+
+    /**
+     * The job was deleted: if it led, stop accepting followers and hand back the attached ones;
+     * if it followed, detach it. Returns the former followers.
+     */
+    public synchronized List<ConversionJob> abandon(int jobId) {
+        leaders.values().remove(jobId);
+        for (List<ConversionJob> attached : followers.values()) {
+            attached.removeIf(follower -> follower.getJobId() == jobId);
+        }
+        List<ConversionJob> attached = followers.remove(jobId);
+        return attached != null ? new ArrayList<>(attached) : Collections.emptyList();
+    }
+
+    /**
+     * Followers of a running job; a live view, safe to iterate without copying.
+     */
+    public List<ConversionJob> getFollowers(int leaderJobId) {
+        if (followers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ConversionJob> attached = followers.get(leaderJobId);
+        return attached != null ? attached : Collections.emptyList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.AppConfig;
+
+import java.util.Map;
+
+/**
+ * DatabaseJobQueue - Uses the conversion_jobs table itself as the queue.
+ *
+ * Workers on any number of nodes claim a PENDING row atomically (see
+ * {@link ConversionJobDAO#claimNextPendingJob}), so nothing is lost on restart and no job is
+ * processed twice. The claim prefers users with the fewest running jobs and skips users at
+ * maxActivePerUser; the cap is best-effort when several nodes claim for the same user at once.
+ * Idle workers poll with exponential backoff; a submission on this node wakes them immediately,
+ * submissions on other nodes are seen on the next poll.
+ */
+public class DatabaseJobQueue implements JobQueue {
+    private final ConversionJobDAO jobDAO;
+    private final long minPollMs;
+    private final long maxPollMs;
+    private final int leaseSeconds;
+    private final int maxActivePerUser;
+    private final Object wakeup = new Object();
+    private long wakeups = 0;
+    private volatile boolean running = false;
+
+    public DatabaseJobQueue(ConversionJobDAO jobDAO, int maxActivePerUser, int leaseSeconds) {
+        this.jobDAO = jobDAO;
+        this.leaseSeconds = leaseSeconds;
+        this.maxActivePerUser = Math.max(1, maxActivePerUser);
+        this.minPollMs = Math.max(10, AppConfig.getLong("QUEUE_POLL_MIN_MS", 250L));
+        this.maxPollMs = Math.max(minPollMs, AppConfig.getLong("QUEUE_POLL_MAX_MS", 5000L));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        synchronized (wakeup) {
+            wakeups++;
+            wakeup.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean offer(ConversionJob job) {
+        // The row is already PENDING in the database; just wake a local idle worker.
+        signal();
+        return true;
+    }
+
+    @Override
+    public ConversionJob take(String workerId) throws InterruptedException {
+        long pollMs = minPollMs;
+        while (running) {
+            long seen;
+            synchronized (wakeup) {
+                seen = wakeups;
+            }
+
+            ConversionJob job = jobDAO.claimNextPendingJob(workerId, leaseSeconds, maxActivePerUser);
+            if (job != null) {
+                return job;
+            }
+
+            synchronized (wakeup) {
+                if (wakeups == seen && running) {
+                    wakeup.wait(pollMs);
+                }
+                if (wakeups != seen) {
+                    pollMs = minPollMs;
+                    continue;
+                }
+            }
+            pollMs = Math.min(maxPollMs, pollMs * 2);
+        }
+        throw new InterruptedException("Queue stopped");
+    }
+
+    @Override
+    public void jobFinished(ConversionJob job) {
+        // The user may have been at their cap; let an idle worker look again.
+        signal();
+    }
+
+    @Override
+    public int size() {
+        return jobDAO.countPendingJobs();
+    }
+
+    @Override
+    public int queuedFor(int userId) {
+        return jobDAO.countPendingJobsByUser(userId);
+    }
+
+    @Override
+    public Map<Integer, Integer> getQueueDepthByUser() {
+        return jobDAO.getPendingCountByUser();
+    }
+
+    private void signal() {
+        synchronized (wakeup) {
+            wakeups++;
+            wakeup.notify();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.MediaInfo;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * InMemoryJobQueue - Bounded in-process queue with one FIFO per user; single node only.
+ *
+ * Users are served by fair queuing on encode cost: each user has a virtual time that advances by
+ * the estimated work of every job dispatched for them (see {@link MediaInfo#estimateWorkUnits()}),
+ * and the next job always comes from the eligible user with the lowest virtual time. A user who
+ * queues a batch therefore gets the same share of workers as one who queues a single file, and
+ * no user runs more than maxActivePerUser encodes at once.
+ */
+public class InMemoryJobQueue implements JobQueue {
+    // Cost charged when a job's media metadata is unknown (roughly one minute of 1080p30).
+    private static final double DEFAULT_COST = 60;
+
+    private final ConversionJobDAO jobDAO;
+    private final MediaMetadataCache metadataCache;
+    private final int capacity;
+    private final int maxActivePerUser;
+    private final int leaseSeconds;
+
+    // Guarded by this.
+    private final Map<Integer, UserQueue> users = new LinkedHashMap<>();
+    private double virtualClock = 0;
+    private int size = 0;
+    private boolean running = false;
+
+    public InMemoryJobQueue(ConversionJobDAO jobDAO, int capacity, int maxActivePerUser, int leaseSeconds) {
+        this.jobDAO = jobDAO;
+        this.metadataCache = MediaMetadataCache.getInstance();
+        this.capacity = capacity;
+        this.maxActivePerUser = Math.max(1, maxActivePerUser);
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    @Override
+    public void start() {
+        synchronized (this) {
+            running = true;
+        }
+        List<ConversionJob> pendingJobs = jobDAO.getPendingJobs();
+        int skipped = 0;
+        for (ConversionJob job : pendingJobs) {
+            if (!offer(job)) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("[JobQueue] Queue full at startup; " + skipped
+                    + " pending job(s) stay PENDING until the next restart (use QUEUE_MODE=database)");
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        users.clear();
+        size = 0;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean offer(ConversionJob job) {
+        if (size >= capacity) {
+            return false;
+        }
+        UserQueue queue = users.get(job.getUserId());
+        if (queue == null) {
+            queue = new UserQueue();
+            users.put(job.getUserId(), queue);
+        }
+        if (queue.isIdle()) {
+            // A returning user starts at the current clock; idle time is not banked as credit.
+            queue.virtualTime = Math.max(queue.virtualTime, virtualClock);
+        }
+        queue.jobs.addLast(job);
+        size++;
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public ConversionJob take(String workerId) throws InterruptedException {
+        while (true) {
+            ConversionJob job;
+            synchronized (this) {
+                while ((job = pollNext()) == null) {
+                    if (!running) {
+                        throw new InterruptedException("Queue stopped");
+                    }
+                    wait();
+                }
+            }
+            // Skip entries that were deleted or already picked up since they were queued.
+            if (jobDAO.startJob(job.getJobId(), workerId, leaseSeconds)) {
+                return job;
+            }
+            jobFinished(job);
+        }
+    }
+
+    @Override
+    public synchronized void jobFinished(ConversionJob job) {
+        UserQueue queue = users.get(job.getUserId());
+        if (queue == null) return;
+
+        queue.active = Math.max(0, queue.active - 1);
+        if (queue.isIdle()) {
+            users.remove(job.getUserId());
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int queuedFor(int userId) {
+        UserQueue queue = users.get(userId);
+        return queue == null ? 0 : queue.jobs.size();
+    }
+
+    @Override
+    public synchronized Map<Integer, Integer> getQueueDepthByUser() {
+        Map<Integer, Integer> depths = new HashMap<>();
+        for (Map.Entry<Integer, UserQueue> entry : users.entrySet()) {
+            if (!entry.getValue().jobs.isEmpty()) {
+                depths.put(entry.getKey(), entry.getValue().jobs.size());
+            }
+        }
+        return depths;
+    }
+
+    // Caller holds the lock.
+    private ConversionJob pollNext() {
+        UserQueue next = null;
+        for (UserQueue queue : users.values()) {
+            if (!queue.jobs.isEmpty() && queue.active < maxActivePerUser
+                    && (next == null || queue.virtualTime < next.virtualTime)) {
+                next = queue;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+
+        ConversionJob job = next.jobs.pollFirst();
+        size--;
+        next.active++;
+        virtualClock = next.virtualTime;
+        next.virtualTime += cost(job);
+        return job;
+    }
+
+    private double cost(ConversionJob job) {
+        MediaInfo info = metadataCache.getCached(job.getVideoId());
+        double units = info != null ? info.estimateWorkUnits() : 0;
+        return units > 0 ? units : DEFAULT_COST;
+    }
+
+    private static final class UserQueue {
+        final Deque<ConversionJob> jobs = new ArrayDeque<>();
+        int active = 0;
+        double virtualTime = 0;
+
+        boolean isIdle() {
+            return jobs.isEmpty() && active == 0;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.AppConfig;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JobProgressRegistry - In-memory view of live jobs, pushed to status page subscribers.
+ *
+ * ConversionBO publishes status and progress changes here; subscribers (one per open status page)
+ * receive only the changes for their own user. Events are handed to subscribers on a single
+ * dispatcher thread; {@link Listener#send} must not block (the SSE listener only queues).
+ *
+ * Jobs run by another node (QUEUE_MODE=database) never reach this JVM's ConversionBO, so for users
+ * with an open status page their active jobs are polled from the database every
+ * STATUS_POLL_SECONDS, and changes to jobs not running here are published like local ones.
+ */
+public class JobProgressRegistry {
+    private static volatile JobProgressRegistry instance;
+
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final long FINISHED_RETENTION_MS = 10 * 60 * 1000L;
+
+    private final Map<Integer, JobState> jobs = new ConcurrentHashMap<>();
+    private final Map<Integer, List<Listener>> listenersByUser = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService dispatcher;
+    private final ScheduledExecutorService poller;
+    // userId -> jobs seen active in the database but not running here, until they finish
+    private final Map<Integer, Set<Integer>> remoteJobs = new ConcurrentHashMap<>();
+    private final ConversionJobDAO jobDAO = new ConversionJobDAO();
+
+    /**
+     * Receives job events for one user. Returning false unsubscribes the listener.
+     * Called on the dispatcher thread; implementations must not block.
+     *
+     * @param jobId the job the event is about, or 0 for a heartbeat
+     */
+    public interface Listener {
+        boolean send(String event, int jobId, String data);
+    }
+
+    private JobProgressRegistry() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+
+        boolean sharedQueue = "database".equalsIgnoreCase(AppConfig.getString("QUEUE_MODE", "memory"));
+        long pollSeconds = AppConfig.getLong("STATUS_POLL_SECONDS", sharedQueue ? 5L : 0L);
+        if (pollSeconds > 0) {
+            ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "sse-db-poller");
+                t.setDaemon(true);
+                return t;
+            });
+            poller.scheduleWithFixedDelay(this::pollRemoteJobs, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+            this.poller = poller;
+        } else {
+            this.poller = null;
+        }
+    }
+
+    public static JobProgressRegistry getInstance() {
+        if (instance == null) {
+            synchronized (JobProgressRegistry.class) {
+                if (instance == null) {
+                    instance = new JobProgressRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void subscribe(int userId, Listener listener) {
+        listenersByUser.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>()).add(listener);
+
+        // Replay current state so nothing is missed between page render and connect.
+        dispatcher.execute(() -> {
+            for (JobState state : jobs.values()) {
+                if (state.userId == userId && !listener.send("job", state.jobId, state.toJson())) {
+                    unsubscribe(userId, listener);
+                    return;
+                }
+            }
+        });
+    }
+
+    public void unsubscribe(int userId, Listener listener) {
+        List<Listener> listeners = listenersByUser.get(userId);
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                listenersByUser.remove(userId, listeners);
+            }
+        }
+    }
+
+    // A PENDING job may still be picked up by another node, so it is not marked as running here.
+    public void jobCreated(int jobId, int userId) {
+        publish(new JobState(jobId, userId, "PENDING", 0, null, false), "created");
+    }
+
+    public void jobStarted(int jobId, int userId) {
+        publish(new JobState(jobId, userId, "PROCESSING", 0, null, true), "job");
+    }
+
+    public void jobProgress(int jobId, int progress) {
+        JobState current = jobs.get(jobId);
+        if (current == null || current.progress == progress || !"PROCESSING".equals(current.status)) {
+            return;
+        }
+        publish(new JobState(jobId, current.userId, "PROCESSING", progress, null, true), "job");
+    }
+
+    public void jobCompleted(int jobId) {
+        JobState current = jobs.get(jobId);
+        if (current != null) {
+            publish(new JobState(jobId, current.userId, "COMPLETED", 100, null, true), "job");
+        }
+    }
+
+    public void jobFailed(int jobId, String errorMessage) {
+        JobState current = jobs.get(jobId);
+        if (current != null) {
+            publish(new JobState(jobId, current.userId, "FAILED", current.progress, errorMessage, true), "job");
+        }
+    }
+
+    public void jobRemoved(int jobId) {
+        jobs.remove(jobId);
+    }
+
+    public int getSubscriberCount() {
+        int count = 0;
+        for (List<Listener> listeners : listenersByUser.values()) {
+            count += listeners.size();
+        }
+        return count;
+    }
+
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        listenersByUser.clear();
+        jobs.clear();
+    }
+
+    private void publish(JobState state, String event) {
+        jobs.put(state.jobId, state);
+        if (state.isFinished()) {
+            purgeFinished();
+        }
+
+        List<Listener> listeners = listenersByUser.get(state.userId);
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+
+        String data = state.toJson();
+        dispatcher.execute(() -> {
+            for (Listener listener : listeners) {
+                if (!listener.send(event, state.jobId, data)) {
+                    unsubscribe(state.userId, listener);
+                }
+            }
+        });
+    }
+
+    private void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - FINISHED_RETENTION_MS;
+        jobs.values().removeIf(s -> s.isFinished() && s.updatedAt < cutoff);
+    }
+
+    private void heartbeat() {
+        for (Map.Entry<Integer, List<Listener>> entry : listenersByUser.entrySet()) {
+            for (Listener listener : entry.getValue()) {
+                if (!listener.send(null, 0, null)) {
+                    unsubscribe(entry.getKey(), listener);
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish database state for watched users' jobs that are not running in this JVM.
+     */
+    private void pollRemoteJobs() {
+        remoteJobs.keySet().retainAll(listenersByUser.keySet());
+        for (Integer userId : listenersByUser.keySet()) {
+            try {
+                pollUser(userId);
+            } catch (RuntimeException e) {
+                System.err.println("[JobProgressRegistry] Poll for user " + userId + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void pollUser(int userId) {
+        Set<Integer> tracked = remoteJobs.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet());
+        Set<Integer> stillActive = new HashSet<>();
+        for (ConversionJob job : jobDAO.getActiveJobsByUserId(userId)) {
+            JobState current = jobs.get(job.getJobId());
+            if (current != null && current.local) {
+                continue;
+            }
+            stillActive.add(job.getJobId());
+            tracked.add(job.getJobId());
+            publishIfChanged(job, current);
+        }
+
+        // Gone from the active list: finished (or deleted) on another node.
+        for (Integer jobId : tracked) {
+            if (stillActive.contains(jobId)) {
+                continue;
+            }
+            tracked.remove(jobId);
+            JobState current = jobs.get(jobId);
+            if (current != null && current.local) {
+                continue;
+            }
+            ConversionJob job = jobDAO.getJobById(jobId);
+            if (job == null) {
+                jobs.remove(jobId);
+            } else {
+                publishIfChanged(job, current);
+            }
+        }
+    }
+
+    private void publishIfChanged(ConversionJob job, JobState current) {
+        if (current != null && current.status.equals(job.getStatus()) && current.progress == job.getProgress()) {
+            return;
+        }
+        publish(new JobState(job.getJobId(), job.getUserId(), job.getStatus(), job.getProgress(),
+                job.getErrorMessage(), false), "job");
+    }
+
+    private static final class JobState {
+        final int jobId;
+        final int userId;
+        final String status;
+        final int progress;
+        final String errorMessage;
+        final boolean local; // reported by a worker in this JVM
+        final long updatedAt;
+
+        JobState(int jobId, int userId, String status, int progress, String errorMessage, boolean local) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.status = status;
+            this.progress = progress;
+            this.errorMessage = errorMessage;
+            this.local = local;
+            this.updatedAt = System.currentTimeMillis();
+        }
+
+        boolean isFinished() {
+            return "COMPLETED".equals(status) || "FAILED".equals(status);
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("{\"jobId\":").append(jobId)
+              .append(",\"status\":\"").append(status).append('"')
+              .append(",\"progress\":").append(progress);
+            if (errorMessage != null) {
+                sb.append(",\"error\":\"");
+                appendEscaped(sb, errorMessage);
+                sb.append('"');
+            }
+            return sb.append('}').toString();
+        }
+
+        private static void appendEscaped(StringBuilder sb, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+
+import java.util.Map;
+
+/**
+ * JobQueue - Source of jobs for conversion workers.
+ *
+ * take() returns a job that has already been claimed for the given worker: marked PROCESSING
+ * with that worker as lease owner.
+ */
+public interface JobQueue {
+
+    /**
+     * Pick up jobs left PENDING by a previous run.
+     */
+    void start();
+
+    void stop();
+
+    /**
+     * Hand a freshly created PENDING job to the queue. Returns false if it cannot be accepted.
+     */
+    boolean offer(ConversionJob job);
+
+    ConversionJob take(String workerId) throws InterruptedException;
+
+    /**
+     * Called when a job returned by take() stops running, freeing one of its user's encode slots.
+     */
+    void jobFinished(ConversionJob job);
+
+    int size();
+
+    /**
+     * Jobs waiting for this user.
+     */
+    int queuedFor(int userId);
+
+    /**
+     * userId -> waiting jobs, for users with at least one.
+     */
+    Map<Integer, Integer> getQueueDepthByUser();
+}
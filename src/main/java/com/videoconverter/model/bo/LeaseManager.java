@@ -0,0 +1,140 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.AppConfig;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * LeaseManager - Keeps worker leases on PROCESSING jobs alive and recovers jobs whose owner died.
+ *
+ * Every job a worker holds is renewed in one batch every LEASE_SECONDS / 3. If a renewal finds the
+ * lease gone (the job was reaped and handed to someone else) the worker is told to stop.
+ * The reaper, which runs on every node, returns expired jobs to PENDING or fails them after
+ * LEASE_MAX_ATTEMPTS claims.
+ */
+public class LeaseManager {
+    private final ConversionJobDAO jobDAO;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+    private final Consumer<ConversionJob> requeue;
+
+    // jobId -> workerId
+    private final Map<Integer, String> held = new ConcurrentHashMap<>();
+    private final Set<Integer> lost = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    public LeaseManager(ConversionJobDAO jobDAO, Consumer<ConversionJob> requeue) {
+        this.jobDAO = jobDAO;
+        this.requeue = requeue;
+        this.leaseSeconds = Math.max(15, AppConfig.getInt("LEASE_SECONDS", 60));
+        this.maxAttempts = Math.max(1, AppConfig.getInt("LEASE_MAX_ATTEMPTS", 3));
+        this.nodeId = AppConfig.getString("WORKER_NODE_ID", defaultNodeId());
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // RuntimeMXBean name is "pid@host"
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        return host + ":" + pid;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lease-manager");
+            t.setDaemon(true);
+            return t;
+        });
+        long renewMs = leaseSeconds * 1000L / 3;
+        scheduler.scheduleWithFixedDelay(this::renew, renewMs, renewMs, TimeUnit.MILLISECONDS);
+        // First reap right away so jobs orphaned by a previous crash are picked up at startup.
+        scheduler.scheduleWithFixedDelay(this::reap, 0, leaseSeconds / 2, TimeUnit.SECONDS);
+        System.out.println("[Lease] Node " + nodeId + " (lease=" + leaseSeconds + "s, maxAttempts=" + maxAttempts + ")");
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public String workerId(String workerName) {
+        return nodeId + "/" + workerName;
+    }
+
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void hold(int jobId, String workerId) {
+        lost.remove(jobId);
+        held.put(jobId, workerId);
+    }
+
+    public void release(int jobId) {
+        held.remove(jobId);
+        lost.remove(jobId);
+    }
+
+    /**
+     * True once a renewal found that another worker now owns the job.
+     */
+    public boolean isLost(int jobId) {
+        return lost.contains(jobId);
+    }
+
+    private void renew() {
+        try {
+            if (held.isEmpty()) return;
+
+            Map<Integer, String> batch = new LinkedHashMap<>(held);
+            int[] counts = jobDAO.renewLeases(batch, leaseSeconds);
+            if (counts == null) return;
+
+            Iterator<Map.Entry<Integer, String>> it = batch.entrySet().iterator();
+            for (int i = 0; it.hasNext() && i < counts.length; i++) {
+                Map.Entry<Integer, String> entry = it.next();
+                if (counts[i] == 0 && held.remove(entry.getKey(), entry.getValue())) {
+                    lost.add(entry.getKey());
+                    System.err.println("[Lease] Lost lease on job " + entry.getKey() + " (" + entry.getValue() + ")");
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[Lease] Renewal error: " + e.getMessage());
+        }
+    }
+
+    private void reap() {
+        try {
+            List<ConversionJob> requeued = jobDAO.reapExpiredLeases(maxAttempts);
+            for (ConversionJob job : requeued) {
+                System.out.println("[Lease] Re-queued job " + job.getJobId() + " after expired lease");
+                requeue.accept(job);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[Lease] Reaper error: " + e.getMessage());
+        }
+    }
+}
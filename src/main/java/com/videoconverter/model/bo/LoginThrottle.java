@@ -0,0 +1,159 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.MetricsRegistry;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LoginThrottle - Failed login counts per client IP and per username in a fixed window, checked
+ * and reserved before any password is hashed.
+ *
+ * A username is blocked after LOGIN_MAX_FAILURES_PER_USER failures within LOGIN_THROTTLE_WINDOW_SECONDS
+ * (a success clears it); an IP after LOGIN_MAX_FAILURES_PER_IP, which catches one client trying
+ * many usernames. Failed registrations count against the IP as well.
+ */
+public class LoginThrottle {
+    private static volatile LoginThrottle instance;
+
+    private static final MetricsRegistry.Counter THROTTLED = MetricsRegistry.getInstance().counter(
+            "videoconverter_login_throttled_total", "Login or register attempts refused before hashing", "reason");
+
+    // Expired windows are swept once a map grows past this.
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final long windowMs = Math.max(1, AppConfig.getLong("LOGIN_THROTTLE_WINDOW_SECONDS", 900L)) * 1000L;
+    private final int maxPerUser = Math.max(1, AppConfig.getInt("LOGIN_MAX_FAILURES_PER_USER", 5));
+    private final int maxPerIp = Math.max(1, AppConfig.getInt("LOGIN_MAX_FAILURES_PER_IP", 30));
+
+    private final Map<String, Window> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Window> byIp = new ConcurrentHashMap<>();
+
+    private LoginThrottle() {
+    }
+
+    public static LoginThrottle getInstance() {
+        if (instance == null) {
+            synchronized (LoginThrottle.class) {
+                if (instance == null) {
+                    instance = new LoginThrottle();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Reserve an attempt before any password is hashed: the attempt counts as a failure for the IP
+     * and username until {@link #succeeded} or {@link #release} says otherwise, so concurrent
+     * requests cannot all pass the check while the first ones are still hashing. Returns 0 if the
+     * attempt may go ahead, otherwise the seconds until the IP or username may try again.
+     *
+     * @param username null when only the IP applies (registration)
+     */
+    public long tryAcquire(String ip, String username) {
+        long now = System.currentTimeMillis();
+        Window ipWindow = window(byIp, ip, now);
+        Window userWindow = username != null ? window(byUser, key(username), now) : null;
+        // Always IP before username, so two requests never lock in opposite order.
+        synchronized (ipWindow) {
+            long wait = remaining(ipWindow, maxPerIp, now);
+            if (wait > 0) {
+                THROTTLED.inc("ip");
+                return wait;
+            }
+            if (userWindow != null) {
+                synchronized (userWindow) {
+                    wait = remaining(userWindow, maxPerUser, now);
+                    if (wait > 0) {
+                        THROTTLED.inc("username");
+                        return wait;
+                    }
+                    add(userWindow, now, 1);
+                }
+            }
+            add(ipWindow, now, 1);
+        }
+        return 0;
+    }
+
+    /**
+     * The reserved attempt succeeded: clear the username's failures and take the attempt back
+     * from the IP.
+     */
+    public void succeeded(String ip, String username) {
+        if (username != null) {
+            byUser.remove(key(username));
+        }
+        undo(byIp.get(ip));
+    }
+
+    /**
+     * The reserved attempt never ran (e.g. the hashing pool was full); it does not count.
+     */
+    public void release(String ip, String username) {
+        undo(byIp.get(ip));
+        if (username != null) {
+            undo(byUser.get(key(username)));
+        }
+    }
+
+    private static String key(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private long remaining(Window window, int max, long now) {
+        if (window == null) return 0;
+        synchronized (window) {
+            long end = window.start + windowMs;
+            return window.failures >= max && end > now ? (end - now + 999) / 1000 : 0;
+        }
+    }
+
+    private Window window(Map<String, Window> windows, String key, long now) {
+        if (windows.size() > SWEEP_THRESHOLD) {
+            sweep(windows, now);
+        }
+        return windows.computeIfAbsent(key, k -> new Window(now));
+    }
+
+    private void add(Window window, long now, int delta) {
+        synchronized (window) {
+            if (window.start + windowMs <= now) {
+                window.start = now;
+                window.failures = 0;
+            }
+            window.failures = Math.max(0, window.failures + delta);
+        }
+    }
+
+    private void undo(Window window) {
+        if (window != null) {
+            add(window, System.currentTimeMillis(), -1);
+        }
+    }
+
+    private void sweep(Map<String, Window> windows, long now) {
+        Iterator<Window> it = windows.values().iterator();
+        while (it.hasNext()) {
+            Window window = it.next();
+            synchronized (window) {
+                if (window.start + windowMs <= now) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Window {
+        long start;
+        int failures;
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
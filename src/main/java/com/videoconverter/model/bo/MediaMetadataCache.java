@@ -0,0 +1,88 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.Video;
+import com.videoconverter.model.dao.VideoDAO;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.MediaInfo;
+import com.videoconverter.util.MediaProbe;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MediaMetadataCache - ffprobe results keyed by video id.
+ *
+ * Videos are probed once at ingest and the result is stored on the videos row; this cache saves
+ * the DB/ffprobe round trip when the same video is looked at again (scheduling, encoding).
+ */
+public class MediaMetadataCache {
+    private static volatile MediaMetadataCache instance;
+
+    private final VideoDAO videoDAO;
+    private final MediaProbe mediaProbe;
+    private final Map<Integer, MediaInfo> cache;
+
+    private MediaMetadataCache() {
+        this.videoDAO = new VideoDAO();
+        this.mediaProbe = new MediaProbe();
+        int maxEntries = Math.max(16, AppConfig.getInt("MEDIA_CACHE_SIZE", 1000));
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Integer, MediaInfo>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MediaInfo> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public static MediaMetadataCache getInstance() {
+        if (instance == null) {
+            synchronized (MediaMetadataCache.class) {
+                if (instance == null) {
+                    instance = new MediaMetadataCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Metadata for a video: from the cache, then from the videos row, then by running ffprobe.
+     * Returns null if the file cannot be probed.
+     */
+    public MediaInfo get(Video video) {
+        MediaInfo info = cache.get(video.getVideoId());
+        if (info != null) {
+            return info;
+        }
+        if (video.isProbed()) {
+            info = video.getMediaInfo();
+            cache.put(video.getVideoId(), info);
+            return info;
+        }
+        return probe(video);
+    }
+
+    public MediaInfo getCached(int videoId) {
+        return cache.get(videoId);
+    }
+
+    /**
+     * Run ffprobe on the video file and store the result on the videos row.
+     */
+    public MediaInfo probe(Video video) {
+        MediaInfo info = mediaProbe.probe(video.getFilePath());
+        if (info == null) {
+            System.err.println("[MediaMetadata] ffprobe failed for video " + video.getVideoId());
+            return null;
+        }
+        video.setMediaInfo(info);
+        videoDAO.updateMetadata(video.getVideoId(), info);
+        cache.put(video.getVideoId(), info);
+        return info;
+    }
+
+    public void evict(int videoId) {
+        cache.remove(videoId);
+    }
+}
@@ -0,0 +1,82 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.MetricsRegistry;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PasswordHashPool - Bounded executor for BCrypt work, so a burst of logins queues here instead of
+ * holding Tomcat request threads.
+ *
+ * AUTH_THREADS threads (default half the cores) take tasks from a queue of AUTH_QUEUE_SIZE; when
+ * that is full, submit throws RejectedExecutionException and the servlet answers 503.
+ */
+public class PasswordHashPool {
+    private static volatile PasswordHashPool instance;
+
+    private static final MetricsRegistry.Counter REJECTIONS = MetricsRegistry.getInstance().counter(
+            "videoconverter_auth_rejections_total", "Password hashing tasks refused because the queue was full");
+
+    private final ThreadPoolExecutor executor;
+
+    private PasswordHashPool() {
+        int threads = Math.max(1, AppConfig.getInt("AUTH_THREADS",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+        int queueSize = Math.max(1, AppConfig.getInt("AUTH_QUEUE_SIZE", 64));
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("videoconverter_auth_queue_depth", "Password hashing tasks waiting for a thread",
+                () -> executor.getQueue().size());
+        metrics.gauge("videoconverter_auth_busy_threads", "Threads currently hashing or verifying a password",
+                executor::getActiveCount);
+        System.out.println("[PasswordHashPool] " + threads + " threads, queue " + queueSize);
+    }
+
+    public static PasswordHashPool getInstance() {
+        if (instance == null) {
+            synchronized (PasswordHashPool.class) {
+                if (instance == null) {
+                    instance = new PasswordHashPool();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Run task on a hashing thread.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            REJECTIONS.inc();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
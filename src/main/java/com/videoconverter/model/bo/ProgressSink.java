@@ -0,0 +1,130 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.util.AppConfig;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProgressSink - Write-behind buffer for conversion progress.
+ *
+ * Workers report progress as often as ffmpeg prints it; only the latest value per job is kept
+ * and dirty jobs are written in one JDBC batch every PROGRESS_FLUSH_INTERVAL_MS.
+ * Terminal states are written directly by the caller after {@link #finish(int)}, and the batch
+ * UPDATE only touches rows still in PROCESSING, so a late flush can never overwrite them.
+ */
+public class ProgressSink {
+    private final ConversionJobDAO jobDAO;
+    private final long flushIntervalMs;
+
+    // jobId -> latest progress not yet written
+    private final Map<Integer, Integer> pending = new ConcurrentHashMap<>();
+    // jobId -> last progress written to the database
+    private final Map<Integer, Integer> written = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    public ProgressSink(ConversionJobDAO jobDAO) {
+        this.jobDAO = jobDAO;
+        this.flushIntervalMs = Math.max(50, AppConfig.getLong("PROGRESS_FLUSH_INTERVAL_MS", 1000L));
+    }
+
+    public synchronized void start() {
+        if (flusher != null) return;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "progress-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (flusher == null) return;
+
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        flush();
+    }
+
+    /**
+     * Note that a job has just been moved to PROCESSING with progress 0 by a direct write.
+     */
+    public void begin(int jobId) {
+        pending.remove(jobId);
+        written.put(jobId, 0);
+    }
+
+    /**
+     * Record the latest progress for a job. Cheap and non-blocking; no database access.
+     */
+    public void update(int jobId, int progress) {
+        Integer last = written.get(jobId);
+        if (last != null && last == progress) {
+            pending.remove(jobId);
+            return;
+        }
+        pending.put(jobId, progress);
+    }
+
+    /**
+     * Drop any buffered progress for a job that is about to be completed or failed.
+     */
+    public void finish(int jobId) {
+        pending.remove(jobId);
+        written.remove(jobId);
+    }
+
+    /**
+     * Write every dirty job in one batch.
+     */
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<Integer, Integer> batch = new LinkedHashMap<>();
+        for (Integer jobId : pending.keySet()) {
+            Integer progress = pending.remove(jobId);
+            if (progress != null) {
+                batch.put(jobId, progress);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        int[] counts = jobDAO.updateProgressBatch(batch);
+        if (counts != null) {
+            // Rows that are no longer PROCESSING were finished meanwhile; don't remember them. replace
+            // only updates jobs still tracked, so one finished while the batch ran is not re-added.
+            Iterator<Map.Entry<Integer, Integer>> it = batch.entrySet().iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                Map.Entry<Integer, Integer> entry = it.next();
+                if (i < counts.length && counts[i] != 0) {
+                    written.replace(entry.getKey(), entry.getValue());
+                }
+            }
+        } else {
+            // Keep the newest value for the next attempt unless a worker already replaced it or
+            // the job was finished meanwhile.
+            for (Map.Entry<Integer, Integer> entry : batch.entrySet()) {
+                if (written.containsKey(entry.getKey())) {
+                    pending.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
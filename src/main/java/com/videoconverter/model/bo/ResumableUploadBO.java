@@ -0,0 +1,313 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.ConversionJob;
+import com.videoconverter.model.bean.UploadSession;
+import com.videoconverter.model.dao.UploadSessionDAO;
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.ContentHash;
+import com.videoconverter.util.TransferStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ResumableUploadBO - Offset-addressed chunked uploads (tus-style).
+ *
+ * A session reserves the final file in the uploads directory; each chunk is written at its offset
+ * with positional FileChannel writes and, if the client sent a checksum, verified before the
+ * offset moves. The offset is stored in upload_sessions, so an upload can resume after a dropped
+ * connection or a server restart. When the last byte arrives the file becomes a normal job.
+ *
+ * The whole-file SHA-256 used by the result cache is computed as chunks arrive, so completion
+ * never rereads the file on the request thread.
+ */
+public class ResumableUploadBO {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final UploadSessionDAO sessionDAO;
+    private final ConversionBO conversionBO;
+    private final int expireHours;
+    // Uploads with a chunk currently being written on this node.
+    private final Set<String> busy = ConcurrentHashMap.newKeySet();
+    // uploadId -> content digest over the bytes received so far. Missing when earlier chunks went
+    // to another node or arrived before a restart; such uploads are submitted without a hash.
+    private final Map<String, PartialHash> contentHashes = new ConcurrentHashMap<>();
+
+    public ResumableUploadBO() {
+        this.sessionDAO = new UploadSessionDAO();
+        this.conversionBO = ConversionBO.getInstance();
+        this.expireHours = Math.max(1, AppConfig.getInt("UPLOAD_SESSION_EXPIRE_HOURS", 24));
+    }
+
+    /**
+     * Failure with the HTTP status the servlet should answer.
+     */
+    public static class UploadException extends Exception {
+        private final int status;
+
+        public UploadException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    public UploadSession create(int userId, String filename, String outputFormat, String profile, long totalSize,
+                                Path uploadDir) throws IOException {
+        cleanupExpired();
+
+        Files.createDirectories(uploadDir);
+        Path file = uploadDir.resolve(System.currentTimeMillis() + "_" + filename);
+        Files.createFile(file);
+
+        UploadSession session = new UploadSession(newUploadId(), userId, filename, outputFormat,
+                file.toString(), totalSize);
+        session.setProfile(profile);
+        if (!sessionDAO.createSession(session)) {
+            Files.deleteIfExists(file);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * The session if it exists and belongs to the user, otherwise null.
+     */
+    public UploadSession getSession(String uploadId, int userId) {
+        UploadSession session = sessionDAO.getSession(uploadId);
+        return session != null && session.getUserId() == userId ? session : null;
+    }
+
+    /**
+     * Write one chunk starting at offset. Returns the new offset.
+     *
+     * @param expectedSha256 digest of the chunk sent by the client, or null to skip verification
+     */
+    public long appendChunk(UploadSession session, long offset, InputStream in, byte[] expectedSha256)
+            throws UploadException {
+        if (!busy.add(session.getUploadId())) {
+            throw new UploadException(409, "Another chunk is being written");
+        }
+        try {
+            if (offset != session.getReceived()) {
+                throw new UploadException(409, "Upload-Offset " + offset + " does not match " + session.getReceived());
+            }
+            if (!session.isOpen()) {
+                // Already handed to the queue: only a retried (empty) final PATCH gets here.
+                return offset;
+            }
+
+            MessageDigest digest = expectedSha256 != null ? ContentHash.newDigest() : null;
+            MessageDigest contentDigest = resumeContentHash(session.getUploadId(), offset);
+            long started = System.nanoTime();
+            long position = offset;
+            boolean interrupted = false;
+            try (FileChannel channel = FileChannel.open(Paths.get(session.getFilePath()), StandardOpenOption.WRITE)) {
+                byte[] array = new byte[BUFFER_SIZE];
+                ByteBuffer buffer = ByteBuffer.wrap(array);
+                int read;
+                try {
+                    while ((read = in.read(array)) != -1) {
+                        if (position + read > session.getTotalSize()) {
+                            throw new UploadException(413, "Chunk goes past Upload-Length");
+                        }
+                        if (digest != null) {
+                            digest.update(array, 0, read);
+                        }
+                        if (contentDigest != null) {
+                            contentDigest.update(array, 0, read);
+                        }
+                        buffer.clear().limit(read);
+                        long at = position;
+                        while (buffer.hasRemaining()) {
+                            at += channel.write(buffer, at);
+                        }
+                        position = at;
+                    }
+                } catch (IOException e) {
+                    // Client went away mid-chunk. Keep what arrived unless we were asked to verify it.
+                    interrupted = true;
+                }
+            } catch (IOException e) {
+                throw new UploadException(500, "Cannot write upload: " + e.getMessage());
+            }
+            TransferStats.UPLOADS.record(position - offset, started);
+
+            if (digest != null && (interrupted || !MessageDigest.isEqual(digest.digest(), expectedSha256))) {
+                // The bytes past the stored offset are simply overwritten by the retry.
+                throw new UploadException(460, "Checksum mismatch");
+            }
+            if (position != offset && !sessionDAO.advanceOffset(session.getUploadId(), offset, position)) {
+                throw new UploadException(409, "Upload offset changed concurrently");
+            }
+            session.setReceived(position);
+            if (contentDigest != null) {
+                contentHashes.put(session.getUploadId(), new PartialHash(contentDigest, position));
+            }
+            return position;
+        } finally {
+            busy.remove(session.getUploadId());
+        }
+    }
+
+    /**
+     * Hand a fully received upload to the conversion queue, one job per requested format (stored
+     * comma-separated), and return the job ids. The session is claimed with a conditional update
+     * first, so a retried completion returns the ids of the first submission instead of creating
+     * jobs again. Returns an empty list if no job could be created; the session is reopened so the
+     * client can retry.
+     *
+     * @throws UploadException 409 while another request is submitting the same upload
+     */
+    public List<Integer> complete(UploadSession session) throws UploadException {
+        if (!session.isComplete()) {
+            return Collections.emptyList();
+        }
+        String uploadId = session.getUploadId();
+        if (!sessionDAO.claimForSubmit(uploadId)) {
+            UploadSession current = sessionDAO.getSession(uploadId);
+            if (current != null && "SUBMITTED".equals(current.getState())) {
+                return parseJobIds(current.getJobIds());
+            }
+            throw new UploadException(409, "Upload is being submitted");
+        }
+
+        // Any way out other than markSubmitted (no jobs, an exception) hands the upload back to the client.
+        boolean submitted = false;
+        try {
+            String contentHash = contentHash(session);
+            if (contentHash == null) {
+                System.out.println("[Upload] No running hash for " + uploadId + "; result reuse skipped");
+            }
+            List<ConversionJob> jobs = conversionBO.submitJobs(session.getUserId(), session.getFilename(),
+                    session.getFilePath(), session.getTotalSize(),
+                    Arrays.asList(session.getOutputFormat().split(",")), session.getProfile(), contentHash);
+            if (jobs.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<Integer> jobIds = new ArrayList<>();
+            for (ConversionJob job : jobs) {
+                jobIds.add(job.getJobId());
+            }
+            // Kept until it expires, so a client that missed the response can still learn the job ids.
+            sessionDAO.markSubmitted(uploadId, joinJobIds(jobIds));
+            submitted = true;
+            contentHashes.remove(uploadId);
+            return jobIds;
+        } finally {
+            if (!submitted) {
+                sessionDAO.reopen(uploadId);
+            }
+        }
+    }
+
+    public void cancel(UploadSession session) throws IOException {
+        contentHashes.remove(session.getUploadId());
+        if (sessionDAO.deleteOpenSession(session.getUploadId())) {
+            Files.deleteIfExists(Paths.get(session.getFilePath()));
+        } else {
+            // Submitted: the file now belongs to the video.
+            sessionDAO.deleteSession(session.getUploadId());
+        }
+    }
+
+    private void cleanupExpired() {
+        for (UploadSession expired : sessionDAO.getExpiredSessions(expireHours)) {
+            try {
+                contentHashes.remove(expired.getUploadId());
+                // A submission stuck this long died with its node, so only SUBMITTED files belong to a video.
+                if (sessionDAO.deleteUnsubmittedSession(expired.getUploadId())) {
+                    Files.deleteIfExists(Paths.get(expired.getFilePath()));
+                } else {
+                    sessionDAO.deleteSession(expired.getUploadId());
+                }
+                System.out.println("[Upload] Removed abandoned upload " + expired.getUploadId());
+            } catch (IOException e) {
+                System.err.println("[Upload] Cleanup failed for " + expired.getUploadId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Digest to continue at offset: a copy of the stored one, so a rejected chunk leaves it untouched.
+    private MessageDigest resumeContentHash(String uploadId, long offset) {
+        PartialHash partial = contentHashes.get(uploadId);
+        if (partial != null && partial.offset == offset) {
+            return copy(partial.digest);
+        }
+        return offset == 0 ? ContentHash.newDigest() : null;
+    }
+
+    private String contentHash(UploadSession session) {
+        PartialHash partial = contentHashes.get(session.getUploadId());
+        if (partial == null || partial.offset != session.getTotalSize()) {
+            return null;
+        }
+        MessageDigest digest = copy(partial.digest);
+        return digest == null ? null : ContentHash.toHex(digest.digest());
+    }
+
+    private static MessageDigest copy(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    private static String joinJobIds(List<Integer> jobIds) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer jobId : jobIds) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(jobId);
+        }
+        return sb.toString();
+    }
+
+    private static List<Integer> parseJobIds(String jobIds) {
+        List<Integer> ids = new ArrayList<>();
+        if (jobIds != null) {
+            for (String id : jobIds.split(",")) {
+                if (!id.isEmpty()) {
+                    ids.add(Integer.parseInt(id));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String newUploadId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return ContentHash.toHex(bytes);
+    }
+
+    private static final class PartialHash {
+        final MessageDigest digest;
+        final long offset;
+
+        PartialHash(MessageDigest digest, long offset) {
+            this.digest = digest;
+            this.offset = offset;
+        }
+    }
+}
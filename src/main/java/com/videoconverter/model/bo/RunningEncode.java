@@ -0,0 +1,43 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.EncodeStatsListener;
+
+/**
+ * Latest speed and fps of one job's ffmpeg run. Written from the progress reader on every
+ * progress block, read by ConcurrencyController and /metrics.
+ */
+final class RunningEncode implements EncodeStatsListener {
+    private final int jobId;
+    private final String format;
+    private volatile double speed;
+    private volatile double fps;
+
+    RunningEncode(int jobId, String format) {
+        this.jobId = jobId;
+        this.format = format;
+    }
+
+    @Override
+    public void onStats(double speed, double fps) {
+        this.speed = speed;
+        if (fps >= 0) {
+            this.fps = fps;
+        }
+    }
+
+    int getJobId() {
+        return jobId;
+    }
+
+    String getFormat() {
+        return format;
+    }
+
+    double getSpeed() {
+        return speed;
+    }
+
+    double getFps() {
+        return fps;
+    }
+}
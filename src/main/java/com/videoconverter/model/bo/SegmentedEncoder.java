@@ -0,0 +1,333 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.util.AppConfig;
+import com.videoconverter.util.EncodeStatsListener;
+import com.videoconverter.util.EncodingProfile;
+import com.videoconverter.util.FFmpegWrapper;
+import com.videoconverter.util.MediaInfo;
+import com.videoconverter.util.MediaProbe;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * SegmentedEncoder - Split / encode / concat for long inputs.
+ *
+ * The input is cut at keyframes into time ranges whose video is CPU-encoded by independent ffmpeg
+ * runs; the audio track is encoded once as its own task, so piece boundaries cannot click. The
+ * worker that owns the job encodes pieces itself and lends every idle encode slot (see
+ * ConcurrencyController.tryAcquireIdle) to a helper on the worker pool. Finished pieces are joined
+ * with the concat demuxer without re-encoding. Job progress is the duration-weighted progress of
+ * the pieces; speed is their sum.
+ */
+public class SegmentedEncoder {
+    private static final String PARTS_SUFFIX = ".parts";
+
+    private final FFmpegWrapper ffmpeg;
+    private final MediaProbe mediaProbe = new MediaProbe();
+    private final ConcurrencyController concurrency;
+    private final Executor helpers;
+    // Inputs at least this long are split; <= 0 disables splitting.
+    private final double thresholdSeconds;
+    private final double pieceSeconds;
+    private final int maxPieces;
+
+    public SegmentedEncoder(FFmpegWrapper ffmpeg, ConcurrencyController concurrency, Executor helpers) {
+        this(ffmpeg, concurrency, helpers,
+                AppConfig.getDouble("SEGMENT_THRESHOLD_SECONDS", 600),
+                AppConfig.getDouble("SEGMENT_PIECE_SECONDS", 120),
+                AppConfig.getInt("SEGMENT_MAX_PIECES", 16));
+    }
+
+    public SegmentedEncoder(FFmpegWrapper ffmpeg, ConcurrencyController concurrency, Executor helpers,
+                            double thresholdSeconds, double pieceSeconds, int maxPieces) {
+        this.ffmpeg = ffmpeg;
+        this.concurrency = concurrency;
+        this.helpers = helpers;
+        this.thresholdSeconds = thresholdSeconds;
+        this.pieceSeconds = Math.max(10, pieceSeconds);
+        this.maxPieces = Math.max(2, maxPieces);
+    }
+
+    public boolean shouldSplit(MediaInfo info, String format) {
+        return thresholdSeconds > 0 && info != null && info.getDurationSeconds() >= thresholdSeconds
+                && info.getDurationSeconds() >= 2 * pieceSeconds
+                && ffmpeg.needsCpuEncode(info, format);
+    }
+
+    /**
+     * Encode inputPath to outputPath in parallel pieces. The calling thread must hold an encode slot.
+     * Returns false if the input could not be split or any piece failed; the caller may then fall
+     * back to a single ffmpeg run. A CancellationException thrown by progressCallback stops every
+     * piece and is rethrown here.
+     */
+    public boolean encode(String inputPath, String outputPath, String format, MediaInfo info,
+                          EncodingProfile profile, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        double[] cuts = findCuts(inputPath, info.getDurationSeconds());
+        if (cuts.length == 0) {
+            return false;
+        }
+
+        File partsDir = new File(outputPath + PARTS_SUFFIX);
+        if (!partsDir.isDirectory() && !partsDir.mkdirs()) {
+            return false;
+        }
+        try {
+            return run(inputPath, outputPath, format, info, profile, cuts, partsDir, progressCallback, statsCallback);
+        } finally {
+            File[] parts = partsDir.listFiles();
+            if (parts != null) {
+                for (File part : parts) {
+                    part.delete();
+                }
+            }
+            partsDir.delete();
+        }
+    }
+
+    private boolean run(String inputPath, String outputPath, String format, MediaInfo info, EncodingProfile profile,
+                        double[] cuts, File partsDir, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        double duration = info.getDurationSeconds();
+        int pieces = cuts.length + 1;
+        Run run = new Run(pieces, duration, progressCallback, statsCallback);
+
+        List<String> piecePaths = new ArrayList<>(pieces);
+        for (int i = 0; i < pieces; i++) {
+            int index = i;
+            double start = i == 0 ? 0 : cuts[i - 1];
+            double length = i == pieces - 1 ? 0 : cuts[i] - start;
+            String piecePath = new File(partsDir, String.format("piece_%03d.mkv", i)).getAbsolutePath();
+            piecePaths.add(piecePath);
+            run.weights[i] = (i == pieces - 1 ? duration : cuts[i]) - start;
+            run.tasks.add(() -> {
+                try {
+                    return ffmpeg.encodeVideoRange(inputPath, piecePath, format, start, length,
+                            run.weights[index], profile, progress -> run.progress(index, progress),
+                            (speed, fps) -> run.stats(index, speed, fps));
+                } finally {
+                    run.stats(index, 0, 0);
+                }
+            });
+        }
+
+        String audioPath = null;
+        if (info.hasAudio()) {
+            String path = new File(partsDir, "audio.mka").getAbsolutePath();
+            audioPath = path;
+            // Audio is cheap next to video; it carries no weight in the job's progress.
+            run.tasks.add(() -> ffmpeg.encodeAudio(inputPath, path, format, profile, duration, progress -> run.checkFailed()));
+        }
+        run.pending.set(run.tasks.size());
+
+        System.out.println("[Segmented] " + pieces + " pieces for " + new File(inputPath).getName()
+                + " (" + String.format("%.0f", duration) + "s)");
+
+        // The owner works through the queue too; before each task it lends out whatever slots are idle.
+        do {
+            lendIdleSlots(run);
+        } while (run.runOne());
+        run.awaitAll();
+
+        if (run.cancelled != null) {
+            throw run.cancelled;
+        }
+        if (run.failed.get()) {
+            return false;
+        }
+        return ffmpeg.concat(piecePaths, audioPath, new File(partsDir, "concat.txt").getAbsolutePath(),
+                outputPath, format);
+    }
+
+    private void lendIdleSlots(Run run) {
+        // Leave at least one task for the owner itself.
+        while (run.helpers.get() < run.tasks.size() - 1 && concurrency.tryAcquireIdle()) {
+            run.helpers.incrementAndGet();
+            try {
+                helpers.execute(() -> {
+                    try {
+                        while (!concurrency.isOverCommitted() && run.runOne()) {
+                            // keep pulling pieces
+                        }
+                    } finally {
+                        run.helpers.decrementAndGet();
+                        concurrency.encodeFinished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Pool is shutting down; the owner finishes alone.
+                run.helpers.decrementAndGet();
+                concurrency.encodeFinished();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cut points (seconds) on keyframes, roughly evenly spaced; empty if no usable keyframes were found.
+     */
+    private double[] findCuts(String inputPath, double duration) {
+        int pieces = (int) Math.min(maxPieces, Math.ceil(duration / pieceSeconds));
+        if (pieces < 2) {
+            return new double[0];
+        }
+        double[] targets = new double[pieces - 1];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = duration * (i + 1) / pieces;
+        }
+
+        // Keyframes are usually at most a few seconds apart; look a little wider to be safe.
+        List<Double> keyframes = mediaProbe.keyframesNear(inputPath, targets, Math.min(30, pieceSeconds / 2));
+        List<Double> cuts = new ArrayList<>();
+        double previous = 0;
+        for (double target : targets) {
+            double best = -1;
+            for (double keyframe : keyframes) {
+                if (best < 0 || Math.abs(keyframe - target) < Math.abs(best - target)) {
+                    best = keyframe;
+                }
+            }
+            // Skip targets whose nearest keyframe would make an empty or overlapping piece.
+            if (best > previous + 1 && best < duration - 1) {
+                cuts.add(best);
+                previous = best;
+            }
+        }
+
+        double[] result = new double[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * State of one segmented encode, shared by the owner and its helpers.
+     */
+    private static final class Run {
+        final Queue<BooleanSupplier> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicInteger helpers = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final CountDownLatch done;
+        final double[] weights;
+        private final int[] progress;
+        private final double[] speeds;
+        private final double[] fps;
+        private final double totalWeight;
+        private final IntConsumer progressCallback;
+        private final EncodeStatsListener statsCallback;
+        private int lastReported = -1;
+        volatile CancellationException cancelled;
+
+        Run(int pieces, double totalWeight, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+            this.weights = new double[pieces];
+            this.progress = new int[pieces];
+            this.speeds = new double[pieces];
+            this.fps = new double[pieces];
+            this.totalWeight = totalWeight;
+            this.progressCallback = progressCallback;
+            this.statsCallback = statsCallback;
+            this.done = new CountDownLatch(1);
+        }
+
+        /**
+         * Take and run one task. False once the queue is empty. After a failure the remaining
+         * tasks are drained without running.
+         */
+        boolean runOne() {
+            BooleanSupplier task = tasks.poll();
+            if (task == null) {
+                return false;
+            }
+            try {
+                if (!failed.get() && !task.getAsBoolean()) {
+                    failed.set(true);
+                }
+            } catch (CancellationException e) {
+                // Stopped because another piece failed or the job was cancelled (see progress()).
+                failed.set(true);
+            } catch (RuntimeException e) {
+                System.err.println("[Segmented] Piece error: " + e.getMessage());
+                failed.set(true);
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+            return true;
+        }
+
+        void awaitAll() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+            }
+        }
+
+        // Called from each piece's progress callback: stops the other pieces once one has failed.
+        void checkFailed() {
+            if (failed.get()) {
+                throw new CancellationException("Another piece failed");
+            }
+        }
+
+        void progress(int index, int value) {
+            checkFailed();
+            int overall;
+            synchronized (this) {
+                progress[index] = value;
+                double sum = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    sum += weights[i] * progress[i];
+                }
+                // 100 only once the pieces are joined
+                overall = (int) Math.min(99, sum / totalWeight);
+                if (overall == lastReported) {
+                    return;
+                }
+                lastReported = overall;
+            }
+            if (progressCallback != null) {
+                try {
+                    progressCallback.accept(overall);
+                } catch (CancellationException e) {
+                    if (cancelled == null) {
+                        cancelled = e;
+                    }
+                    failed.set(true);
+                    throw e;
+                }
+            }
+        }
+
+        // Pieces run side by side, so the job's speed and fps are the sums over the pieces.
+        void stats(int index, double speed, double frames) {
+            double totalSpeed = 0;
+            double totalFps = 0;
+            synchronized (this) {
+                speeds[index] = speed;
+                fps[index] = Math.max(0, frames);
+                for (int i = 0; i < speeds.length; i++) {
+                    totalSpeed += speeds[i];
+                    totalFps += fps[i];
+                }
+            }
+            if (statsCallback != null) {
+                statsCallback.onStats(totalSpeed, totalFps);
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.videoconverter.model.bo;
+
+import com.videoconverter.model.bean.UserStats;
+import com.videoconverter.model.dao.ConversionJobDAO;
+import com.videoconverter.model.dao.UserDAO;
+import com.videoconverter.model.dao.UserStatsDAO;
+import com.videoconverter.util.AppConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatsBO - Admin dashboard statistics, maintained as jobs complete instead of aggregated per view.
+ *
+ * Site totals are the figures read at the last reconcile plus the changes recorded in memory since.
+ * Per-user changes are buffered and added to user_stats in one batch every STATS_FLUSH_SECONDS.
+ * Every STATS_RECONCILE_MINUTES (and at start) user_stats is rebuilt from conversion_jobs and videos.
+ * Changes recorded from the start of a reconcile on are kept and applied on top of the rebuilt
+ * figures; a completion that committed just before the reconcile but was recorded just after it can
+ * still be counted twice until the next one.
+ */
+public class StatsBO {
+    private static volatile StatsBO instance;
+
+    private final UserStatsDAO statsDAO = new UserStatsDAO();
+    private final ConversionJobDAO jobDAO = new ConversionJobDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final long flushSeconds = Math.max(1, AppConfig.getLong("STATS_FLUSH_SECONDS", 5L));
+    private final long reconcileMinutes = AppConfig.getLong("STATS_RECONCILE_MINUTES", 60L);
+
+    // Held by flush and reconcile so a batch never lands in the middle of a rebuild.
+    private final Object writeLock = new Object();
+    // Replaced as a whole so readers never see reconciled figures without the matching changes.
+    private volatile State state = new State(new UserStats(), 0, new HashMap<>(), null, new Changes());
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Changes recorded since a reconcile: per-user deltas not yet written to user_stats and the
+     * site totals.
+     */
+    private static final class Changes {
+        // userId -> change not yet written to user_stats
+        final Map<Integer, UserStats> pending = new ConcurrentHashMap<>();
+        final LongAdder users = new LongAdder();
+        final LongAdder completedJobs = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final DoubleAdder encodeSeconds = new DoubleAdder();
+        final Map<String, LongAdder> modeCounts = new ConcurrentHashMap<>();
+
+        LongAdder modeCount(String conversionMode) {
+            String key = conversionMode == null ? "UNKNOWN" : conversionMode;
+            LongAdder count = modeCounts.get(key);
+            return count != null ? count : modeCounts.computeIfAbsent(key, k -> new LongAdder());
+        }
+
+        void record(int userId, int jobs, long in, long out, double seconds) {
+            pending.compute(userId, (id, delta) -> {
+                if (delta == null) {
+                    delta = new UserStats(id);
+                }
+                delta.setCompletedJobs(delta.getCompletedJobs() + jobs);
+                delta.setBytesIn(delta.getBytesIn() + in);
+                delta.setBytesOut(delta.getBytesOut() + out);
+                delta.setEncodeSeconds(delta.getEncodeSeconds() + seconds);
+                return delta;
+            });
+        }
+    }
+
+    /**
+     * Figures read at the last reconcile plus the changes recorded since. previous is only set while
+     * a reconcile runs and holds the changes it is folding in.
+     */
+    private static final class State {
+        final UserStats totals;
+        final int users;
+        final Map<String, Long> modeCounts;
+        final Changes previous;
+        final Changes current;
+
+        State(UserStats totals, int users, Map<String, Long> modeCounts, Changes previous, Changes current) {
+            this.totals = totals;
+            this.users = users;
+            this.modeCounts = modeCounts;
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+
+    private StatsBO() {
+    }
+
+    public static StatsBO getInstance() {
+        if (instance == null) {
+            synchronized (StatsBO.class) {
+                if (instance == null) {
+                    instance = new StatsBO();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::reconcile);
+        scheduler.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+        if (reconcileMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::reconcile, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        flush();
+    }
+
+    public void userRegistered(int userId) {
+        Changes changes = state.current;
+        changes.users.increment();
+        changes.record(userId, 0, 0, 0, 0);
+    }
+
+    public void videoUploaded(int userId, long bytes) {
+        Changes changes = state.current;
+        changes.bytesIn.add(bytes);
+        changes.record(userId, 0, bytes, 0, 0);
+    }
+
+    public void jobCompleted(int userId, String conversionMode, long outputBytes, double seconds) {
+        Changes changes = state.current;
+        changes.completedJobs.increment();
+        changes.bytesOut.add(outputBytes);
+        changes.encodeSeconds.add(seconds);
+        changes.modeCount(conversionMode).increment();
+        changes.record(userId, 1, 0, outputBytes, seconds);
+    }
+
+    /**
+     * A COMPLETED job was deleted; its output no longer counts.
+     */
+    public void jobDeleted(int userId, String conversionMode, long outputBytes, double seconds) {
+        Changes changes = state.current;
+        changes.completedJobs.decrement();
+        changes.bytesOut.add(-outputBytes);
+        changes.encodeSeconds.add(-seconds);
+        changes.modeCount(conversionMode).decrement();
+        changes.record(userId, -1, 0, -outputBytes, -seconds);
+    }
+
+    /**
+     * Write every buffered delta in one batch; on failure they are kept for the next attempt.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            Changes changes = state.current;
+            if (changes.pending.isEmpty()) return;
+
+            List<UserStats> batch = new ArrayList<>();
+            for (Integer userId : changes.pending.keySet()) {
+                UserStats delta = changes.pending.remove(userId);
+                if (delta != null) {
+                    batch.add(delta);
+                }
+            }
+            if (batch.isEmpty() || statsDAO.applyDeltas(batch)) return;
+
+            requeue(batch, changes);
+        }
+    }
+
+    private static void requeue(Iterable<UserStats> deltas, Changes changes) {
+        for (UserStats delta : deltas) {
+            changes.record(delta.getUserId(), delta.getCompletedJobs(), delta.getBytesIn(), delta.getBytesOut(),
+                    delta.getEncodeSeconds());
+        }
+    }
+
+    /**
+     * Rebuild user_stats from the source tables and take the site totals from it.
+     */
+    public void reconcile() {
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            State before = state;
+            // Everything recorded so far is already committed, so the rebuild will read it; from here
+            // on changes go to a fresh set that is applied on top of the rebuilt figures.
+            Changes fresh = new Changes();
+            state = new State(before.totals, before.users, before.modeCounts, before.current, fresh);
+
+            int users = userDAO.getTotalUsers();
+            Map<String, Integer> modes = jobDAO.getConversionModeCounts();
+            boolean rebuilt = statsDAO.rebuild();
+            UserStats totals = rebuilt ? statsDAO.getTotals() : null;
+            if (totals == null) {
+                // Keep the old figures; if user_stats was not rebuilt, the buffered deltas still need writing.
+                if (!rebuilt) {
+                    requeue(before.current.pending.values(), fresh);
+                }
+                state = new State(plus(before.totals, before.current), before.users + before.current.users.intValue(),
+                        plus(before.modeCounts, before.current), null, fresh);
+                return;
+            }
+
+            Map<String, Long> modeCounts = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : modes.entrySet()) {
+                modeCounts.put(entry.getKey(), entry.getValue().longValue());
+            }
+            state = new State(totals, users, modeCounts, null, fresh);
+            System.out.println("[Stats] Reconciled in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private static UserStats plus(UserStats totals, Changes changes) {
+        UserStats sum = new UserStats();
+        sum.setCompletedJobs(totals.getCompletedJobs() + changes.completedJobs.intValue());
+        sum.setBytesIn(totals.getBytesIn() + changes.bytesIn.sum());
+        sum.setBytesOut(totals.getBytesOut() + changes.bytesOut.sum());
+        sum.setEncodeSeconds(totals.getEncodeSeconds() + changes.encodeSeconds.sum());
+        return sum;
+    }
+
+    private static Map<String, Long> plus(Map<String, Long> modeCounts, Changes changes) {
+        Map<String, Long> sum = new HashMap<>(modeCounts);
+        for (Map.Entry<String, LongAdder> entry : changes.modeCounts.entrySet()) {
+            sum.merge(entry.getKey(), entry.getValue().sum(), Long::sum);
+        }
+        return sum;
+    }
+
+    public int getTotalUsers() {
+        State s = state;
+        int users = s.users + s.current.users.intValue();
+        return s.previous == null ? users : users + s.previous.users.intValue();
+    }
+
+    public long getCompletedJobs() {
+        State s = state;
+        long count = s.totals.getCompletedJobs() + s.current.completedJobs.sum();
+        return s.previous == null ? count : count + s.previous.completedJobs.sum();
+    }
+
+    public long getBytesIn() {
+        State s = state;
+        long bytes = s.totals.getBytesIn() + s.current.bytesIn.sum();
+        return s.previous == null ? bytes : bytes + s.previous.bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        State s = state;
+        long bytes = s.totals.getBytesOut() + s.current.bytesOut.sum();
+        return s.previous == null ? bytes : bytes + s.previous.bytesOut.sum();
+    }
+
+    public double getEncodeSeconds() {
+        State s = state;
+        double seconds = s.totals.getEncodeSeconds() + s.current.encodeSeconds.sum();
+        return s.previous == null ? seconds : seconds + s.previous.encodeSeconds.sum();
+    }
+
+    public Map<String, Long> getConversionModeCounts() {
+        State s = state;
+        Map<String, Long> counts = plus(s.modeCounts, s.current);
+        if (s.previous != null) {
+            counts = plus(counts, s.previous);
+        }
+        counts.values().removeIf(count -> count <= 0);
+        return counts;
+    }
+
+    /**
+     * Users ranked by sort, highest first, starting at rank offset + 1.
+     */
+    public List<UserStats> getUserStats(UserStatsDAO.Sort sort, int offset, int limit) {
+        return statsDAO.getPage(sort, offset, limit);
+    }
+}
@@ -4,6 +4,8 @@ import com.videoconverter.model.bean.User;
 import com.videoconverter.model.dao.UserDAO;
 import com.videoconverter.util.PasswordUtil;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * UserBO - Business logic for user operations
  */
@@ -15,7 +17,8 @@ public class UserBO {
     }
 
     /**
-     * Authenticate user with username and password
+     * Authenticate user with username and password.
+     * BCrypt work; call from a hashing thread, see {@link #authenticateAsync}.
      */
     public User authenticate(String username, String password) {
         User user = userDAO.getUserByUsername(username);
@@ -24,11 +27,27 @@ public class UserBO {
             return null;
         }
 
-        if (PasswordUtil.checkPassword(password, user.getPassword())) {
-            return user;
-        } else {
+        if (!PasswordUtil.checkPassword(password, user.getPassword())) {
             return null;
         }
+
+        // The plain password is only at hand now, so this is when a hash made with another cost is replaced.
+        if (PasswordUtil.needsRehash(user.getPassword())) {
+            String newHash = PasswordUtil.hashPassword(password);
+            if (userDAO.updatePasswordHash(user.getUserId(), user.getPassword(), newHash)) {
+                user.setPassword(newHash);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * {@link #authenticate} on the password hashing pool.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the pool's queue is full
+     */
+    public CompletableFuture<User> authenticateAsync(String username, String password) {
+        return PasswordHashPool.getInstance().submit(() -> authenticate(username, password));
     }
 
     /**
@@ -48,10 +67,23 @@ public class UserBO {
         String hashedPassword = PasswordUtil.hashPassword(password);
         User user = new User(username, hashedPassword, email);
 
-        return userDAO.createUser(user);
+        if (!userDAO.createUser(user)) {
+            return false;
+        }
+        StatsBO.getInstance().userRegistered(user.getUserId());
+        return true;
     }
 
 
+    /**
+     * {@link #register} on the password hashing pool.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the pool's queue is full
+     */
+    public CompletableFuture<Boolean> registerAsync(String username, String password, String email) {
+        return PasswordHashPool.getInstance().submit(() -> register(username, password, email));
+    }
+
     public int getTotalUsers() {
         return userDAO.getTotalUsers();
     }
@@ -2,6 +2,7 @@ package com.videoconverter.model.dao;
 
 import com.videoconverter.model.bean.ConversionJob;
 import com.videoconverter.util.DBConnection;
+import com.videoconverter.util.MetricsRegistry;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -11,16 +12,30 @@ import java.util.Map;
 
 public class ConversionJobDAO {
 
+    // Cleared on the first syntax error from a server without SKIP LOCKED (MySQL < 8.0, MariaDB < 10.6).
+    private static volatile boolean skipLockedSupported = true;
+
+    private static final MetricsRegistry.Histogram QUERY_SECONDS = MetricsRegistry.getInstance().histogram(
+            "videoconverter_db_query_seconds", "ConversionJobDAO call latency, including the pool borrow",
+            "method", MetricsRegistry.DB_BUCKETS);
+
+    private static final String START_JOB_SQL =
+            "UPDATE conversion_jobs SET status = 'PROCESSING', progress = 0, worker_id = ?, " +
+            "lease_expires_at = NOW() + INTERVAL ? SECOND, attempts = attempts + 1 " +
+            "WHERE job_id = ? AND status = 'PENDING'";
+
     public boolean createJob(ConversionJob job) {
-        String sql = "INSERT INTO conversion_jobs (video_id, user_id, output_format, status, progress) VALUES (?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
+        String sql = "INSERT INTO conversion_jobs (video_id, user_id, output_format, profile, status, progress) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, job.getVideoId());
             stmt.setInt(2, job.getUserId());
             stmt.setString(3, job.getOutputFormat());
-            stmt.setString(4, job.getStatus());
-            stmt.setInt(5, job.getProgress());
+            stmt.setString(4, job.getProfile());
+            stmt.setString(5, job.getStatus());
+            stmt.setInt(6, job.getProgress());
 
             int affected = stmt.executeUpdate();
             if (affected > 0) {
@@ -32,11 +47,14 @@ public class ConversionJobDAO {
             }
         } catch (SQLException e) {
             System.err.println("[JobDAO] Create failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("createJob", start);
         }
         return false;
     }
 
     public boolean updateJobStatus(int jobId, String status, int progress) {
+        long start = System.nanoTime();
         String sql = "UPDATE conversion_jobs SET status = ?, progress = ? WHERE job_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -48,11 +66,38 @@ public class ConversionJobDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("[JobDAO] Update status failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("updateJobStatus", start);
         }
         return false;
     }
 
+    /**
+     * Write buffered progress for many jobs in one batch. Only rows still in PROCESSING are touched.
+     * Returns the update count per entry (in map iteration order), or null if the batch failed.
+     */
+    public int[] updateProgressBatch(Map<Integer, Integer> progressByJob) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET progress = ? WHERE job_id = ? AND status = 'PROCESSING'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Map.Entry<Integer, Integer> entry : progressByJob.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setInt(2, entry.getKey());
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Batch progress update failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("updateProgressBatch", start);
+        }
+        return null;
+    }
+
     public boolean completeJob(int jobId, String outputPath) {
+        long start = System.nanoTime();
         String sql = "UPDATE conversion_jobs SET status = 'COMPLETED', progress = 100, output_path = ?, completed_at = NOW() WHERE job_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -63,11 +108,89 @@ public class ConversionJobDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("[JobDAO] Complete failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("completeJob", start);
+        }
+        return false;
+    }
+
+    /**
+     * Complete a job only if the given worker still holds its lease.
+     *
+     * @param outputSize bytes written, kept for the admin statistics
+     * @param encodeSeconds encode wall time, 0 for a reused result
+     */
+    public boolean completeJob(int jobId, String outputPath, String conversionMode, String workerId,
+                               long outputSize, double encodeSeconds) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET status = 'COMPLETED', progress = 100, output_path = ?, " +
+                     "conversion_mode = ?, output_size = ?, encode_seconds = ?, completed_at = NOW(), " +
+                     "worker_id = NULL, lease_expires_at = NULL WHERE job_id = ? AND worker_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, outputPath);
+            stmt.setString(2, conversionMode);
+            stmt.setLong(3, outputSize);
+            stmt.setDouble(4, encodeSeconds);
+            stmt.setInt(5, jobId);
+            stmt.setString(6, workerId);
+
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Complete failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("completeJob", start);
+        }
+        return false;
+    }
+
+    /**
+     * Record where a running job writes its output (HLS playlists are readable before completion).
+     */
+    public boolean setOutputPath(int jobId, String outputPath, String workerId) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET output_path = ? WHERE job_id = ? AND worker_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, outputPath);
+            stmt.setInt(2, jobId);
+            stmt.setString(3, workerId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Set output path failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("setOutputPath", start);
+        }
+        return false;
+    }
+
+    /**
+     * Fail a job only if the given worker still holds its lease.
+     */
+    public boolean failJob(int jobId, String errorMessage, String workerId) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET status = 'FAILED', error_message = ?, completed_at = NOW(), " +
+                     "worker_id = NULL, lease_expires_at = NULL WHERE job_id = ? AND worker_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, errorMessage);
+            stmt.setInt(2, jobId);
+            stmt.setString(3, workerId);
+
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Fail job failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("failJob", start);
         }
         return false;
     }
 
     public boolean failJob(int jobId, String errorMessage) {
+        long start = System.nanoTime();
         String sql = "UPDATE conversion_jobs SET status = 'FAILED', error_message = ?, completed_at = NOW() WHERE job_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -78,11 +201,14 @@ public class ConversionJobDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("[JobDAO] Fail job failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("failJob", start);
         }
         return false;
     }
 
     public ConversionJob getJobById(int jobId) {
+        long start = System.nanoTime();
         String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
                      "INNER JOIN videos v ON j.video_id = v.video_id WHERE j.job_id = ?";
         try (Connection conn = DBConnection.getConnection();
@@ -96,19 +222,39 @@ public class ConversionJobDAO {
             }
         } catch (SQLException e) {
             System.err.println("[JobDAO] Get by ID failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getJobById", start);
         }
         return null;
     }
 
-    public List<ConversionJob> getJobsByUserId(int userId) {
+    /**
+     * One page of the user's finished jobs, newest first, read in (created_at, job_id) order from
+     * idx_user_created so MySQL stops after the page instead of sorting the user's whole history.
+     *
+     * @param beforeCreatedAt created_at of the last row already shown, or null for the first page
+     * @param beforeJobId job_id of that row
+     */
+    public List<ConversionJob> getJobsByUserId(int userId, Timestamp beforeCreatedAt, int beforeJobId, int limit) {
+        long start = System.nanoTime();
         List<ConversionJob> jobs = new ArrayList<>();
         String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
                      "INNER JOIN videos v ON j.video_id = v.video_id " +
-                     "WHERE j.user_id = ? ORDER BY j.created_at DESC";
+                     "WHERE j.user_id = ? AND j.status NOT IN ('PENDING', 'PROCESSING') " +
+                     (beforeCreatedAt == null ? "" :
+                     "AND (j.created_at < ? OR (j.created_at = ? AND j.job_id < ?)) ") +
+                     "ORDER BY j.created_at DESC, j.job_id DESC LIMIT ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, userId);
+            int i = 1;
+            stmt.setInt(i++, userId);
+            if (beforeCreatedAt != null) {
+                stmt.setTimestamp(i++, beforeCreatedAt);
+                stmt.setTimestamp(i++, beforeCreatedAt);
+                stmt.setInt(i++, beforeJobId);
+            }
+            stmt.setInt(i, limit);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -116,11 +262,41 @@ public class ConversionJobDAO {
             }
         } catch (SQLException e) {
             System.err.println("[JobDAO] Get by user failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getJobsByUserId", start);
+        }
+        return jobs;
+    }
+
+    /**
+     * The user's PENDING and PROCESSING jobs, the part of the status page that gets live updates.
+     */
+    public List<ConversionJob> getActiveJobsByUserId(int userId) {
+        long start = System.nanoTime();
+        List<ConversionJob> jobs = new ArrayList<>();
+        String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
+                     "INNER JOIN videos v ON j.video_id = v.video_id " +
+                     "WHERE j.user_id = ? AND j.status IN ('PENDING', 'PROCESSING') " +
+                     "ORDER BY j.created_at DESC, j.job_id DESC";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                jobs.add(extractJob(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Get active by user failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getActiveJobsByUserId", start);
         }
         return jobs;
     }
 
     public List<ConversionJob> getPendingJobs() {
+        long start = System.nanoTime();
         List<ConversionJob> jobs = new ArrayList<>();
         String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
                      "INNER JOIN videos v ON j.video_id = v.video_id " +
@@ -134,11 +310,421 @@ public class ConversionJobDAO {
             }
         } catch (SQLException e) {
             System.err.println("[JobDAO] Get pending failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getPendingJobs", start);
+        }
+        return jobs;
+    }
+
+    // Claimers try this many of the best candidates before giving up on a poll.
+    private static final int CLAIM_CANDIDATES = 10;
+
+    // Oldest PENDING job of the user with the fewest running jobs, skipping users at their cap.
+    private static final String FAIR_PENDING_SQL =
+            "SELECT j.job_id FROM conversion_jobs j " +
+            "LEFT JOIN (SELECT user_id, COUNT(*) AS active FROM conversion_jobs " +
+            "WHERE status = 'PROCESSING' GROUP BY user_id) a ON a.user_id = j.user_id " +
+            "WHERE j.status = 'PENDING' AND COALESCE(a.active, 0) < ? " +
+            "ORDER BY COALESCE(a.active, 0) ASC, j.created_at ASC, j.job_id ASC ";
+
+    /**
+     * Atomically claim the next PENDING job and mark it PROCESSING. Users with fewer running jobs
+     * go first; users already running maxActivePerUser jobs are skipped.
+     * Safe to call from any number of workers and JVMs; returns null if nothing is eligible.
+     */
+    public ConversionJob claimNextPendingJob(String workerId, int leaseSeconds, int maxActivePerUser) {
+        long start = System.nanoTime();
+        try {
+            return claim(workerId, leaseSeconds, maxActivePerUser);
+        } finally {
+            QUERY_SECONDS.observeSince("claimNextPendingJob", start);
+        }
+    }
+
+    private ConversionJob claim(String workerId, int leaseSeconds, int maxActivePerUser) {
+        if (skipLockedSupported) {
+            try {
+                Integer jobId = claimWithSkipLocked(workerId, leaseSeconds, maxActivePerUser);
+                return jobId == null ? null : getJobById(jobId);
+            } catch (SQLSyntaxErrorException e) {
+                skipLockedSupported = false;
+                System.err.println("[JobDAO] SKIP LOCKED not supported, using conditional update: " + e.getMessage());
+            } catch (SQLException e) {
+                System.err.println("[JobDAO] Claim failed: " + e.getMessage());
+                return null;
+            }
+        }
+
+        try {
+            Integer jobId = claimWithConditionalUpdate(workerId, leaseSeconds, maxActivePerUser);
+            return jobId == null ? null : getJobById(jobId);
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Claim failed: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // The fair order sorts on a computed per-user count, so MySQL reads (and under FOR UPDATE would
+    // lock) every PENDING row before applying the LIMIT. Candidates are therefore picked with a
+    // plain read and only the chosen row is locked, by primary key.
+    private Integer claimWithSkipLocked(String workerId, int leaseSeconds, int maxActivePerUser) throws SQLException {
+        String lockSql = "SELECT job_id FROM conversion_jobs WHERE job_id = ? AND status = 'PENDING' " +
+                         "FOR UPDATE SKIP LOCKED";
+        String updateSql = "UPDATE conversion_jobs SET status = 'PROCESSING', progress = 0, worker_id = ?, " +
+                           "lease_expires_at = NOW() + INTERVAL ? SECOND, attempts = attempts + 1 WHERE job_id = ?";
+        try (Connection conn = DBConnection.getConnection()) {
+            List<Integer> candidates = fairCandidates(conn, maxActivePerUser);
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement lock = conn.prepareStatement(lockSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql)) {
+                // A candidate locked or taken by another worker is skipped, not waited for.
+                for (int jobId : candidates) {
+                    lock.setInt(1, jobId);
+                    boolean locked;
+                    try (ResultSet rs = lock.executeQuery()) {
+                        locked = rs.next();
+                    }
+                    if (!locked) {
+                        continue;
+                    }
+                    update.setString(1, workerId);
+                    update.setInt(2, leaseSeconds);
+                    update.setInt(3, jobId);
+                    update.executeUpdate();
+                    conn.commit();
+                    return jobId;
+                }
+                conn.commit();
+                return null;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private List<Integer> fairCandidates(Connection conn, int maxActivePerUser) throws SQLException {
+        List<Integer> candidates = new ArrayList<>();
+        try (PreparedStatement select = conn.prepareStatement(FAIR_PENDING_SQL + "LIMIT " + CLAIM_CANDIDATES)) {
+            select.setInt(1, maxActivePerUser);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(rs.getInt(1));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private Integer claimWithConditionalUpdate(String workerId, int leaseSeconds, int maxActivePerUser) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement update = conn.prepareStatement(START_JOB_SQL)) {
+
+            List<Integer> candidates = fairCandidates(conn, maxActivePerUser);
+            // Whoever flips PENDING -> PROCESSING first owns the job; losers try the next candidate.
+            for (int jobId : candidates) {
+                update.setString(1, workerId);
+                update.setInt(2, leaseSeconds);
+                update.setInt(3, jobId);
+                if (update.executeUpdate() == 1) {
+                    return jobId;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move a specific PENDING job to PROCESSING under a lease. False if it is no longer PENDING.
+     */
+    public boolean startJob(int jobId, String workerId, int leaseSeconds) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(START_JOB_SQL)) {
+
+            stmt.setString(1, workerId);
+            stmt.setInt(2, leaseSeconds);
+            stmt.setInt(3, jobId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Start job failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("startJob", start);
+        }
+        return false;
+    }
+
+    /**
+     * The other PENDING jobs on the same video and profile (formats requested with the same upload)
+     * as jobId. HLS jobs are left out; they always run on their own. The caller claims the ones it
+     * can run with startJob.
+     */
+    public List<ConversionJob> getPendingSiblingJobs(int videoId, int jobId, String profile) {
+        long start = System.nanoTime();
+        List<ConversionJob> siblings = new ArrayList<>();
+        String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
+                     "INNER JOIN videos v ON j.video_id = v.video_id " +
+                     "WHERE j.video_id = ? AND j.job_id <> ? AND j.profile = ? AND j.status = 'PENDING' " +
+                     "AND j.output_format <> 'hls' " +
+                     "ORDER BY j.job_id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, videoId);
+            stmt.setInt(2, jobId);
+            stmt.setString(3, profile);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    siblings.add(extractJob(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Get siblings failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getPendingSiblingJobs", start);
+        }
+        return siblings;
+    }
+
+    /**
+     * Extend the leases of jobs held by workers. Returns update counts per entry (0 = lease lost),
+     * or null if the batch failed.
+     */
+    public int[] renewLeases(Map<Integer, String> workerByJob, int leaseSeconds) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET lease_expires_at = NOW() + INTERVAL ? SECOND " +
+                     "WHERE job_id = ? AND worker_id = ? AND status = 'PROCESSING'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Map.Entry<Integer, String> entry : workerByJob.entrySet()) {
+                stmt.setInt(1, leaseSeconds);
+                stmt.setInt(2, entry.getKey());
+                stmt.setString(3, entry.getValue());
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Lease renewal failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("renewLeases", start);
+        }
+        return null;
+    }
+
+    /**
+     * Return PROCESSING jobs whose lease has expired (or that never had one) to PENDING,
+     * or fail them once they have used up maxAttempts. Returns the jobs that were re-queued.
+     */
+    public List<ConversionJob> reapExpiredLeases(int maxAttempts) {
+        long start = System.nanoTime();
+        List<ConversionJob> requeued = new ArrayList<>();
+        String selectSql = "SELECT job_id, attempts FROM conversion_jobs WHERE status = 'PROCESSING' " +
+                           "AND (lease_expires_at IS NULL OR lease_expires_at < NOW())";
+        String requeueSql = "UPDATE conversion_jobs SET status = 'PENDING', progress = 0, worker_id = NULL, " +
+                            "lease_expires_at = NULL WHERE job_id = ? AND status = 'PROCESSING' " +
+                            "AND (lease_expires_at IS NULL OR lease_expires_at < NOW())";
+        String failSql = "UPDATE conversion_jobs SET status = 'FAILED', error_message = ?, worker_id = NULL, " +
+                         "lease_expires_at = NULL, completed_at = NOW() WHERE job_id = ? AND status = 'PROCESSING' " +
+                         "AND (lease_expires_at IS NULL OR lease_expires_at < NOW())";
+        try (Connection conn = DBConnection.getConnection();
+             Statement select = conn.createStatement();
+             PreparedStatement requeue = conn.prepareStatement(requeueSql);
+             PreparedStatement fail = conn.prepareStatement(failSql)) {
+
+            Map<Integer, Integer> expired = new HashMap<>();
+            try (ResultSet rs = select.executeQuery(selectSql)) {
+                while (rs.next()) {
+                    expired.put(rs.getInt("job_id"), rs.getInt("attempts"));
+                }
+            }
+
+            for (Map.Entry<Integer, Integer> entry : expired.entrySet()) {
+                int jobId = entry.getKey();
+                if (entry.getValue() >= maxAttempts) {
+                    fail.setString(1, "Worker lost " + entry.getValue() + " time(s); giving up");
+                    fail.setInt(2, jobId);
+                    if (fail.executeUpdate() > 0) {
+                        System.err.println("[JobDAO] Job " + jobId + " failed after " + entry.getValue() + " attempts");
+                    }
+                } else {
+                    requeue.setInt(1, jobId);
+                    if (requeue.executeUpdate() > 0) {
+                        ConversionJob job = getJobById(jobId);
+                        if (job != null) {
+                            requeued.add(job);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Reap expired leases failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("reapExpiredLeases", start);
+        }
+        return requeued;
+    }
+
+    public int countPendingJobs() {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM conversion_jobs WHERE status = 'PENDING'";
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Count pending failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("countPendingJobs", start);
+        }
+        return 0;
+    }
+
+    /**
+     * Most recent COMPLETED jobs whose input had the same content hash, converted to the same
+     * format with the same profile. Callers must still check the output file exists.
+     */
+    public List<ConversionJob> findCompletedByContent(String contentHash, String outputFormat, String profile) {
+        long start = System.nanoTime();
+        List<ConversionJob> jobs = new ArrayList<>();
+        String sql = "SELECT j.*, v.filename as video_filename FROM conversion_jobs j " +
+                     "INNER JOIN videos v ON j.video_id = v.video_id " +
+                     "WHERE v.content_hash = ? AND j.output_format = ? AND j.profile = ? " +
+                     "AND j.status = 'COMPLETED' AND j.output_path IS NOT NULL " +
+                     "ORDER BY j.completed_at DESC LIMIT 5";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, contentHash);
+            stmt.setString(2, outputFormat);
+            stmt.setString(3, profile);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    jobs.add(extractJob(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Find by content failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("findCompletedByContent", start);
         }
         return jobs;
     }
 
+    /**
+     * Put a PROCESSING job held by workerId back to PENDING.
+     */
+    public boolean releaseJob(int jobId, String workerId) {
+        long start = System.nanoTime();
+        String sql = "UPDATE conversion_jobs SET status = 'PENDING', progress = 0, worker_id = NULL, " +
+                     "lease_expires_at = NULL, attempts = GREATEST(attempts - 1, 0) " +
+                     "WHERE job_id = ? AND status = 'PROCESSING' AND worker_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, jobId);
+            stmt.setString(2, workerId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Release failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("releaseJob", start);
+        }
+        return false;
+    }
+
+    /**
+     * Number of jobs pointing at this output file; outputs can be shared through the result cache.
+     */
+    public int countJobsByOutputPath(String outputPath) {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM conversion_jobs WHERE output_path = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, outputPath);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Count by output failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("countJobsByOutputPath", start);
+        }
+        return 0;
+    }
+
+    public int countJobsByVideoId(int videoId) {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM conversion_jobs WHERE video_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, videoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Count by video failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("countJobsByVideoId", start);
+        }
+        return 0;
+    }
+
+    public int countPendingJobsByUser(int userId) {
+        long start = System.nanoTime();
+        String sql = "SELECT COUNT(*) FROM conversion_jobs WHERE user_id = ? AND status = 'PENDING'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Count pending by user failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("countPendingJobsByUser", start);
+        }
+        return 0;
+    }
+
+    public Map<Integer, Integer> getPendingCountByUser() {
+        long start = System.nanoTime();
+        Map<Integer, Integer> counts = new HashMap<>();
+        String sql = "SELECT user_id, COUNT(*) AS count FROM conversion_jobs WHERE status = 'PENDING' GROUP BY user_id";
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                counts.put(rs.getInt("user_id"), rs.getInt("count"));
+            }
+        } catch (SQLException e) {
+            System.err.println("[JobDAO] Pending by user failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getPendingCountByUser", start);
+        }
+        return counts;
+    }
+
     public boolean deleteJob(int jobId) {
+        long start = System.nanoTime();
         String sql = "DELETE FROM conversion_jobs WHERE job_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -147,26 +733,34 @@ public class ConversionJobDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("[JobDAO] Delete failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("deleteJob", start);
         }
         return false;
     }
 
-    public Map<Integer, Integer> getConversionCountByUser() {
-        Map<Integer, Integer> counts = new HashMap<>();
-        String sql = "SELECT user_id, COUNT(*) as count FROM conversion_jobs WHERE status = 'COMPLETED' GROUP BY user_id";
+    public Map<String, Integer> getConversionModeCounts() {
+        long start = System.nanoTime();
+        Map<String, Integer> counts = new HashMap<>();
+        String sql = "SELECT conversion_mode, COUNT(*) as count FROM conversion_jobs " +
+                     "WHERE status = 'COMPLETED' AND conversion_mode IS NOT NULL GROUP BY conversion_mode";
         try (Connection conn = DBConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                counts.put(rs.getInt("user_id"), rs.getInt("count"));
+                counts.put(rs.getString("conversion_mode"), rs.getInt("count"));
             }
         } catch (SQLException e) {
+            System.err.println("[JobDAO] Conversion mode counts failed: " + e.getMessage());
+        } finally {
+            QUERY_SECONDS.observeSince("getConversionModeCounts", start);
         }
         return counts;
     }
 
-    private ConversionJob extractJob(ResultSet rs) throws SQLException {
+    // Package-private for the row mapping benchmark.
+    ConversionJob extractJob(ResultSet rs) throws SQLException {
         ConversionJob job = new ConversionJob(
             rs.getInt("job_id"),
             rs.getInt("video_id"),
@@ -179,6 +773,13 @@ public class ConversionJobDAO {
             rs.getTimestamp("created_at"),
             rs.getTimestamp("completed_at")
         );
+        job.setWorkerId(rs.getString("worker_id"));
+        job.setLeaseExpiresAt(rs.getTimestamp("lease_expires_at"));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setConversionMode(rs.getString("conversion_mode"));
+        job.setProfile(rs.getString("profile"));
+        job.setOutputSize(rs.getLong("output_size"));
+        job.setEncodeSeconds(rs.getDouble("encode_seconds"));
         job.setVideoFilename(rs.getString("video_filename"));
         return job;
     }
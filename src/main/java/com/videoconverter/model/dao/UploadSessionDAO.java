@@ -0,0 +1,182 @@
+package com.videoconverter.model.dao;
+
+import com.videoconverter.model.bean.UploadSession;
+import com.videoconverter.util.DBConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UploadSessionDAO {
+
+    public boolean createSession(UploadSession session) {
+        String sql = "INSERT INTO upload_sessions (upload_id, user_id, filename, output_format, profile, file_path, total_size) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, session.getUploadId());
+            stmt.setInt(2, session.getUserId());
+            stmt.setString(3, session.getFilename());
+            stmt.setString(4, session.getOutputFormat());
+            stmt.setString(5, session.getProfile());
+            stmt.setString(6, session.getFilePath());
+            stmt.setLong(7, session.getTotalSize());
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Create failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    public UploadSession getSession(String uploadId) {
+        String sql = "SELECT * FROM upload_sessions WHERE upload_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, uploadId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return extractSession(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Get failed: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Move the offset forward only if nobody else moved it first and the upload is still open.
+     * False if the expected offset was stale.
+     */
+    public boolean advanceOffset(String uploadId, long expectedOffset, long newOffset) {
+        String sql = "UPDATE upload_sessions SET received = ? WHERE upload_id = ? AND received = ? AND state = 'OPEN'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, newOffset);
+            stmt.setString(2, uploadId);
+            stmt.setLong(3, expectedOffset);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Advance failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Claim a fully received upload for job submission. False if it is incomplete or another request
+     * (on any node) claimed it first.
+     */
+    public boolean claimForSubmit(String uploadId) {
+        return updateById(uploadId, "Claim",
+                "UPDATE upload_sessions SET state = 'SUBMITTING' " +
+                "WHERE upload_id = ? AND state = 'OPEN' AND received = total_size");
+    }
+
+    /**
+     * Submission failed: let the client retry.
+     */
+    public boolean reopen(String uploadId) {
+        return updateById(uploadId, "Reopen",
+                "UPDATE upload_sessions SET state = 'OPEN' WHERE upload_id = ? AND state = 'SUBMITTING'");
+    }
+
+    /**
+     * Record the created jobs, so a repeated completion returns them instead of submitting again.
+     */
+    public boolean markSubmitted(String uploadId, String jobIds) {
+        String sql = "UPDATE upload_sessions SET state = 'SUBMITTED', job_ids = ? " +
+                     "WHERE upload_id = ? AND state = 'SUBMITTING'";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, jobIds);
+            stmt.setString(2, uploadId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Mark submitted failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private boolean updateById(String uploadId, String action, String sql) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, uploadId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] " + action + " failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Delete the session only while it is still OPEN, i.e. its file does not belong to any job yet.
+     */
+    public boolean deleteOpenSession(String uploadId) {
+        return updateById(uploadId, "Delete", "DELETE FROM upload_sessions WHERE upload_id = ? AND state = 'OPEN'");
+    }
+
+    /**
+     * Delete the session unless it is SUBMITTED, for expired sessions whose submission never finished.
+     */
+    public boolean deleteUnsubmittedSession(String uploadId) {
+        return updateById(uploadId, "Delete",
+                "DELETE FROM upload_sessions WHERE upload_id = ? AND state <> 'SUBMITTED'");
+    }
+
+    public boolean deleteSession(String uploadId) {
+        String sql = "DELETE FROM upload_sessions WHERE upload_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, uploadId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Delete failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Sessions with no chunk received for the given number of hours.
+     */
+    public List<UploadSession> getExpiredSessions(int idleHours) {
+        List<UploadSession> sessions = new ArrayList<>();
+        String sql = "SELECT * FROM upload_sessions WHERE updated_at < NOW() - INTERVAL ? HOUR";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, idleHours);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sessions.add(extractSession(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[UploadDAO] Get expired failed: " + e.getMessage());
+        }
+        return sessions;
+    }
+
+    private UploadSession extractSession(ResultSet rs) throws SQLException {
+        UploadSession session = new UploadSession(
+            rs.getString("upload_id"),
+            rs.getInt("user_id"),
+            rs.getString("filename"),
+            rs.getString("output_format"),
+            rs.getString("file_path"),
+            rs.getLong("total_size")
+        );
+        session.setProfile(rs.getString("profile"));
+        session.setReceived(rs.getLong("received"));
+        session.setState(rs.getString("state"));
+        session.setJobIds(rs.getString("job_ids"));
+        session.setCreatedAt(rs.getTimestamp("created_at"));
+        session.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return session;
+    }
+}
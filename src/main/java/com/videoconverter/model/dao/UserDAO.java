@@ -66,6 +66,24 @@ public class UserDAO {
         return false;
     }
 
+    /**
+     * Replace a password hash, only if it is still the one that was read (no concurrent change).
+     */
+    public boolean updatePasswordHash(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, oldHash);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("[UserDAO] Error updating password hash: " + e.getMessage());
+        }
+        return false;
+    }
+
     public int getTotalUsers() {
         String sql = "SELECT COUNT(*) FROM users WHERE role = 'USER'";
         try (Connection conn = DBConnection.getConnection();
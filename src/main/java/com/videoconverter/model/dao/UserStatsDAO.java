@@ -0,0 +1,154 @@
+package com.videoconverter.model.dao;
+
+import com.videoconverter.model.bean.UserStats;
+import com.videoconverter.util.DBConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class UserStatsDAO {
+
+    /** Columns the dashboard can rank by; the name goes into ORDER BY, so only these are accepted. */
+    public enum Sort {
+        COMPLETED("completed_jobs"),
+        BYTES_IN("bytes_in"),
+        BYTES_OUT("bytes_out"),
+        ENCODE_SECONDS("encode_seconds");
+
+        private final String column;
+
+        Sort(String column) {
+            this.column = column;
+        }
+
+        public static Sort parse(String value) {
+            if (value != null) {
+                for (Sort sort : values()) {
+                    if (sort.name().equalsIgnoreCase(value)) {
+                        return sort;
+                    }
+                }
+            }
+            return COMPLETED;
+        }
+    }
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO user_stats (user_id, completed_jobs, bytes_in, bytes_out, encode_seconds) " +
+            "SELECT u.user_id, COALESCE(j.completed, 0), COALESCE(v.bytes_in, 0), " +
+            "COALESCE(j.bytes_out, 0), COALESCE(j.encode_seconds, 0) FROM users u " +
+            "LEFT JOIN (SELECT user_id, COUNT(*) AS completed, SUM(output_size) AS bytes_out, " +
+            "SUM(encode_seconds) AS encode_seconds FROM conversion_jobs WHERE status = 'COMPLETED' " +
+            "GROUP BY user_id) j ON j.user_id = u.user_id " +
+            "LEFT JOIN (SELECT user_id, SUM(file_size) AS bytes_in FROM videos GROUP BY user_id) v " +
+            "ON v.user_id = u.user_id";
+
+    /**
+     * Add each delta to the user's row, creating it if needed, in one batch.
+     */
+    public boolean applyDeltas(Collection<UserStats> deltas) {
+        String sql = "INSERT INTO user_stats (user_id, completed_jobs, bytes_in, bytes_out, encode_seconds) " +
+                     "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                     "completed_jobs = completed_jobs + VALUES(completed_jobs), " +
+                     "bytes_in = bytes_in + VALUES(bytes_in), bytes_out = bytes_out + VALUES(bytes_out), " +
+                     "encode_seconds = encode_seconds + VALUES(encode_seconds)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (UserStats delta : deltas) {
+                stmt.setInt(1, delta.getUserId());
+                stmt.setInt(2, delta.getCompletedJobs());
+                stmt.setLong(3, delta.getBytesIn());
+                stmt.setLong(4, delta.getBytesOut());
+                stmt.setDouble(5, delta.getEncodeSeconds());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("[UserStatsDAO] Apply deltas failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Recompute every row from conversion_jobs and videos in one transaction.
+     */
+    public boolean rebuild() {
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM user_stats");
+                stmt.executeUpdate(REBUILD_SQL);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            System.err.println("[UserStatsDAO] Rebuild failed: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Sum of every row (userId is left 0).
+     */
+    public UserStats getTotals() {
+        String sql = "SELECT COALESCE(SUM(completed_jobs), 0) AS completed_jobs, " +
+                     "COALESCE(SUM(bytes_in), 0) AS bytes_in, COALESCE(SUM(bytes_out), 0) AS bytes_out, " +
+                     "COALESCE(SUM(encode_seconds), 0) AS encode_seconds FROM user_stats";
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return extractTotals(rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("[UserStatsDAO] Totals failed: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * One page of users ranked by the given column, highest first.
+     */
+    public List<UserStats> getPage(Sort sort, int offset, int limit) {
+        List<UserStats> page = new ArrayList<>();
+        String sql = "SELECT s.*, u.username FROM user_stats s INNER JOIN users u ON s.user_id = u.user_id " +
+                     "ORDER BY s." + sort.column + " DESC, s.user_id ASC LIMIT ? OFFSET ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                UserStats stats = extractTotals(rs);
+                stats.setUserId(rs.getInt("user_id"));
+                stats.setUsername(rs.getString("username"));
+                page.add(stats);
+            }
+        } catch (SQLException e) {
+            System.err.println("[UserStatsDAO] Get page failed: " + e.getMessage());
+        }
+        return page;
+    }
+
+    private UserStats extractTotals(ResultSet rs) throws SQLException {
+        UserStats stats = new UserStats();
+        stats.setCompletedJobs(rs.getInt("completed_jobs"));
+        stats.setBytesIn(rs.getLong("bytes_in"));
+        stats.setBytesOut(rs.getLong("bytes_out"));
+        stats.setEncodeSeconds(rs.getDouble("encode_seconds"));
+        return stats;
+    }
+}
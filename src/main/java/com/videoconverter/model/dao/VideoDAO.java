@@ -2,13 +2,14 @@ package com.videoconverter.model.dao;
 
 import com.videoconverter.model.bean.Video;
 import com.videoconverter.util.DBConnection;
+import com.videoconverter.util.MediaInfo;
 
 import java.sql.*;
 
 public class VideoDAO {
 
     public boolean createVideo(Video video) {
-        String sql = "INSERT INTO videos (user_id, filename, file_path, file_size) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO videos (user_id, filename, file_path, file_size, content_hash) VALUES (?, ?, ?, ?, ?)";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
@@ -16,6 +17,7 @@ public class VideoDAO {
             stmt.setString(2, video.getFilename());
             stmt.setString(3, video.getFilePath());
             stmt.setLong(4, video.getFileSize());
+            stmt.setString(5, video.getContentHash());
 
             int affected = stmt.executeUpdate();
             if (affected > 0) {
@@ -40,19 +42,57 @@ public class VideoDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return new Video(
-                    rs.getInt("video_id"),
-                    rs.getInt("user_id"),
-                    rs.getString("filename"),
-                    rs.getString("file_path"),
-                    rs.getLong("file_size"),
-                    rs.getTimestamp("uploaded_at")
-                );
+                return extractVideo(rs);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
+
+    public boolean updateMetadata(int videoId, MediaInfo info) {
+        String sql = "UPDATE videos SET container = ?, duration = ?, video_codec = ?, audio_codec = ?, " +
+                     "width = ?, height = ?, frame_rate = ?, bit_rate = ? WHERE video_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, info.getFormatName());
+            stmt.setDouble(2, info.getDurationSeconds());
+            stmt.setString(3, info.getVideoCodec());
+            stmt.setString(4, info.getAudioCodec());
+            stmt.setInt(5, info.getWidth());
+            stmt.setInt(6, info.getHeight());
+            stmt.setDouble(7, info.getFrameRate());
+            stmt.setLong(8, info.getBitRate());
+            stmt.setInt(9, videoId);
+
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private Video extractVideo(ResultSet rs) throws SQLException {
+        Video video = new Video(
+            rs.getInt("video_id"),
+            rs.getInt("user_id"),
+            rs.getString("filename"),
+            rs.getString("file_path"),
+            rs.getLong("file_size"),
+            rs.getTimestamp("uploaded_at")
+        );
+        video.setContentHash(rs.getString("content_hash"));
+        video.setContainer(rs.getString("container"));
+        double duration = rs.getDouble("duration");
+        video.setDuration(rs.wasNull() ? null : duration);
+        video.setVideoCodec(rs.getString("video_codec"));
+        video.setAudioCodec(rs.getString("audio_codec"));
+        video.setWidth(rs.getInt("width"));
+        video.setHeight(rs.getInt("height"));
+        video.setFrameRate(rs.getDouble("frame_rate"));
+        video.setBitRate(rs.getLong("bit_rate"));
+        return video;
+    }
 }
 
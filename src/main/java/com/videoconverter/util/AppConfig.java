@@ -0,0 +1,57 @@
+package com.videoconverter.util;
+
+/**
+ * Runtime configuration lookup: JVM system property first, then environment variable, then default.
+ * Keys use the environment style (e.g. DB_POOL_MAX_SIZE) so the same name works in Docker and -D flags.
+ */
+public final class AppConfig {
+
+    private AppConfig() {
+    }
+
+    public static String getString(String key, String def) {
+        String v = System.getProperty(key);
+        if (v == null || v.isEmpty()) {
+            v = System.getenv(key);
+        }
+        return (v == null || v.isEmpty()) ? def : v.trim();
+    }
+
+    public static int getInt(String key, int def) {
+        String v = getString(key, null);
+        if (v == null) return def;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            System.err.println("[AppConfig] Invalid integer for " + key + ": " + v);
+            return def;
+        }
+    }
+
+    public static long getLong(String key, long def) {
+        String v = getString(key, null);
+        if (v == null) return def;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            System.err.println("[AppConfig] Invalid long for " + key + ": " + v);
+            return def;
+        }
+    }
+
+    public static double getDouble(String key, double def) {
+        String v = getString(key, null);
+        if (v == null) return def;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            System.err.println("[AppConfig] Invalid number for " + key + ": " + v);
+            return def;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean def) {
+        String v = getString(key, null);
+        return v == null ? def : Boolean.parseBoolean(v);
+    }
+}
@@ -0,0 +1,453 @@
+package com.videoconverter.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Borrowers get a proxy whose close() hands the physical connection back to the pool.
+ * A housekeeper thread evicts idle/expired connections, keeps the minimum idle count
+ * and reports connections that have been borrowed for longer than the leak threshold.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakThresholdMs;
+    private final boolean leakTrace;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong closedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+
+        this.maxSize = Math.max(1, AppConfig.getInt("DB_POOL_MAX_SIZE", 10));
+        this.minIdle = Math.max(0, Math.min(maxSize, AppConfig.getInt("DB_POOL_MIN_IDLE", 2)));
+        this.connectionTimeoutMs = AppConfig.getLong("DB_POOL_CONNECTION_TIMEOUT_MS", 10_000L);
+        this.idleTimeoutMs = AppConfig.getLong("DB_POOL_IDLE_TIMEOUT_MS", 300_000L);
+        this.maxLifetimeMs = AppConfig.getLong("DB_POOL_MAX_LIFETIME_MS", 1_800_000L);
+        this.leakThresholdMs = AppConfig.getLong("DB_POOL_LEAK_THRESHOLD_MS", 60_000L);
+        // Capturing a stack trace on every borrow is costly; only the borrow time is kept by default.
+        this.leakTrace = leakThresholdMs > 0 && AppConfig.getBoolean("DB_POOL_LEAK_TRACE", false);
+        this.validationIntervalMs = AppConfig.getLong("DB_POOL_VALIDATION_INTERVAL_MS", 500L);
+        this.validationTimeoutSeconds = AppConfig.getInt("DB_POOL_VALIDATION_TIMEOUT_S", 3);
+
+        this.permits = new Semaphore(maxSize, true);
+
+        long housekeepingMs = AppConfig.getLong("DB_POOL_HOUSEKEEPING_MS", 30_000L);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingMs, housekeepingMs, TimeUnit.MILLISECONDS);
+
+        System.out.println("[ConnectionPool] Initialized (max=" + maxSize + ", minIdle=" + minIdle
+                + ", timeout=" + connectionTimeoutMs + "ms)");
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + connectionTimeoutMs
+                        + "ms waiting for a connection (active=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc)) {
+                    break;
+                }
+                discard(pc);
+            }
+            if (pc == null) {
+                pc = createConnection();
+            }
+
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowSite = leakTrace ? new Throwable("Connection borrowed here") : null;
+            pc.leakReported = false;
+            borrowed.add(pc);
+
+            long waited = System.nanoTime() - start;
+            borrowCount.incrementAndGet();
+            waitNanosTotal.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (maxLifetimeMs > 0 && now - pc.createdAt > maxLifetimeMs) {
+            return false;
+        }
+        if (now - pc.lastUsed < validationIntervalMs) {
+            return true;
+        }
+        try {
+            if (pc.physical.isValid(validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        try {
+            if (closed || pc.broken || totalConnections.get() > maxSize) {
+                discard(pc);
+                return;
+            }
+            try {
+                if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback();
+                    pc.physical.setAutoCommit(true);
+                }
+                pc.physical.clearWarnings();
+            } catch (SQLException e) {
+                discard(pc);
+                return;
+            }
+            pc.lastUsed = System.currentTimeMillis();
+            pc.borrowSite = null;
+            idle.offerFirst(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        closedCount.incrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict from the cold end of the deque; borrowers take from the warm end.
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                boolean expired = maxLifetimeMs > 0 && now - pc.createdAt > maxLifetimeMs;
+                boolean idleTooLong = idleTimeoutMs > 0 && now - pc.lastUsed > idleTimeoutMs
+                        && idle.size() > minIdle;
+                if ((expired || idleTooLong) && idle.remove(pc)) {
+                    discard(pc);
+                }
+            }
+
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pc : borrowed) {
+                    if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMs) {
+                        pc.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.err.println("[ConnectionPool] Possible connection leak: held for "
+                                + (now - pc.borrowedAt) + "ms");
+                        if (pc.borrowSite != null) {
+                            pc.borrowSite.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            while (!closed && idle.size() < minIdle) {
+                int total = totalConnections.get();
+                if (total >= maxSize || !totalConnections.compareAndSet(total, total + 1)) {
+                    break;
+                }
+                try {
+                    idle.offerLast(new PooledConnection(DriverManager.getConnection(url, user, password)));
+                    createdCount.incrementAndGet();
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    System.err.println("[ConnectionPool] Cannot fill idle connections: " + e.getMessage());
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[ConnectionPool] Housekeeping error: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+        if (!borrowed.isEmpty()) {
+            System.err.println("[ConnectionPool] Shutdown with " + borrowed.size() + " connection(s) still borrowed");
+        }
+    }
+
+    public Stats getStats() {
+        long borrows = borrowCount.get();
+        return new Stats(
+            maxSize,
+            totalConnections.get(),
+            borrowed.size(),
+            idle.size(),
+            permits.getQueueLength(),
+            borrows,
+            borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanosTotal.get() / borrows) / 1000.0,
+            TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()) / 1000.0,
+            timeoutCount.get(),
+            leakCount.get(),
+            createdCount.get(),
+            closedCount.get(),
+            validationFailures.get()
+        );
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        volatile long lastUsed;
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsed = createdAt;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle(this));
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. close() returns it to the pool exactly once;
+     * any other call after that fails like a closed physical connection would.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private volatile boolean returned = false;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        pc.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * Point-in-time pool metrics.
+     */
+    public static class Stats {
+        private final int maxSize;
+        private final int total;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long borrowCount;
+        private final double avgWaitMs;
+        private final double maxWaitMs;
+        private final long timeouts;
+        private final long leaks;
+        private final long created;
+        private final long closed;
+        private final long validationFailures;
+
+        Stats(int maxSize, int total, int active, int idle, int waiting, long borrowCount,
+              double avgWaitMs, double maxWaitMs, long timeouts, long leaks,
+              long created, long closed, long validationFailures) {
+            this.maxSize = maxSize;
+            this.total = total;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.avgWaitMs = avgWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.timeouts = timeouts;
+            this.leaks = leaks;
+            this.created = created;
+            this.closed = closed;
+            this.validationFailures = validationFailures;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public double getAvgWaitMs() {
+            return avgWaitMs;
+        }
+
+        public double getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getLeaks() {
+            return leaks;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getClosed() {
+            return closed;
+        }
+
+        public long getValidationFailures() {
+            return validationFailures;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "active=" + active +
+                    ", idle=" + idle +
+                    ", total=" + total + "/" + maxSize +
+                    ", waiting=" + waiting +
+                    ", avgWaitMs=" + String.format("%.2f", avgWaitMs) +
+                    ", timeouts=" + timeouts +
+                    ", leaks=" + leaks +
+                    '}';
+        }
+    }
+}
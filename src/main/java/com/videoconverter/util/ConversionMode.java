@@ -0,0 +1,13 @@
+package com.videoconverter.util;
+
+/**
+ * How FFmpegWrapper produced an output file.
+ */
+public enum ConversionMode {
+    COPY,        // remux only: all streams copied
+    COPY_VIDEO,  // video copied, audio re-encoded
+    GPU,         // full encode on the GPU pipeline
+    CPU,         // full encode on the CPU
+    CPU_SEGMENTED, // CPU encode of a long input split into time ranges encoded in parallel
+    CACHED       // reused the output of an earlier job with the same input, format and profile
+}
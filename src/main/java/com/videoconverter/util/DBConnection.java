@@ -1,25 +1,22 @@
 package com.videoconverter.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConnection {
 
     // Read environment variables (Docker) with local fallbacks
-    private static final String DB_HOST = getenv("DB_HOST", "localhost");
-    private static final String DB_PORT = getenv("DB_PORT", "3306");
-    private static final String DB_NAME = getenv("DB_NAME", "video_converter");
-    private static final String DB_USER = getenv("DB_USER", "root");
-    private static final String DB_PASSWORD = getenv("DB_PASSWORD", "");
-
-    private static final String JDBC_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME
-            + "?useSSL=false&allowPublicKeyRetrieval=true&characterEncoding=UTF-8&serverTimezone=Asia/Ho_Chi_Minh";
-
-    private static String getenv(String key, String def) {
-        String v = System.getenv(key);
-        return (v == null || v.isEmpty()) ? def : v;
-    }
+    private static final String DB_HOST = AppConfig.getString("DB_HOST", "localhost");
+    private static final String DB_PORT = AppConfig.getString("DB_PORT", "3306");
+    private static final String DB_NAME = AppConfig.getString("DB_NAME", "video_converter");
+    private static final String DB_USER = AppConfig.getString("DB_USER", "root");
+    private static final String DB_PASSWORD = AppConfig.getString("DB_PASSWORD", "");
+
+    // DB_URL replaces the whole MySQL URL, e.g. to run against another driver.
+    private static final String JDBC_URL = AppConfig.getString("DB_URL", "jdbc:mysql://" + DB_HOST + ":" + DB_PORT
+            + "/" + DB_NAME
+            + "?useSSL=false&allowPublicKeyRetrieval=true&characterEncoding=UTF-8&serverTimezone=Asia/Ho_Chi_Minh"
+            + "&rewriteBatchedStatements=true");
 
     static {
         try {
@@ -30,7 +27,26 @@ public class DBConnection {
         }
     }
 
+    private static final ConnectionPool POOL = new ConnectionPool(JDBC_URL, DB_USER, DB_PASSWORD);
+
+    static {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("videoconverter_db_pool_active", "Connections borrowed from the pool",
+                () -> POOL.getStats().getActive());
+        metrics.gauge("videoconverter_db_pool_idle", "Idle pooled connections", () -> POOL.getStats().getIdle());
+        metrics.gauge("videoconverter_db_pool_waiting", "Threads waiting for a connection",
+                () -> POOL.getStats().getWaiting());
+    }
+
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, DB_USER, DB_PASSWORD);
+        return POOL.getConnection();
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    public static void shutdown() {
+        POOL.shutdown();
     }
 }
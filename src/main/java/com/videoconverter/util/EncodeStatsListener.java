@@ -0,0 +1,10 @@
+package com.videoconverter.util;
+
+/**
+ * Receives the speed (multiple of real time) and frames per second of a running ffmpeg, once per
+ * progress block. fps is -1 when ffmpeg does not report it.
+ */
+@FunctionalInterface
+public interface EncodeStatsListener {
+    void onStats(double speed, double fps);
+}
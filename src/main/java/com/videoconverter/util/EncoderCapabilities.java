@@ -0,0 +1,285 @@
+package com.videoconverter.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EncoderCapabilities - One-time probe of what the local ffmpeg can actually do.
+ *
+ * Lists hwaccels and encoders, then runs a tiny test encode for each GPU encoder, because distro
+ * ffmpeg builds list nvenc even on machines without an NVIDIA GPU. The result is cached until
+ * {@link #probe()} is called again (startup and the admin page "Re-probe" button).
+ */
+public class EncoderCapabilities {
+    private static volatile EncoderCapabilities instance;
+
+    private static final int PROBE_TIMEOUT_SECONDS = 20;
+    private static final int GPU_MAX_CONSECUTIVE_FAILURES = 3;
+
+    private volatile Snapshot snapshot;
+    private final AtomicInteger gpuConsecutiveFailures = new AtomicInteger();
+
+    private EncoderCapabilities() {
+    }
+
+    public static EncoderCapabilities getInstance() {
+        if (instance == null) {
+            synchronized (EncoderCapabilities.class) {
+                if (instance == null) {
+                    instance = new EncoderCapabilities();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Run (or re-run) the probe and replace the cached result.
+     */
+    public synchronized Snapshot probe() {
+        String cmd = FFmpegWrapper.FFMPEG_CMD;
+        Snapshot result;
+
+        String versionOut = run(cmd, "-hide_banner", "-version");
+        if (versionOut == null) {
+            result = new Snapshot(null, Collections.emptyList(), Collections.emptySet(),
+                    false, false, false, "ffmpeg not found or not runnable: " + cmd);
+        } else {
+            String version = versionOut.lines().findFirst().orElse("").trim();
+            List<String> hwaccels = parseHwaccels(run(cmd, "-hide_banner", "-hwaccels"));
+            Set<String> encoders = parseEncoders(run(cmd, "-hide_banner", "-encoders"));
+
+            boolean cuda = hwaccels.contains("cuda")
+                    && succeeds(cmd, "-hide_banner", "-loglevel", "error",
+                        "-init_hw_device", "cuda=gpu",
+                        "-f", "lavfi", "-i", "nullsrc=s=64x64:d=0.1",
+                        "-frames:v", "1", "-f", "null", "-");
+            boolean h264Nvenc = cuda && encoders.contains("h264_nvenc") && testEncode(cmd, "h264_nvenc");
+            boolean hevcNvenc = cuda && encoders.contains("hevc_nvenc") && testEncode(cmd, "hevc_nvenc");
+
+            result = new Snapshot(version, hwaccels, encoders, cuda, h264Nvenc, hevcNvenc, null);
+        }
+
+        snapshot = result;
+        gpuConsecutiveFailures.set(0);
+        System.out.println("[EncoderCapabilities] " + result);
+        return result;
+    }
+
+    public Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        return s != null ? s : probe();
+    }
+
+    /**
+     * Whether the GPU pipeline is known to work for this output format.
+     */
+    public boolean shouldTryGpu(String format) {
+        if (gpuConsecutiveFailures.get() >= GPU_MAX_CONSECUTIVE_FAILURES) {
+            return false;
+        }
+        Snapshot s = getSnapshot();
+        if ("webm".equalsIgnoreCase(format)) {
+            // VP9 is encoded on the CPU either way; the GPU only decodes.
+            return s.isCudaUsable();
+        }
+        if ("mkv".equalsIgnoreCase(format)) {
+            return s.isHevcNvencUsable();
+        }
+        return s.isH264NvencUsable();
+    }
+
+    /**
+     * Feed back the outcome of a GPU encode. Repeated failures disable the GPU path until the next probe.
+     */
+    public void recordGpuResult(boolean success) {
+        if (success) {
+            gpuConsecutiveFailures.set(0);
+        } else if (gpuConsecutiveFailures.incrementAndGet() == GPU_MAX_CONSECUTIVE_FAILURES) {
+            System.err.println("[EncoderCapabilities] GPU encode failed " + GPU_MAX_CONSECUTIVE_FAILURES
+                    + " times in a row; using CPU until re-probe");
+        }
+    }
+
+    public boolean isGpuDisabledByFailures() {
+        return gpuConsecutiveFailures.get() >= GPU_MAX_CONSECUTIVE_FAILURES;
+    }
+
+    private boolean testEncode(String cmd, String encoder) {
+        return succeeds(cmd, "-hide_banner", "-loglevel", "error",
+                "-f", "lavfi", "-i", "color=c=black:s=256x256:d=0.2",
+                "-c:v", encoder, "-f", "null", "-");
+    }
+
+    private static List<String> parseHwaccels(String output) {
+        List<String> result = new ArrayList<>();
+        if (output == null) return result;
+
+        for (String line : output.split("\\R")) {
+            String name = line.trim();
+            if (!name.isEmpty() && !name.endsWith(":")) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> parseEncoders(String output) {
+        Set<String> result = new LinkedHashSet<>();
+        if (output == null) return result;
+
+        boolean inList = false;
+        for (String line : output.split("\\R")) {
+            String trimmed = line.trim();
+            if (!inList) {
+                inList = trimmed.startsWith("------");
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length >= 2 && parts[0].length() == 6) {
+                result.add(parts[1]);
+            }
+        }
+        return result;
+    }
+
+    private static boolean succeeds(String... command) {
+        return run(command) != null;
+    }
+
+    /**
+     * Run a short ffmpeg command; returns its combined output, or null if it failed or ran past
+     * PROBE_TIMEOUT_SECONDS (the process is then killed).
+     */
+    private static String run(String... command) {
+        Process process = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            process = pb.start();
+            process.getOutputStream().close();
+
+            // Drain on a separate thread: reading to EOF here would block forever on a hung ffmpeg.
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            InputStream in = process.getInputStream();
+            Thread reader = new Thread(() -> {
+                try (in) {
+                    in.transferTo(out);
+                } catch (IOException ignored) {
+                    // stream closed by destroyForcibly
+                }
+            }, "ffmpeg-probe-output");
+            reader.setDaemon(true);
+            reader.start();
+
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[EncoderCapabilities] Timed out: " + String.join(" ", command));
+                return null;
+            }
+            reader.join(1000);
+            if (process.exitValue() != 0 || reader.isAlive()) {
+                return null;
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Immutable probe result.
+     */
+    public static class Snapshot {
+        private final String ffmpegVersion;
+        private final List<String> hwaccels;
+        private final Set<String> encoders;
+        private final boolean cudaUsable;
+        private final boolean h264NvencUsable;
+        private final boolean hevcNvencUsable;
+        private final String error;
+        private final Timestamp probedAt;
+
+        Snapshot(String ffmpegVersion, List<String> hwaccels, Set<String> encoders,
+                 boolean cudaUsable, boolean h264NvencUsable, boolean hevcNvencUsable, String error) {
+            this.ffmpegVersion = ffmpegVersion;
+            this.hwaccels = Collections.unmodifiableList(hwaccels);
+            this.encoders = Collections.unmodifiableSet(encoders);
+            this.cudaUsable = cudaUsable;
+            this.h264NvencUsable = h264NvencUsable;
+            this.hevcNvencUsable = hevcNvencUsable;
+            this.error = error;
+            this.probedAt = new Timestamp(System.currentTimeMillis());
+        }
+
+        public boolean isFfmpegAvailable() {
+            return ffmpegVersion != null;
+        }
+
+        public String getFfmpegVersion() {
+            return ffmpegVersion;
+        }
+
+        public List<String> getHwaccels() {
+            return hwaccels;
+        }
+
+        public Set<String> getEncoders() {
+            return encoders;
+        }
+
+        public boolean hasEncoder(String name) {
+            return encoders.contains(name);
+        }
+
+        public boolean isCudaUsable() {
+            return cudaUsable;
+        }
+
+        public boolean isH264NvencUsable() {
+            return h264NvencUsable;
+        }
+
+        public boolean isHevcNvencUsable() {
+            return hevcNvencUsable;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public Timestamp getProbedAt() {
+            return probedAt;
+        }
+
+        @Override
+        public String toString() {
+            if (!isFfmpegAvailable()) {
+                return "Snapshot{error='" + error + "'}";
+            }
+            return "Snapshot{" +
+                    "hwaccels=" + hwaccels +
+                    ", encoders=" + encoders.size() +
+                    ", cuda=" + cudaUsable +
+                    ", h264_nvenc=" + h264NvencUsable +
+                    ", hevc_nvenc=" + hevcNvencUsable +
+                    '}';
+        }
+    }
+}
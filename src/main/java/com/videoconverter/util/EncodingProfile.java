@@ -0,0 +1,143 @@
+package com.videoconverter.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * EncodingProfile - Named encoder settings a job is converted with (see {@link EncodingProfiles}).
+ *
+ * Built from flat keys (x264.preset, vp9.row-mt, audio.bitrate, ...); the constructor rejects
+ * values that are not plain tokens or numbers, so a bad config file cannot inject ffmpeg options.
+ */
+public final class EncodingProfile {
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z0-9_.:=+-]+");
+
+    private final String name;
+    private final String description;
+
+    // libx264 (mp4, avi, mov, mkv and HLS on the CPU)
+    private final String x264Preset;
+    private final int x264Crf;
+    private final int x264Threads;
+    private final String x264Params;
+
+    // libvpx-vp9 (webm)
+    private final int vp9Crf;
+    private final String vp9Bitrate;
+    private final int vp9Speed;
+    private final int vp9Threads;
+    private final boolean vp9RowMt;
+    private final int vp9TileColumns;
+
+    // h264_nvenc / hevc_nvenc
+    private final String nvencPreset;
+    private final int nvencCq;
+
+    private final String audioBitrate;
+
+    /**
+     * @throws IllegalArgumentException if a key is missing or malformed
+     */
+    public EncodingProfile(String name, Properties values) {
+        this.name = name;
+        this.description = values.getProperty("description", "");
+        this.x264Preset = token(values, "x264.preset");
+        this.x264Crf = number(values, "x264.crf");
+        this.x264Threads = number(values, "x264.threads");
+        String params = values.getProperty("x264.params", "").trim();
+        this.x264Params = params.isEmpty() ? null : token(values, "x264.params");
+        this.vp9Crf = number(values, "vp9.crf");
+        this.vp9Bitrate = token(values, "vp9.bitrate");
+        this.vp9Speed = number(values, "vp9.speed");
+        this.vp9Threads = number(values, "vp9.threads");
+        this.vp9RowMt = Boolean.parseBoolean(values.getProperty("vp9.row-mt", "false").trim());
+        this.vp9TileColumns = number(values, "vp9.tile-columns");
+        this.nvencPreset = token(values, "nvenc.preset");
+        this.nvencCq = number(values, "nvenc.cq");
+        this.audioBitrate = token(values, "audio.bitrate");
+    }
+
+    private static String token(Properties values, String key) {
+        String value = values.getProperty(key);
+        if (value == null || !TOKEN.matcher(value.trim()).matches()) {
+            throw new IllegalArgumentException(key + " must be a plain value, got: " + value);
+        }
+        return value.trim();
+    }
+
+    private static int number(Properties values, String key) {
+        String value = values.getProperty(key);
+        try {
+            return Integer.parseInt(value == null ? "" : value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be an integer, got: " + value);
+        }
+    }
+
+    /**
+     * Video encoder options for a CPU encode to the given container.
+     */
+    public List<String> cpuVideoArgs(String format) {
+        if ("webm".equalsIgnoreCase(format)) {
+            return vp9Args();
+        }
+        return x264Args();
+    }
+
+    public List<String> x264Args() {
+        List<String> args = new ArrayList<>(Arrays.asList("-c:v", "libx264", "-preset", x264Preset,
+                "-crf", String.valueOf(x264Crf), "-threads", String.valueOf(x264Threads)));
+        if (x264Params != null) {
+            args.addAll(Arrays.asList("-x264-params", x264Params));
+        }
+        return args;
+    }
+
+    private List<String> vp9Args() {
+        List<String> args = new ArrayList<>(Arrays.asList("-c:v", "libvpx-vp9", "-b:v", vp9Bitrate,
+                "-crf", String.valueOf(vp9Crf), "-speed", String.valueOf(vp9Speed),
+                "-threads", String.valueOf(vp9Threads)));
+        // Without row-mt libvpx only threads across tile columns, so few cores are busy.
+        if (vp9RowMt) {
+            args.addAll(Arrays.asList("-row-mt", "1"));
+        }
+        if (vp9TileColumns >= 0) {
+            args.addAll(Arrays.asList("-tile-columns", String.valueOf(vp9TileColumns)));
+        }
+        return args;
+    }
+
+    /**
+     * Rate control for an NVENC encoder (h264_nvenc or hevc_nvenc).
+     */
+    public List<String> nvencArgs(String encoder) {
+        return Arrays.asList("-c:v", encoder, "-preset", nvencPreset, "-rc", "vbr", "-cq", String.valueOf(nvencCq));
+    }
+
+    /**
+     * Audio encoder options for the given container: Opus in WebM, AAC elsewhere.
+     */
+    public List<String> audioArgs(String format) {
+        if ("webm".equalsIgnoreCase(format)) {
+            return Arrays.asList("-c:a", "libopus", "-b:a", audioBitrate);
+        }
+        return Arrays.asList("-c:a", "aac", "-b:a", audioBitrate);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (x264 " + x264Preset + "/crf " + x264Crf + ", vp9 speed " + vp9Speed + "/crf " + vp9Crf
+                + ", nvenc " + nvencPreset + "/cq " + nvencCq + ", audio " + audioBitrate + ")";
+    }
+}
@@ -0,0 +1,213 @@
+package com.videoconverter.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * EncodingProfiles - Registry of the encoding profiles jobs can ask for.
+ *
+ * Four tiers are built in: default (the old fixed settings, fastest), fast, balanced and archival.
+ * ENCODING_PROFILES_FILE may point to a properties file that changes them or adds more:
+ *
+ *   balanced.x264.preset=slow
+ *   small.extends=archival
+ *   small.vp9.crf=36
+ *
+ * A profile inherits every key it does not set from its "extends" profile (the built-in of the same
+ * name, else default). The file is re-read when it changes, so no redeploy is needed; if it no
+ * longer parses, the previous profiles stay in use.
+ */
+public class EncodingProfiles {
+    private static volatile EncodingProfiles instance;
+
+    public static final String DEFAULT = "default";
+    private static final int MAX_EXTENDS_DEPTH = 8;
+
+    private final File file;
+    private volatile Map<String, EncodingProfile> profiles;
+    private volatile long loadedModified = Long.MIN_VALUE;
+
+    private EncodingProfiles() {
+        String path = AppConfig.getString("ENCODING_PROFILES_FILE", null);
+        this.file = path == null ? null : new File(path);
+        this.profiles = build(builtIns(), new Properties());
+        reloadIfChanged();
+    }
+
+    public static EncodingProfiles getInstance() {
+        if (instance == null) {
+            synchronized (EncodingProfiles.class) {
+                if (instance == null) {
+                    instance = new EncodingProfiles();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The named profile, or null if there is none.
+     */
+    public EncodingProfile get(String name) {
+        reloadIfChanged();
+        return name == null ? null : profiles.get(name.toLowerCase());
+    }
+
+    public EncodingProfile getDefault() {
+        return get(DEFAULT);
+    }
+
+    /**
+     * The named profile, falling back to default (e.g. for a job whose profile was since removed).
+     */
+    public EncodingProfile getOrDefault(String name) {
+        EncodingProfile profile = get(name);
+        if (profile == null) {
+            System.err.println("[EncodingProfiles] Unknown profile '" + name + "', using " + DEFAULT);
+            profile = profiles.get(DEFAULT);
+        }
+        return profile;
+    }
+
+    public Collection<EncodingProfile> list() {
+        reloadIfChanged();
+        return Collections.unmodifiableCollection(profiles.values());
+    }
+
+    /**
+     * Profile names for forms, in registry order.
+     */
+    public List<String> names() {
+        return list().stream().map(EncodingProfile::getName).collect(Collectors.toList());
+    }
+
+    private void reloadIfChanged() {
+        if (file == null) {
+            return;
+        }
+        long modified = file.lastModified();
+        if (modified == loadedModified) {
+            return;
+        }
+        synchronized (this) {
+            if (modified == loadedModified) {
+                return;
+            }
+            loadedModified = modified;
+            Properties overrides = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                overrides.load(in);
+                profiles = build(builtIns(), overrides);
+                System.out.println("[EncodingProfiles] Loaded " + file + ": " + profiles.keySet());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("[EncodingProfiles] Keeping previous profiles, cannot load " + file
+                        + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, EncodingProfile> build(Map<String, Properties> builtIns, Properties overrides) {
+        // Group "name.key=value" by profile name.
+        Map<String, Properties> declared = new LinkedHashMap<>();
+        for (String key : overrides.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("expected <profile>.<key>, got: " + key);
+            }
+            declared.computeIfAbsent(key.substring(0, dot).toLowerCase(), k -> new Properties())
+                    .setProperty(key.substring(dot + 1), overrides.getProperty(key));
+        }
+
+        Set<String> names = new LinkedHashSet<>(builtIns.keySet());
+        names.addAll(declared.keySet());
+        Map<String, EncodingProfile> result = new LinkedHashMap<>();
+        for (String name : names) {
+            result.put(name, new EncodingProfile(name, resolve(name, builtIns, declared, 0)));
+        }
+        return result;
+    }
+
+    private static Properties resolve(String name, Map<String, Properties> builtIns,
+                                      Map<String, Properties> declared, int depth) {
+        if (depth > MAX_EXTENDS_DEPTH) {
+            throw new IllegalArgumentException("profile inheritance too deep at " + name);
+        }
+        Properties own = declared.getOrDefault(name, new Properties());
+        Properties values = new Properties();
+
+        String parent = own.getProperty("extends");
+        if (parent != null) {
+            parent = parent.trim().toLowerCase();
+            if (!builtIns.containsKey(parent) && !declared.containsKey(parent)) {
+                throw new IllegalArgumentException(name + " extends unknown profile " + parent);
+            }
+            values.putAll(resolve(parent, builtIns, declared, depth + 1));
+        } else if (builtIns.containsKey(name)) {
+            values.putAll(builtIns.get(name));
+        } else {
+            values.putAll(builtIns.get(DEFAULT));
+        }
+        values.putAll(own);
+        values.remove("extends");
+        return values;
+    }
+
+    private static Map<String, Properties> builtIns() {
+        Map<String, Properties> tiers = new LinkedHashMap<>();
+
+        Properties base = new Properties();
+        base.setProperty("description", "Fastest turnaround, largest files");
+        base.setProperty("x264.preset", "ultrafast");
+        base.setProperty("x264.crf", "28");
+        base.setProperty("x264.threads", "0");
+        base.setProperty("vp9.crf", "30");
+        base.setProperty("vp9.bitrate", "2M");
+        base.setProperty("vp9.speed", "4");
+        base.setProperty("vp9.threads", "0");
+        base.setProperty("vp9.row-mt", "false");
+        base.setProperty("vp9.tile-columns", "-1");
+        base.setProperty("nvenc.preset", "p4");
+        base.setProperty("nvenc.cq", "23");
+        base.setProperty("audio.bitrate", "128k");
+        tiers.put(DEFAULT, base);
+
+        tiers.put("fast", tier(base, "Quick encode, moderate size",
+                "veryfast", 26, 33, 6, 2, "p2", 25, "128k"));
+        tiers.put("balanced", tier(base, "Good quality per byte at a few times the CPU of fast",
+                "medium", 23, 31, 2, 2, "p5", 23, "160k"));
+        tiers.put("archival", tier(base, "Smallest files at high quality; slow",
+                "slow", 18, 24, 1, 1, "p7", 19, "192k"));
+        return tiers;
+    }
+
+    // VP9 tiers use constant quality (-b:v 0) with row-mt, which libvpx needs to use more than a few cores.
+    private static Properties tier(Properties base, String description, String x264Preset, int x264Crf,
+                                   int vp9Crf, int vp9Speed, int tileColumns,
+                                   String nvencPreset, int nvencCq, String audioBitrate) {
+        Properties p = new Properties();
+        p.putAll(base);
+        p.setProperty("description", description);
+        p.setProperty("x264.preset", x264Preset);
+        p.setProperty("x264.crf", String.valueOf(x264Crf));
+        p.setProperty("vp9.crf", String.valueOf(vp9Crf));
+        p.setProperty("vp9.bitrate", "0");
+        p.setProperty("vp9.speed", String.valueOf(vp9Speed));
+        p.setProperty("vp9.row-mt", "true");
+        p.setProperty("vp9.tile-columns", String.valueOf(tileColumns));
+        p.setProperty("nvenc.preset", nvencPreset);
+        p.setProperty("nvenc.cq", String.valueOf(nvencCq));
+        p.setProperty("audio.bitrate", audioBitrate);
+        return p;
+    }
+}
@@ -0,0 +1,18 @@
+package com.videoconverter.util;
+
+/**
+ * Receives one block of ffmpeg's -progress output. Values ffmpeg reported as N/A are -1.
+ */
+@FunctionalInterface
+public interface FFmpegProgressListener {
+
+    /**
+     * @param outTimeUs media time written so far, in microseconds
+     * @param frame     frames written
+     * @param fps       current encode rate in frames per second
+     * @param speed     encode speed as a multiple of real time
+     * @param totalSize bytes written to the output so far
+     * @param end       true for the final block (progress=end)
+     */
+    void onProgress(long outTimeUs, long frame, double fps, double speed, long totalSize, boolean end);
+}
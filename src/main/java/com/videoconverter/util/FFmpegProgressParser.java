@@ -0,0 +1,162 @@
+package com.videoconverter.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * FFmpegProgressParser - Reads the key=value blocks ffmpeg writes with "-progress pipe:1".
+ *
+ * Each block ends with a "progress=continue" (or "progress=end") line, at which point the values
+ * collected since the previous block go to the listener. Keys and numbers are matched and parsed
+ * straight from a reused byte buffer: no String, boxed number or regex per line, so one parser can
+ * follow a multi-hour encode without producing garbage. Not thread-safe; use one per process.
+ */
+public final class FFmpegProgressParser {
+    private static final byte[] OUT_TIME_US = ascii("out_time_us");
+    // Older ffmpeg releases print out_time_ms with the value in microseconds as well.
+    private static final byte[] OUT_TIME_MS = ascii("out_time_ms");
+    private static final byte[] FRAME = ascii("frame");
+    private static final byte[] FPS = ascii("fps");
+    private static final byte[] SPEED = ascii("speed");
+    private static final byte[] TOTAL_SIZE = ascii("total_size");
+    private static final byte[] PROGRESS = ascii("progress");
+
+    // Progress lines are short; anything longer is truncated (and then simply not recognised).
+    private static final int MAX_LINE = 128;
+
+    private final byte[] buffer = new byte[4096];
+    private final byte[] line = new byte[MAX_LINE];
+    private int lineLength = 0;
+
+    private long outTimeUs;
+    private long frame;
+    private double fps;
+    private double speed;
+    private long totalSize;
+
+    public FFmpegProgressParser() {
+        resetBlock();
+    }
+
+    /**
+     * Parse until end of stream, calling the listener once per block.
+     */
+    public void parse(InputStream in, FFmpegProgressListener listener) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            feed(buffer, 0, read, listener);
+        }
+        if (lineLength > 0) {
+            endLine(listener);
+        }
+    }
+
+    /**
+     * Push raw bytes; complete lines are handled as they arrive.
+     */
+    public void feed(byte[] bytes, int offset, int length, FFmpegProgressListener listener) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                endLine(listener);
+            } else if (b != '\r' && lineLength < MAX_LINE) {
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    private void endLine(FFmpegProgressListener listener) {
+        int eq = indexOf('=');
+        if (eq > 0) {
+            int start = eq + 1;
+            if (keyIs(OUT_TIME_US, eq) || keyIs(OUT_TIME_MS, eq)) {
+                outTimeUs = parseLong(start);
+            } else if (keyIs(FRAME, eq)) {
+                frame = parseLong(start);
+            } else if (keyIs(FPS, eq)) {
+                fps = parseDouble(start);
+            } else if (keyIs(SPEED, eq)) {
+                speed = parseDouble(start);
+            } else if (keyIs(TOTAL_SIZE, eq)) {
+                totalSize = parseLong(start);
+            } else if (keyIs(PROGRESS, eq)) {
+                boolean end = start < lineLength && line[start] == 'e';
+                if (listener != null) {
+                    listener.onProgress(outTimeUs, frame, fps, speed, totalSize, end);
+                }
+                resetBlock();
+            }
+        }
+        lineLength = 0;
+    }
+
+    private void resetBlock() {
+        outTimeUs = -1;
+        frame = -1;
+        fps = -1;
+        speed = -1;
+        totalSize = -1;
+    }
+
+    private int indexOf(char c) {
+        for (int i = 0; i < lineLength; i++) {
+            if (line[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private boolean keyIs(byte[] key, int keyLength) {
+        if (key.length != keyLength) return false;
+        for (int i = 0; i < keyLength; i++) {
+            if (line[i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    // Leading digits with an optional sign; -1 for "N/A" or an empty value.
+    private long parseLong(int start) {
+        int i = start;
+        boolean negative = i < lineLength && line[i] == '-';
+        if (negative) i++;
+        if (i >= lineLength || !isDigit(line[i])) return -1;
+
+        long value = 0;
+        while (i < lineLength && isDigit(line[i])) {
+            value = value * 10 + (line[i++] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // Plain decimals as ffmpeg prints them ("29.97", "1.52x", "  0.98x"); -1 for "N/A".
+    private double parseDouble(int start) {
+        int i = start;
+        while (i < lineLength && line[i] == ' ') i++;
+        if (i >= lineLength || !isDigit(line[i])) return -1;
+
+        double value = 0;
+        while (i < lineLength && isDigit(line[i])) {
+            value = value * 10 + (line[i++] - '0');
+        }
+        if (i < lineLength && line[i] == '.') {
+            i++;
+            double scale = 0.1;
+            while (i < lineLength && isDigit(line[i])) {
+                value += (line[i++] - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -1,246 +1,517 @@
 package com.videoconverter.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
 
 public class FFmpegWrapper {
-    private static final String FFMPEG_CMD = "ffmpeg";
-    private static final Pattern DURATION_PATTERN = Pattern.compile("Duration: (\\d{2}):(\\d{2}):(\\d{2})");
-    private static final Pattern TIME_PATTERN = Pattern.compile("time=(\\d{2}):(\\d{2}):(\\d{2})");
+    static final String FFMPEG_CMD = AppConfig.getString("FFMPEG_PATH", "ffmpeg");
+    // Segmented output: outputPath is the playlist, segments are written next to it.
+    public static final String HLS_FORMAT = "hls";
+    public static final String HLS_PLAYLIST = "index.m3u8";
+    private static final int HLS_SEGMENT_SECONDS = 6;
+    // ffmpeg's own log is kept only as a bounded tail, for failures.
+    private static final int LOG_BUFFER_BYTES = 16 * 1024;
+    private static final int LOG_TAIL_BYTES = 4 * 1024;
     private static final int TIMEOUT_MINUTES = 45;
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ffmpeg-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Codecs each target container can carry as-is, so the streams can be copied instead of re-encoded.
+    private static final Map<String, Set<String>> COPY_VIDEO_CODECS = new HashMap<>();
+    private static final Map<String, Set<String>> COPY_AUDIO_CODECS = new HashMap<>();
+    private static final Map<String, String> MUXERS = new HashMap<>();
+
+    static {
+        COPY_VIDEO_CODECS.put("mp4", setOf("h264", "hevc", "mpeg4", "av1"));
+        COPY_VIDEO_CODECS.put("mov", setOf("h264", "hevc", "mpeg4", "prores", "mjpeg"));
+        COPY_VIDEO_CODECS.put("mkv", setOf("h264", "hevc", "mpeg4", "mpeg2video", "vp8", "vp9", "av1", "prores", "mjpeg"));
+        COPY_VIDEO_CODECS.put("webm", setOf("vp8", "vp9", "av1"));
+        COPY_VIDEO_CODECS.put("avi", setOf("mpeg4", "h264", "mjpeg", "msmpeg4v3"));
+
+        COPY_AUDIO_CODECS.put("mp4", setOf("aac", "mp3", "ac3", "alac"));
+        COPY_AUDIO_CODECS.put("mov", setOf("aac", "mp3", "ac3", "alac", "pcm_s16le"));
+        COPY_AUDIO_CODECS.put("mkv", setOf("aac", "mp3", "ac3", "eac3", "opus", "vorbis", "flac", "pcm_s16le"));
+        COPY_AUDIO_CODECS.put("webm", setOf("opus", "vorbis"));
+        COPY_AUDIO_CODECS.put("avi", setOf("mp3", "ac3", "pcm_s16le"));
+
+        MUXERS.put("mp4", "mp4");
+        MUXERS.put("mov", "mov");
+        MUXERS.put("mkv", "matroska");
+        MUXERS.put("webm", "webm");
+        MUXERS.put("avi", "avi");
+    }
+
+    private final MediaProbe mediaProbe = new MediaProbe();
+
+    private static Set<String> setOf(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
 
     public boolean convertVideo(String inputPath, String outputPath, String format,
-                                Consumer<Integer> progressCallback) {
+                                IntConsumer progressCallback) {
+        return convertVideo(inputPath, outputPath, format, progressCallback, null);
+    }
+
+    /**
+     * @param statsCallback receives the encode speed and fps ffmpeg reports, may be null
+     */
+    public boolean convertVideo(String inputPath, String outputPath, String format,
+                                IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        return convert(inputPath, outputPath, format, progressCallback, statsCallback) != null;
+    }
+
+    /**
+     * Convert and report how the output was produced; returns null if conversion failed.
+     */
+    public ConversionMode convert(String inputPath, String outputPath, String format,
+                                  IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        return convert(inputPath, outputPath, format, null, progressCallback, statsCallback);
+    }
+
+    public ConversionMode convert(String inputPath, String outputPath, String format, MediaInfo info,
+                                  IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        return convert(inputPath, outputPath, format, info, EncodingProfiles.getInstance().getDefault(),
+                progressCallback, statsCallback);
+    }
+
+    /**
+     * @param info    metadata already probed at ingest; probed here if null
+     * @param profile encoder settings for whatever is re-encoded
+     */
+    public ConversionMode convert(String inputPath, String outputPath, String format, MediaInfo info,
+                                  EncodingProfile profile, IntConsumer progressCallback,
+                                  EncodeStatsListener statsCallback) {
         if (inputPath == null || outputPath == null || format == null) {
-            return false;
+            return null;
         }
 
         File inputFile = new File(inputPath);
         if (!inputFile.exists()) {
-            return false;
+            return null;
         }
 
-        boolean gpuSuccess = convertWithGPU(inputPath, outputPath, format, progressCallback);
-        if (gpuSuccess) {
-            return true;
+        // Container swap with compatible codecs: remux instead of re-encoding.
+        if (info == null) {
+            info = mediaProbe.probe(inputPath);
+        }
+        double duration = info != null ? info.getDurationSeconds() : 0;
+        if (HLS_FORMAT.equalsIgnoreCase(format)) {
+            return convertToHls(inputPath, outputPath, info, profile, duration, progressCallback, statsCallback);
+        }
+
+        ConversionMode copyMode = chooseCopyMode(info, format);
+        if (copyMode != null) {
+            if (remux(inputPath, outputPath, format, info, copyMode, profile, progressCallback, statsCallback)) {
+                return copyMode;
+            }
+            System.err.println("[FFmpeg] Remux failed, falling back to full encode: " + inputPath);
         }
 
-        return convertWithCPU(inputPath, outputPath, format, progressCallback);
+        // Only spawn the GPU pipeline when the startup probe proved it works on this machine.
+        EncoderCapabilities capabilities = EncoderCapabilities.getInstance();
+        if (capabilities.shouldTryGpu(format)) {
+            boolean gpuSuccess = convertWithGPU(inputPath, outputPath, format, profile, duration,
+                    progressCallback, statsCallback);
+            capabilities.recordGpuResult(gpuSuccess);
+            if (gpuSuccess) {
+                return ConversionMode.GPU;
+            }
+        }
+
+        return convertWithCPU(inputPath, outputPath, format, profile, duration, progressCallback, statsCallback)
+                ? ConversionMode.CPU : null;
+    }
+
+    private ConversionMode chooseCopyMode(MediaInfo info, String format) {
+        String target = format.toLowerCase();
+        Set<String> videoCodecs = COPY_VIDEO_CODECS.get(target);
+        if (info == null || videoCodecs == null || !info.hasVideo() || !videoCodecs.contains(info.getVideoCodec())) {
+            return null;
+        }
+        if (!info.hasAudio() || COPY_AUDIO_CODECS.get(target).contains(info.getAudioCodec())) {
+            return ConversionMode.COPY;
+        }
+        return ConversionMode.COPY_VIDEO;
     }
 
-    private boolean convertWithGPU(String inputPath, String outputPath, String format,
-                                   Consumer<Integer> progressCallback) {
-        Process process = null;
+    private boolean remux(String inputPath, String outputPath, String format, MediaInfo info, ConversionMode mode,
+                          EncodingProfile profile, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
         try {
-            ProcessBuilder pb;
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-i", inputPath));
+            cmd.addAll(copyArgs(format, info, mode, profile));
+            cmd.addAll(Arrays.asList("-f", muxer(format), "-y", outputPath));
 
-            if ("webm".equalsIgnoreCase(format)) {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-hwaccel", "cuda",
-                    "-i", inputPath,
-                    "-c:v", "libvpx-vp9",
-                    "-b:v", "2M",
-                    "-crf", "30",
-                    "-c:a", "libopus",
-                    "-b:a", "128k",
-                    "-f", "webm",
-                    "-y",
-                    outputPath
-                );
-            } else if ("mkv".equalsIgnoreCase(format)) {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-hwaccel", "cuda",
-                    "-hwaccel_output_format", "cuda",
-                    "-extra_hw_frames", "8",
-                    "-i", inputPath,
-                    "-c:v", "hevc_nvenc",
-                    "-preset", "p4",
-                    "-rc", "vbr",
-                    "-cq", "23",
-                    "-b:v", "6M",
-                    "-c:a", "aac",
-                    "-b:a", "192k",
-                    "-f", "matroska",
-                    "-y",
-                    outputPath
-                );
-            } else {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-hwaccel", "cuda",
-                    "-hwaccel_output_format", "cuda",
-                    "-extra_hw_frames", "8",
-                    "-i", inputPath,
-                    "-c:v", "h264_nvenc",
-                    "-preset", "p4",
-                    "-rc", "vbr",
-                    "-cq", "23",
-                    "-b:v", "6M",
-                    "-maxrate", "8M",
-                    "-bufsize", "16M",
-                    "-c:a", "aac",
-                    "-b:a", "192k",
-                    "-f", format,
-                    "-y",
-                    outputPath
-                );
-            }
-            pb.redirectErrorStream(true);
-
-            process = pb.start();
-
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-
-                String line;
-                int totalDuration = 0;
-
-                while ((line = reader.readLine()) != null) {
-                    if (totalDuration == 0) {
-                        Matcher durationMatcher = DURATION_PATTERN.matcher(line);
-                        if (durationMatcher.find()) {
-                            totalDuration = parseTime(durationMatcher);
-                        }
-                    }
+            return runFFmpeg(new ProcessBuilder(cmd), info.getDurationSeconds(), progressCallback, statsCallback);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-                    Matcher timeMatcher = TIME_PATTERN.matcher(line);
-                    if (timeMatcher.find() && totalDuration > 0) {
-                        int currentTime = parseTime(timeMatcher);
-                        int progress = Math.min(100, (currentTime * 100) / totalDuration);
+    // Stream mapping and codecs for a remux: video copied, audio copied or re-encoded.
+    private static List<String> copyArgs(String format, MediaInfo info, ConversionMode mode, EncodingProfile profile) {
+        String target = format.toLowerCase();
+        List<String> args = new ArrayList<>(Arrays.asList("-map", "0:v:0", "-map", "0:a:0?", "-c:v", "copy"));
+        if (mode == ConversionMode.COPY) {
+            args.addAll(Arrays.asList("-c:a", "copy"));
+        } else {
+            args.addAll(profile.audioArgs(target));
+        }
+        if ("hevc".equals(info.getVideoCodec()) && ("mp4".equals(target) || "mov".equals(target))) {
+            // Lets QuickTime/Safari play copied HEVC.
+            args.addAll(Arrays.asList("-tag:v", "hvc1"));
+        }
+        return args;
+    }
 
-                        if (progressCallback != null) {
-                            progressCallback.accept(progress);
-                        }
-                    }
+    /**
+     * Whether convertMulti can produce all these formats from one ffmpeg run: no HLS, and nothing
+     * that would go to the GPU pipeline (it is driven one output at a time).
+     */
+    public boolean canShareDecode(MediaInfo info, List<String> formats) {
+        if (info == null || !info.hasVideo()) {
+            return false;
+        }
+        EncoderCapabilities capabilities = EncoderCapabilities.getInstance();
+        for (String format : formats) {
+            if (format == null || !MUXERS.containsKey(format.toLowerCase())) {
+                return false;
+            }
+            if (chooseCopyMode(info, format) == null && capabilities.shouldTryGpu(format)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write several outputs from one ffmpeg run: the input is demuxed and decoded once and the
+     * frames fed to one encoder per output. Each output is remuxed if its container takes the
+     * source codecs, otherwise CPU-encoded as convert() would. Returns the mode per output, or null
+     * if the run failed (outputs may then be partial).
+     */
+    public ConversionMode[] convertMulti(String inputPath, List<String> outputPaths, List<String> formats,
+                                         MediaInfo info, EncodingProfile profile, IntConsumer progressCallback,
+                                         EncodeStatsListener statsCallback) {
+        ConversionMode[] modes = new ConversionMode[formats.size()];
+        try {
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-i", inputPath));
+            for (int i = 0; i < formats.size(); i++) {
+                String format = formats.get(i);
+                ConversionMode copyMode = chooseCopyMode(info, format);
+                if (copyMode != null) {
+                    cmd.addAll(copyArgs(format, info, copyMode, profile));
+                    modes[i] = copyMode;
+                } else {
+                    cmd.addAll(Arrays.asList("-map", "0:v:0", "-map", "0:a:0?"));
+                    cmd.addAll(profile.cpuVideoArgs(format));
+                    cmd.addAll(profile.audioArgs(format));
+                    modes[i] = ConversionMode.CPU;
                 }
+                cmd.addAll(Arrays.asList("-f", muxer(format), "-y", outputPaths.get(i)));
             }
+            return runFFmpeg(new ProcessBuilder(cmd), info.getDurationSeconds(), progressCallback, statsCallback)
+                    ? modes : null;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            boolean finished = process.waitFor(TIMEOUT_MINUTES, java.util.concurrent.TimeUnit.MINUTES);
-            if (!finished) {
-                process.destroyForcibly();
-                return false;
+    /**
+     * Write an HLS event playlist plus MPEG-TS segments. The playlist is rewritten after every
+     * finished segment, so players can start while the rest is still encoding.
+     */
+    private ConversionMode convertToHls(String inputPath, String playlistPath, MediaInfo info, EncodingProfile profile,
+                                        double duration, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        File dir = new File(playlistPath).getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return null;
+        }
+        String segmentPattern = new File(dir, "seg_%05d.ts").getAbsolutePath();
+
+        // H.264 can go into TS segments as-is; cuts then fall on the source's keyframes.
+        if (info != null && "h264".equals(info.getVideoCodec())) {
+            boolean audioCopy = !info.hasAudio() || "aac".equals(info.getAudioCodec());
+            List<String> args = new ArrayList<>(Arrays.asList("-map", "0:v:0", "-map", "0:a:0?", "-c:v", "copy"));
+            args.addAll(audioCopy ? Arrays.asList("-c:a", "copy") : profile.audioArgs("mp4"));
+            if (runHls(inputPath, null, args, segmentPattern, playlistPath, duration, progressCallback, statsCallback)) {
+                return audioCopy ? ConversionMode.COPY : ConversionMode.COPY_VIDEO;
             }
+            System.err.println("[FFmpeg] HLS remux failed, falling back to full encode: " + inputPath);
+        }
 
-            return process.exitValue() == 0;
+        List<String> keyframes = Arrays.asList("-force_key_frames",
+                "expr:gte(t,n_forced*" + HLS_SEGMENT_SECONDS + ")");
+        EncoderCapabilities capabilities = EncoderCapabilities.getInstance();
+        if (capabilities.shouldTryGpu("mp4")) {
+            List<String> args = new ArrayList<>(profile.nvencArgs("h264_nvenc"));
+            args.addAll(Arrays.asList("-b:v", "6M"));
+            args.addAll(keyframes);
+            args.addAll(profile.audioArgs("mp4"));
+            boolean gpuSuccess = runHls(inputPath,
+                Arrays.asList("-hwaccel", "cuda", "-hwaccel_output_format", "cuda", "-extra_hw_frames", "8"),
+                args, segmentPattern, playlistPath, duration, progressCallback, statsCallback);
+            capabilities.recordGpuResult(gpuSuccess);
+            if (gpuSuccess) {
+                return ConversionMode.GPU;
+            }
+        }
 
+        List<String> args = new ArrayList<>(profile.x264Args());
+        args.addAll(keyframes);
+        args.addAll(profile.audioArgs("mp4"));
+        boolean cpuSuccess = runHls(inputPath, null, args,
+            segmentPattern, playlistPath, duration, progressCallback, statsCallback);
+        return cpuSuccess ? ConversionMode.CPU : null;
+    }
+
+    private boolean runHls(String inputPath, List<String> inputArgs, List<String> codecArgs, String segmentPattern,
+                           String playlistPath, double duration,
+                           IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        try {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(FFMPEG_CMD);
+            if (inputArgs != null) {
+                cmd.addAll(inputArgs);
+            }
+            cmd.addAll(Arrays.asList("-i", inputPath));
+            cmd.addAll(codecArgs);
+            cmd.addAll(Arrays.asList(
+                "-f", "hls",
+                "-hls_time", String.valueOf(HLS_SEGMENT_SECONDS),
+                "-hls_playlist_type", "event",
+                // temp_file: segments appear under their final name only once complete
+                "-hls_flags", "independent_segments+temp_file",
+                "-hls_segment_filename", segmentPattern,
+                "-y", playlistPath
+            ));
+            return runFFmpeg(new ProcessBuilder(cmd), duration, progressCallback, statsCallback);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             return false;
-        } finally {
-            if (process != null && process.isAlive()) {
-                process.destroyForcibly();
-            }
         }
     }
 
-    private boolean convertWithCPU(String inputPath, String outputPath, String format,
-                                   Consumer<Integer> progressCallback) {
-        Process process = null;
+    private boolean convertWithGPU(String inputPath, String outputPath, String format, EncodingProfile profile,
+                                   double duration, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
         try {
-            ProcessBuilder pb;
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-hwaccel", "cuda"));
 
             if ("webm".equalsIgnoreCase(format)) {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-i", inputPath,
-                    "-c:v", "libvpx-vp9",
-                    "-b:v", "2M",
-                    "-crf", "30",
-                    "-speed", "4",
-                    "-threads", "0",
-                    "-c:a", "libopus",
-                    "-b:a", "128k",
-                    "-f", "webm",
-                    "-y",
-                    outputPath
-                );
-            } else if ("mkv".equalsIgnoreCase(format)) {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-i", inputPath,
-                    "-c:v", "libx264",
-                    "-preset", "ultrafast",
-                    "-crf", "28",
-                    "-threads", "0",
-                    "-c:a", "aac",
-                    "-b:a", "128k",
-                    "-f", "matroska",
-                    "-y",
-                    outputPath
-                );
+                // No NVENC for VP9: decode on the GPU, encode with libvpx.
+                cmd.addAll(Arrays.asList("-i", inputPath));
+                cmd.addAll(profile.cpuVideoArgs(format));
             } else {
-                pb = new ProcessBuilder(
-                    FFMPEG_CMD,
-                    "-i", inputPath,
-                    "-c:v", "libx264",
-                    "-preset", "ultrafast",
-                    "-crf", "28",
-                    "-threads", "0",
-                    "-c:a", "aac",
-                    "-b:a", "128k",
-                    "-f", format,
-                    "-y",
-                    outputPath
-                );
-            }
-            pb.redirectErrorStream(true);
-
-            process = pb.start();
-
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-
-                String line;
-                int totalDuration = 0;
-
-                while ((line = reader.readLine()) != null) {
-                    if (totalDuration == 0) {
-                        Matcher durationMatcher = DURATION_PATTERN.matcher(line);
-                        if (durationMatcher.find()) {
-                            totalDuration = parseTime(durationMatcher);
-                        }
-                    }
-
-                    Matcher timeMatcher = TIME_PATTERN.matcher(line);
-                    if (timeMatcher.find() && totalDuration > 0) {
-                        int currentTime = parseTime(timeMatcher);
-                        int progress = Math.min(100, (currentTime * 100) / totalDuration);
-
-                        if (progressCallback != null) {
-                            progressCallback.accept(progress);
-                        }
-                    }
+                cmd.addAll(Arrays.asList("-hwaccel_output_format", "cuda", "-extra_hw_frames", "8", "-i", inputPath));
+                if ("mkv".equalsIgnoreCase(format)) {
+                    cmd.addAll(profile.nvencArgs("hevc_nvenc"));
+                    cmd.addAll(Arrays.asList("-b:v", "6M"));
+                } else {
+                    cmd.addAll(profile.nvencArgs("h264_nvenc"));
+                    cmd.addAll(Arrays.asList("-b:v", "6M", "-maxrate", "8M", "-bufsize", "16M"));
                 }
             }
+            cmd.addAll(profile.audioArgs(format));
+            cmd.addAll(Arrays.asList("-f", muxer(format), "-y", outputPath));
+            return runFFmpeg(new ProcessBuilder(cmd), duration, progressCallback, statsCallback);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            boolean finished = process.waitFor(TIMEOUT_MINUTES, java.util.concurrent.TimeUnit.MINUTES);
-            if (!finished) {
-                process.destroyForcibly();
-                return false;
+    private boolean convertWithCPU(String inputPath, String outputPath, String format, EncodingProfile profile,
+                                   double duration, IntConsumer progressCallback, EncodeStatsListener statsCallback) {
+        try {
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-i", inputPath));
+            cmd.addAll(profile.cpuVideoArgs(format));
+            cmd.addAll(profile.audioArgs(format));
+            cmd.addAll(Arrays.asList("-f", muxer(format), "-y", outputPath));
+            return runFFmpeg(new ProcessBuilder(cmd), duration, progressCallback, statsCallback);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static String muxer(String format) {
+        return MUXERS.getOrDefault(format.toLowerCase(), format);
+    }
+
+    /**
+     * Whether convert() would end up in a full CPU encode for this input: the only path that gains
+     * from splitting the input (copies are I/O bound, the GPU has one encoder).
+     */
+    public boolean needsCpuEncode(MediaInfo info, String format) {
+        return info != null && info.hasVideo() && format != null
+                && MUXERS.containsKey(format.toLowerCase())
+                && chooseCopyMode(info, format) == null
+                && !EncoderCapabilities.getInstance().shouldTryGpu(format);
+    }
+
+    /**
+     * CPU-encode the video of [start, start + length) into a Matroska piece (no audio), with the
+     * same codec settings as a full CPU encode to the given format and profile.
+     *
+     * @param length   seconds to encode, or 0 for everything after start
+     * @param expected seconds the piece will actually contain, for progress (the last piece's length is 0)
+     */
+    public boolean encodeVideoRange(String inputPath, String piecePath, String format, double start, double length,
+                                    double expected, EncodingProfile profile, IntConsumer progressCallback,
+                                    EncodeStatsListener statsCallback) {
+        try {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(FFMPEG_CMD);
+            if (start > 0) {
+                cmd.addAll(Arrays.asList("-ss", formatSeconds(start)));
             }
+            cmd.addAll(Arrays.asList("-i", inputPath));
+            if (length > 0) {
+                cmd.addAll(Arrays.asList("-t", formatSeconds(length)));
+            }
+            cmd.addAll(Arrays.asList("-map", "0:v:0", "-an", "-sn", "-dn"));
+            cmd.addAll(profile.cpuVideoArgs(format));
+            cmd.addAll(Arrays.asList("-f", "matroska", "-y", piecePath));
+            return runFFmpeg(new ProcessBuilder(cmd), expected, progressCallback, statsCallback);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            return process.exitValue() == 0;
+    /**
+     * Encode only the first audio track, as a full CPU encode to the given format would.
+     */
+    public boolean encodeAudio(String inputPath, String audioPath, String format, EncodingProfile profile,
+                               double duration, IntConsumer progressCallback) {
+        try {
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-i", inputPath, "-map", "0:a:0", "-vn", "-sn", "-dn"));
+            cmd.addAll(profile.audioArgs(format));
+            cmd.addAll(Arrays.asList("-f", "matroska", "-y", audioPath));
+            return runFFmpeg(new ProcessBuilder(cmd), duration, progressCallback, null);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
+    /**
+     * Join video pieces with the concat demuxer and mux in the audio, all stream-copied.
+     *
+     * @param audioPath audio from encodeAudio, or null if the input has none
+     */
+    public boolean concat(List<String> piecePaths, String audioPath, String listPath, String outputPath,
+                          String format) {
+        try {
+            StringBuilder list = new StringBuilder();
+            for (String piece : piecePaths) {
+                list.append("file '").append(piece.replace("'", "'\\''")).append("'\n");
+            }
+            Files.write(Paths.get(listPath), list.toString().getBytes(StandardCharsets.UTF_8));
+
+            List<String> cmd = new ArrayList<>(Arrays.asList(FFMPEG_CMD, "-f", "concat", "-safe", "0", "-i", listPath));
+            if (audioPath != null) {
+                cmd.addAll(Arrays.asList("-i", audioPath, "-map", "0:v:0", "-map", "1:a:0"));
+            }
+            cmd.addAll(Arrays.asList("-c", "copy", "-f", muxer(format), "-y", outputPath));
+            return runFFmpeg(new ProcessBuilder(cmd), 0, null, null);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             return false;
+        }
+    }
+
+    private static String formatSeconds(double seconds) {
+        return String.format(Locale.ROOT, "%.6f", seconds);
+    }
+
+    /**
+     * Run ffmpeg with its machine-readable progress on stdout ("-progress pipe:1") and its log on
+     * stderr, drained into a ring buffer that is printed only if the run fails.
+     *
+     * @param duration seconds of media the command will write, for the percentage; 0 if unknown
+     */
+    private boolean runFFmpeg(ProcessBuilder pb, double duration, IntConsumer progressCallback,
+                              EncodeStatsListener statsCallback) throws Exception {
+        List<String> cmd = new ArrayList<>(pb.command());
+        cmd.addAll(1, Arrays.asList("-nostats", "-progress", "pipe:1"));
+        pb.command(cmd);
+
+        Process process = pb.start();
+        LogRingBuffer log = new LogRingBuffer(LOG_BUFFER_BYTES);
+        Thread drain = new Thread(() -> log.drain(process.getErrorStream()), "ffmpeg-stderr");
+        drain.setDaemon(true);
+        drain.start();
+        // Progress is read until EOF, which a hung ffmpeg never sends; killing it at the deadline
+        // closes the pipe and ends the read.
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            process.destroyForcibly();
+        }, TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        try {
+            double durationUs = duration * 1_000_000;
+            try (InputStream progress = process.getInputStream()) {
+                new FFmpegProgressParser().parse(progress, (outTimeUs, frame, fps, speed, totalSize, end) -> {
+                    if (progressCallback != null && durationUs > 0 && outTimeUs >= 0) {
+                        progressCallback.accept((int) Math.min(100, outTimeUs * 100 / durationUs));
+                    }
+                    if (statsCallback != null && speed >= 0) {
+                        statsCallback.onStats(speed, fps);
+                    }
+                });
+            }
+
+            process.waitFor();
+            if (timedOut.get()) {
+                System.err.println("[FFmpeg] Timed out after " + TIMEOUT_MINUTES + " minutes");
+                return false;
+            }
+
+            drain.join(1000);
+            if (process.exitValue() != 0) {
+                System.err.println("[FFmpeg] Exit code " + process.exitValue() + ", log tail:\n"
+                        + log.tail(LOG_TAIL_BYTES));
+                return false;
+            }
+            return true;
         } finally {
-            if (process != null && process.isAlive()) {
+            watchdog.cancel(false);
+            if (process.isAlive()) {
                 process.destroyForcibly();
             }
         }
     }
-
-    private int parseTime(Matcher matcher) {
-        int hours = Integer.parseInt(matcher.group(1));
-        int minutes = Integer.parseInt(matcher.group(2));
-        int seconds = Integer.parseInt(matcher.group(3));
-        return hours * 3600 + minutes * 60 + seconds;
-    }
 }
 
 
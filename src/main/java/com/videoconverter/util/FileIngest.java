@@ -0,0 +1,85 @@
+package com.videoconverter.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * FileIngest - Streams an upload straight into its final file.
+ *
+ * The request body is read through one fixed-size buffer, hashed and written to a FileChannel in
+ * the same pass: heap use per upload stays at BUFFER_SIZE no matter how large the file is, and
+ * the bytes hit the disk exactly once.
+ */
+public final class FileIngest {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileIngest() {
+    }
+
+    /**
+     * Write the stream to a new file at target. On any failure (including maxBytes exceeded)
+     * the partial file is deleted.
+     */
+    public static Result write(InputStream in, Path target, long maxBytes) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        byte[] array = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(array);
+        long total = 0;
+        long started = System.nanoTime();
+
+        boolean ok = false;
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(array)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new FileTooLargeException(maxBytes);
+                }
+                digest.update(array, 0, read);
+
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            ok = true;
+        } finally {
+            TransferStats.UPLOADS.record(total, started);
+            if (!ok) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return new Result(total, ContentHash.toHex(digest.digest()));
+    }
+
+    public static final class FileTooLargeException extends IOException {
+        public FileTooLargeException(long maxBytes) {
+            super("File exceeds the " + (maxBytes / (1024 * 1024)) + " MB limit");
+        }
+    }
+
+    public static final class Result {
+        private final long size;
+        private final String sha256;
+
+        Result(long size, String sha256) {
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.videoconverter.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LogRingBuffer - Keeps the last N bytes written to it, overwriting the oldest.
+ *
+ * Used to drain a child process's stderr: the pipe never fills up (so the process never blocks on
+ * it), memory stays fixed however chatty the process is, and the tail is still there to explain a
+ * failure.
+ */
+public final class LogRingBuffer {
+    private final byte[] ring;
+    private long written = 0;
+
+    public LogRingBuffer(int capacity) {
+        this.ring = new byte[capacity];
+    }
+
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        // Only the last ring.length bytes can survive.
+        if (length > ring.length) {
+            offset += length - ring.length;
+            written += length - ring.length;
+            length = ring.length;
+        }
+        int position = (int) (written % ring.length);
+        int first = Math.min(length, ring.length - position);
+        System.arraycopy(bytes, offset, ring, position, first);
+        System.arraycopy(bytes, offset + first, ring, 0, length - first);
+        written += length;
+    }
+
+    /**
+     * Copy the stream into the buffer until it ends; meant to run on its own thread.
+     */
+    public void drain(InputStream in) {
+        byte[] chunk = new byte[4096];
+        try {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                write(chunk, 0, read);
+            }
+        } catch (IOException ignored) {
+            // Process went away; whatever arrived is kept.
+        }
+    }
+
+    /**
+     * Total bytes ever written, including those already overwritten.
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * The last maxBytes (at most) of the log as text.
+     */
+    public synchronized String tail(int maxBytes) {
+        int length = (int) Math.min(Math.min(written, ring.length), maxBytes);
+        byte[] out = new byte[length];
+        int start = (int) ((written - length) % ring.length);
+        int first = Math.min(length, ring.length - start);
+        System.arraycopy(ring, start, out, 0, first);
+        System.arraycopy(ring, 0, out, first, length - first);
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return tail(ring.length);
+    }
+}
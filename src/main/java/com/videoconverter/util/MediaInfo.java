@@ -0,0 +1,94 @@
+package com.videoconverter.util;
+
+/**
+ * MediaInfo - Stream and container facts reported by ffprobe for one file.
+ */
+public class MediaInfo {
+    // Reference workload for cost estimates: one second of 1080p30.
+    private static final double REFERENCE_PIXEL_RATE = 1920.0 * 1080.0 * 30.0;
+
+    private final String formatName;
+    private final double durationSeconds;
+    private final String videoCodec;
+    private final String audioCodec;
+    private final int width;
+    private final int height;
+    private final double frameRate;
+    private final long bitRate;
+
+    public MediaInfo(String formatName, double durationSeconds, String videoCodec, String audioCodec,
+                     int width, int height, double frameRate, long bitRate) {
+        this.formatName = formatName;
+        this.durationSeconds = durationSeconds;
+        this.videoCodec = videoCodec;
+        this.audioCodec = audioCodec;
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.bitRate = bitRate;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public String getAudioCodec() {
+        return audioCodec;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public long getBitRate() {
+        return bitRate;
+    }
+
+    public boolean hasVideo() {
+        return videoCodec != null;
+    }
+
+    public boolean hasAudio() {
+        return audioCodec != null;
+    }
+
+    /**
+     * Rough encode cost in "seconds of 1080p30": duration scaled by pixel rate.
+     * Falls back to plain duration when resolution or frame rate are unknown.
+     */
+    public double estimateWorkUnits() {
+        if (width <= 0 || height <= 0 || frameRate <= 0) {
+            return durationSeconds;
+        }
+        return durationSeconds * (width * (double) height * frameRate) / REFERENCE_PIXEL_RATE;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaInfo{" +
+                "format='" + formatName + '\'' +
+                ", duration=" + durationSeconds +
+                ", video='" + videoCodec + '\'' +
+                ", audio='" + audioCodec + '\'' +
+                ", " + width + "x" + height +
+                "@" + String.format("%.2f", frameRate) +
+                ", bitRate=" + bitRate +
+                '}';
+    }
+}
@@ -0,0 +1,206 @@
+package com.videoconverter.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MediaProbe - Runs ffprobe on an input file.
+ */
+public class MediaProbe {
+    static final String FFPROBE_CMD = AppConfig.getString("FFPROBE_PATH", "ffprobe");
+    private static final int TIMEOUT_SECONDS = 30;
+
+    /**
+     * Returns the first video/audio stream codecs and container info, or null if ffprobe failed.
+     */
+    public MediaInfo probe(String path) {
+        List<String> lines = run(
+            FFPROBE_CMD,
+            "-v", "error",
+            "-show_entries", "format=format_name,duration,bit_rate"
+                    + ":stream=codec_type,codec_name,width,height,avg_frame_rate",
+            "-of", "compact=p=0",
+            path
+        );
+        if (lines == null) {
+            return null;
+        }
+
+        String formatName = null;
+        double duration = 0;
+        String videoCodec = null;
+        String audioCodec = null;
+        int width = 0;
+        int height = 0;
+        double frameRate = 0;
+        long bitRate = 0;
+
+        for (String line : lines) {
+            // e.g. "codec_name=h264|codec_type=video" or "format_name=mov,mp4,m4a|duration=12.5"
+            String codecName = null;
+            String codecType = null;
+            int streamWidth = 0;
+            int streamHeight = 0;
+            double streamFps = 0;
+            for (String field : line.split("\\|")) {
+                int eq = field.indexOf('=');
+                if (eq <= 0) continue;
+                String key = field.substring(0, eq);
+                String value = field.substring(eq + 1);
+                switch (key) {
+                    case "codec_name": codecName = value; break;
+                    case "codec_type": codecType = value; break;
+                    case "format_name": formatName = value; break;
+                    case "duration": duration = parseDouble(value); break;
+                    case "bit_rate": bitRate = (long) parseDouble(value); break;
+                    case "width": streamWidth = (int) parseDouble(value); break;
+                    case "height": streamHeight = (int) parseDouble(value); break;
+                    case "avg_frame_rate": streamFps = parseRational(value); break;
+                    default: break;
+                }
+            }
+            if ("video".equals(codecType) && videoCodec == null) {
+                videoCodec = codecName;
+                width = streamWidth;
+                height = streamHeight;
+                frameRate = streamFps;
+            } else if ("audio".equals(codecType) && audioCodec == null) {
+                audioCodec = codecName;
+            }
+        }
+
+        return formatName == null ? null
+                : new MediaInfo(formatName, duration, videoCodec, audioCodec, width, height, frameRate, bitRate);
+    }
+
+    /**
+     * Video keyframe times (seconds from the start of the file) found within window seconds around
+     * each target. Only those windows are read, packets are not decoded. Empty if ffprobe failed.
+     */
+    public List<Double> keyframesNear(String path, double[] targets, double window) {
+        List<Double> keyframes = new ArrayList<>();
+        if (targets.length == 0) {
+            return keyframes;
+        }
+        StringBuilder intervals = new StringBuilder();
+        for (double target : targets) {
+            if (intervals.length() > 0) intervals.append(',');
+            intervals.append(String.format(Locale.ROOT, "%.3f%%+%.3f", Math.max(0, target - window / 2), window));
+        }
+
+        List<String> lines = run(
+            FFPROBE_CMD,
+            "-v", "error",
+            "-select_streams", "v:0",
+            "-read_intervals", intervals.toString(),
+            "-show_entries", "packet=pts_time,flags:format=start_time",
+            "-of", "compact=p=0",
+            path
+        );
+        if (lines == null) {
+            return keyframes;
+        }
+
+        double startTime = 0;
+        for (String line : lines) {
+            // "pts_time=12.012000|flags=K__" or "start_time=0.000000"
+            double ptsTime = -1;
+            boolean key = false;
+            for (String field : line.split("\\|")) {
+                if (field.startsWith("pts_time=")) {
+                    ptsTime = field.length() > 9 && Character.isDigit(field.charAt(9))
+                            ? parseDouble(field.substring(9)) : -1;
+                } else if (field.startsWith("flags=")) {
+                    key = field.startsWith("flags=K");
+                } else if (field.startsWith("start_time=")) {
+                    startTime = parseDouble(field.substring(11));
+                }
+            }
+            if (key && ptsTime >= 0) {
+                keyframes.add(ptsTime);
+            }
+        }
+
+        for (int i = 0; i < keyframes.size(); i++) {
+            keyframes.set(i, keyframes.get(i) - startTime);
+        }
+        Collections.sort(keyframes);
+        return keyframes;
+    }
+
+    /**
+     * Run ffprobe and return its output lines, or null if it failed or ran past TIMEOUT_SECONDS.
+     * Output is read on a separate thread so a hung ffprobe cannot block the caller past the
+     * timeout; on timeout the process is killed, which also ends the reader.
+     */
+    private static List<String> run(String... command) {
+        Process process = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            process = pb.start();
+            process.getOutputStream().close();
+
+            List<String> lines = Collections.synchronizedList(new ArrayList<>());
+            InputStream in = process.getInputStream();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = br.readLine()) != null) {
+                        lines.add(line);
+                    }
+                } catch (IOException ignored) {
+                    // stream closed by destroyForcibly
+                }
+            }, "ffprobe-output");
+            reader.setDaemon(true);
+            reader.start();
+
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[MediaProbe] ffprobe timed out after " + TIMEOUT_SECONDS + "s");
+                return null;
+            }
+            reader.join(1000);
+            if (process.exitValue() != 0 || reader.isAlive()) {
+                return null;
+            }
+            return new ArrayList<>(lines);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // ffprobe reports frame rates as fractions, e.g. "30000/1001"; "0/0" when unknown.
+    private static double parseRational(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            return parseDouble(value);
+        }
+        double den = parseDouble(value.substring(slash + 1));
+        return den == 0 ? 0 : parseDouble(value.substring(0, slash)) / den;
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.videoconverter.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * MetricsRegistry - Counters, histograms and gauges, rendered in the Prometheus text format by
+ * the /metrics servlet.
+ *
+ * Recording never locks or boxes: counts are LongAdders, sums DoubleAdders, and a label value is
+ * looked up with one ConcurrentHashMap read (the cell is created the first time the value is
+ * seen). Gauges are read only when scraped. Registering a name twice returns the first metric.
+ */
+public class MetricsRegistry {
+    private static volatile MetricsRegistry instance;
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Seconds buckets for the histograms in this application.
+    public static final double[] DB_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5};
+    public static final double[] WAIT_BUCKETS = {
+            0.1, 0.5, 1, 5, 15, 30, 60, 120, 300, 900, 1800, 3600};
+    public static final double[] ENCODE_BUCKETS = {
+            1, 5, 15, 30, 60, 120, 300, 600, 1200, 1800, 3600, 7200};
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MetricsRegistry.class) {
+                if (instance == null) {
+                    instance = new MetricsRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, null);
+    }
+
+    /**
+     * @param labelName name of the one label the counter is split by, or null for none
+     */
+    public Counter counter(String name, String help, String labelName) {
+        return register(new Counter(name, help, labelName));
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets) {
+        return histogram(name, help, null, buckets);
+    }
+
+    public Histogram histogram(String name, String help, String labelName, double[] buckets) {
+        return register(new Histogram(name, help, labelName, buckets));
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(new GaugeFamily(name, help, samples -> samples.add(value.getAsDouble())));
+    }
+
+    /**
+     * A gauge whose labelled series are listed at scrape time, e.g. one per running job.
+     */
+    public void gauges(String name, String help, Consumer<Samples> collector) {
+        register(new GaugeFamily(name, help, collector));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T extends Metric> T register(T metric) {
+        for (Metric existing : metrics) {
+            if (existing.name.equals(metric.name)) {
+                if (existing.getClass() != metric.getClass()) {
+                    throw new IllegalArgumentException("Metric " + metric.name + " already registered as "
+                            + existing.type);
+                }
+                return (T) existing;
+            }
+        }
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        for (Metric metric : metrics) {
+            out.append("# HELP ").append(metric.name).append(' ');
+            appendHelp(out, metric.help);
+            out.append('\n');
+            out.append("# TYPE ").append(metric.name).append(' ').append(metric.type).append('\n');
+            try {
+                metric.write(out);
+            } catch (RuntimeException e) {
+                System.err.println("[Metrics] Collecting " + metric.name + " failed: " + e.getMessage());
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Label pairs of one gauge series: add(value, "job_id", "42", "format", "mp4").
+     */
+    public interface Samples {
+        void add(double value, String... labels);
+    }
+
+    private abstract static class Metric {
+        final String name;
+        final String help;
+        final String type;
+
+        Metric(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        abstract void write(StringBuilder out);
+    }
+
+    public static final class Counter extends Metric {
+        private final String labelName;
+        private final LongAdder unlabelled = new LongAdder();
+        private final Map<String, LongAdder> cells = new ConcurrentHashMap<>();
+
+        private Counter(String name, String help, String labelName) {
+            super(name, help, "counter");
+            this.labelName = labelName;
+        }
+
+        public void inc() {
+            unlabelled.increment();
+        }
+
+        public void add(long amount) {
+            unlabelled.add(amount);
+        }
+
+        public void inc(String label) {
+            cell(label).increment();
+        }
+
+        public void add(String label, long amount) {
+            cell(label).add(amount);
+        }
+
+        private LongAdder cell(String label) {
+            LongAdder cell = cells.get(label);
+            return cell != null ? cell : cells.computeIfAbsent(label, k -> new LongAdder());
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            if (labelName == null) {
+                out.append(name).append(' ').append(unlabelled.sum()).append('\n');
+                return;
+            }
+            for (Map.Entry<String, LongAdder> entry : cells.entrySet()) {
+                out.append(name).append('{');
+                appendLabel(out, labelName, entry.getKey());
+                out.append("} ").append(entry.getValue().sum()).append('\n');
+            }
+        }
+    }
+
+    public static final class Histogram extends Metric {
+        private final String labelName;
+        private final double[] bounds;
+        private final Cells unlabelled;
+        private final Map<String, Cells> cells = new ConcurrentHashMap<>();
+
+        private Histogram(String name, String help, String labelName, double[] bounds) {
+            super(name, help, "histogram");
+            this.labelName = labelName;
+            this.bounds = bounds.clone();
+            this.unlabelled = new Cells(bounds.length);
+        }
+
+        public void observe(double value) {
+            unlabelled.observe(bounds, value);
+        }
+
+        public void observe(String label, double value) {
+            Cells cell = cells.get(label);
+            if (cell == null) {
+                cell = cells.computeIfAbsent(label, k -> new Cells(bounds.length));
+            }
+            cell.observe(bounds, value);
+        }
+
+        /**
+         * Seconds elapsed since startNanos (a System.nanoTime() reading).
+         */
+        public void observeSince(String label, long startNanos) {
+            observe(label, (System.nanoTime() - startNanos) / 1e9);
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            if (labelName == null) {
+                writeCells(out, null, unlabelled);
+                return;
+            }
+            for (Map.Entry<String, Cells> entry : cells.entrySet()) {
+                writeCells(out, entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void writeCells(StringBuilder out, String label, Cells cell) {
+            long cumulative = 0;
+            for (int i = 0; i <= bounds.length; i++) {
+                cumulative += cell.buckets[i].sum();
+                out.append(name).append("_bucket{");
+                if (label != null) {
+                    appendLabel(out, labelName, label);
+                    out.append(',');
+                }
+                out.append("le=\"").append(i < bounds.length ? formatDouble(bounds[i]) : "+Inf").append("\"} ")
+                   .append(cumulative).append('\n');
+            }
+            String labels = "";
+            if (label != null) {
+                StringBuilder sb = new StringBuilder("{");
+                appendLabel(sb, labelName, label);
+                labels = sb.append('}').toString();
+            }
+            out.append(name).append("_sum").append(labels).append(' ').append(formatDouble(cell.sum.sum())).append('\n');
+            out.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+        }
+    }
+
+    private static final class Cells {
+        final LongAdder[] buckets;
+        final DoubleAdder sum = new DoubleAdder();
+
+        Cells(int bounds) {
+            buckets = new LongAdder[bounds + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observe(double[] bounds, double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+        }
+    }
+
+    private static final class GaugeFamily extends Metric {
+        private final Consumer<Samples> collector;
+
+        private GaugeFamily(String name, String help, Consumer<Samples> collector) {
+            super(name, help, "gauge");
+            this.collector = collector;
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            collector.accept((value, labels) -> {
+                out.append(name);
+                if (labels.length > 0) {
+                    out.append('{');
+                    for (int i = 0; i + 1 < labels.length; i += 2) {
+                        if (i > 0) {
+                            out.append(',');
+                        }
+                        appendLabel(out, labels[i], labels[i + 1]);
+                    }
+                    out.append('}');
+                }
+                out.append(' ').append(formatDouble(value)).append('\n');
+            });
+        }
+    }
+
+    private static void appendLabel(StringBuilder out, String name, String value) {
+        out.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void appendHelp(StringBuilder out, String help) {
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
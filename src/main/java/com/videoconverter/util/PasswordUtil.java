@@ -4,7 +4,9 @@ import org.mindrot.jbcrypt.BCrypt;
 
 public class PasswordUtil {
 
-    private static final int WORK_FACTOR = 10;
+    // Raising or lowering BCRYPT_COST takes effect for each user at their next login, see needsRehash.
+    private static final int WORK_FACTOR = Math.max(4, Math.min(31, AppConfig.getInt("BCRYPT_COST", 10)));
+
     public static String hashPassword(String plainPassword) {
         if (plainPassword == null || plainPassword.trim().isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty");
@@ -24,6 +26,23 @@ public class PasswordUtil {
         }
     }
 
+    /**
+     * Whether a stored hash was made with a different cost than the configured one (or is not a
+     * BCrypt hash this class understands), so it should be replaced after a successful login.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        // $2a$10$<salt+hash>
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$'
+                || hashedPassword.charAt(3) != '$' || hashedPassword.charAt(6) != '$') {
+            return true;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) != WORK_FACTOR;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
     public static boolean isStrongPassword(String password) {
         if (password == null || password.length() < 8) {
             return false;
@@ -0,0 +1,42 @@
+package com.videoconverter.util;
+
+/**
+ * Bytes moved by uploads and downloads, and the throughput of each transfer, for /metrics.
+ */
+public final class TransferStats {
+    // Bytes per second, 64 KB/s to 1 GB/s.
+    private static final double[] THROUGHPUT_BUCKETS = {
+            65_536, 262_144, 1_048_576, 4_194_304, 16_777_216, 67_108_864, 268_435_456, 1_073_741_824};
+
+    public static final TransferStats UPLOADS = new TransferStats("upload");
+    public static final TransferStats DOWNLOADS = new TransferStats("download");
+
+    private final MetricsRegistry.Counter bytes;
+    private final MetricsRegistry.Histogram throughput;
+
+    private TransferStats(String direction) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.bytes = metrics.counter("videoconverter_" + direction + "_bytes_total",
+                "Bytes received or sent as " + direction + "s");
+        this.throughput = metrics.histogram("videoconverter_" + direction + "_throughput_bytes_per_second",
+                "Throughput of each " + direction + " body or chunk", THROUGHPUT_BUCKETS);
+    }
+
+    /**
+     * @param startNanos System.nanoTime() when the transfer started
+     */
+    public void record(long byteCount, long startNanos) {
+        bytes.add(byteCount);
+        long elapsed = System.nanoTime() - startNanos;
+        if (byteCount > 0 && elapsed > 0) {
+            throughput.observe(byteCount * 1e9 / elapsed);
+        }
+    }
+
+    /**
+     * Bytes handed to the container to send (sendfile), where the transfer time is not known.
+     */
+    public void recordBytes(long byteCount) {
+        bytes.add(byteCount);
+    }
+}
@@ -1,6 +1,27 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="com.videoconverter.model.bean.User" %>
+<%@ page import="com.videoconverter.model.bean.UserStats" %>
+<%@ page import="com.videoconverter.model.bo.ConcurrencyController" %>
+<%@ page import="com.videoconverter.model.bo.ConversionBO" %>
+<%@ page import="com.videoconverter.model.bo.StatsBO" %>
+<%@ page import="com.videoconverter.model.dao.UserStatsDAO" %>
+<%@ page import="com.videoconverter.util.ConnectionPool" %>
+<%@ page import="com.videoconverter.util.EncoderCapabilities" %>
+<%@ page import="java.util.List" %>
 <%@ page import="java.util.Map" %>
+<%!
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+%>
 <%
     User user = (User) session.getAttribute("user");
     if (user == null || !user.isAdmin()) {
@@ -8,9 +29,19 @@
         return;
     }
 
-    int totalUsers = (int) request.getAttribute("totalUsers");
-    Map<Integer, Integer> conversionCounts = (Map<Integer, Integer>) request.getAttribute("conversionCounts");
-    int totalConversions = conversionCounts.values().stream().mapToInt(Integer::intValue).sum();
+    StatsBO stats = (StatsBO) request.getAttribute("stats");
+    List<UserStats> userStats = (List<UserStats>) request.getAttribute("userStats");
+    UserStatsDAO.Sort sort = (UserStatsDAO.Sort) request.getAttribute("sort");
+    int statsPage = (int) request.getAttribute("page");
+    boolean hasNextPage = (boolean) request.getAttribute("hasNextPage");
+    ConnectionPool.Stats dbPool = (ConnectionPool.Stats) request.getAttribute("dbPoolStats");
+    EncoderCapabilities.Snapshot caps = (EncoderCapabilities.Snapshot) request.getAttribute("encoderCaps");
+    boolean gpuDisabled = (boolean) request.getAttribute("gpuDisabled");
+    ConcurrencyController concurrency = (ConcurrencyController) request.getAttribute("concurrency");
+    int queueSize = (int) request.getAttribute("queueSize");
+    Map<Integer, Integer> queueDepthByUser = (Map<Integer, Integer>) request.getAttribute("queueDepthByUser");
+    ConversionBO conversionBO = ConversionBO.getInstance();
+    Map<String, Long> conversionModeCounts = (Map<String, Long>) request.getAttribute("conversionModeCounts");
 %>
 <!DOCTYPE html>
 <html lang="en">
@@ -36,49 +67,202 @@
         <h2 class="mb-4">Admin Dashboard</h2>
 
         <div class="row mb-4">
-            <div class="col-md-6">
+            <div class="col-md-3">
                 <div class="card border-primary">
                     <div class="card-body text-center">
                         <h5 class="card-title text-muted">Total Users</h5>
-                        <h2 class="text-primary"><%= totalUsers %></h2>
+                        <h2 class="text-primary"><%= stats.getTotalUsers() %></h2>
                     </div>
                 </div>
             </div>
-            <div class="col-md-6">
+            <div class="col-md-3">
                 <div class="card border-success">
                     <div class="card-body text-center">
                         <h5 class="card-title text-muted">Total Conversions</h5>
-                        <h2 class="text-success"><%= totalConversions %></h2>
+                        <h2 class="text-success"><%= stats.getCompletedJobs() %></h2>
+                    </div>
+                </div>
+            </div>
+            <div class="col-md-3">
+                <div class="card border-info">
+                    <div class="card-body text-center">
+                        <h5 class="card-title text-muted">Bytes In / Out</h5>
+                        <h4 class="text-info"><%= formatBytes(stats.getBytesIn()) %> / <%= formatBytes(stats.getBytesOut()) %></h4>
+                    </div>
+                </div>
+            </div>
+            <div class="col-md-3">
+                <div class="card border-secondary">
+                    <div class="card-body text-center">
+                        <h5 class="card-title text-muted">Encode Time</h5>
+                        <h2 class="text-secondary"><%= String.format("%.1f h", stats.getEncodeSeconds() / 3600) %></h2>
                     </div>
                 </div>
             </div>
         </div>
 
-        <div class="card">
+        <div class="card mb-4">
+            <div class="card-header">
+                <h5 class="mb-0">Conversion Workers</h5>
+            </div>
+            <div class="card-body">
+                <table class="table table-sm">
+                    <tbody>
+                        <tr><th>Concurrent encodes (running / limit)</th><td><%= concurrency.getEncoding() %> / <%= concurrency.getLimit() %></td></tr>
+                        <tr><th>Queued jobs</th><td><%= queueSize %></td></tr>
+                        <tr><th>Per-user caps (running / queued)</th><td><%= conversionBO.getUserMaxActive() %> / <%= conversionBO.getUserMaxQueued() %></td></tr>
+                        <tr><th>Total throughput</th><td><%= String.format("%.2f", concurrency.getLastThroughput()) %>x real time</td></tr>
+                        <tr><th>Load per core / free memory</th><td><%= String.format("%.2f", concurrency.getLastLoadPerCore()) %> / <%= concurrency.getLastFreeMemoryMb() %> MB</td></tr>
+                        <tr><th>Last decision</th><td><%= concurrency.getLastDecision() %></td></tr>
+                    </tbody>
+                </table>
+                <form method="post" action="<%= request.getContextPath() %>/admin" class="row g-2 align-items-center">
+                    <input type="hidden" name="action" value="workerLimits">
+                    <div class="col-auto"><label class="col-form-label">Min</label></div>
+                    <div class="col-auto"><input type="number" min="1" name="minWorkers" class="form-control form-control-sm" value="<%= concurrency.getMinLimit() %>"></div>
+                    <div class="col-auto"><label class="col-form-label">Max</label></div>
+                    <div class="col-auto"><input type="number" min="1" name="maxWorkers" class="form-control form-control-sm" value="<%= concurrency.getMaxLimit() %>"></div>
+                    <div class="col-auto"><button type="submit" class="btn btn-sm btn-outline-primary">Apply</button></div>
+                </form>
+                <% if (!queueDepthByUser.isEmpty()) { %>
+                    <h6 class="mt-3">Queue depth by user</h6>
+                    <table class="table table-sm mb-0">
+                        <thead>
+                            <tr><th>User</th><th>Queued</th></tr>
+                        </thead>
+                        <tbody>
+                            <% for (Map.Entry<Integer, Integer> entry : queueDepthByUser.entrySet()) { %>
+                                <tr>
+                                    <td>User #<%= entry.getKey() %></td>
+                                    <td><span class="badge bg-warning text-dark"><%= entry.getValue() %></span></td>
+                                </tr>
+                            <% } %>
+                        </tbody>
+                    </table>
+                <% } %>
+            </div>
+        </div>
+
+        <div class="card mb-4">
+            <div class="card-header">
+                <h5 class="mb-0">Conversion Paths</h5>
+            </div>
+            <div class="card-body">
+                <% if (conversionModeCounts.isEmpty()) { %>
+                    <p class="text-muted mb-0">No completed conversions recorded yet.</p>
+                <% } else { %>
+                    <table class="table table-sm mb-0">
+                        <tbody>
+                            <tr><th>Stream copy (remux)</th><td><%= conversionModeCounts.getOrDefault("COPY", 0L) %></td></tr>
+                            <tr><th>Video copy + audio encode</th><td><%= conversionModeCounts.getOrDefault("COPY_VIDEO", 0L) %></td></tr>
+                            <tr><th>GPU encode</th><td><%= conversionModeCounts.getOrDefault("GPU", 0L) %></td></tr>
+                            <tr><th>CPU encode</th><td><%= conversionModeCounts.getOrDefault("CPU", 0L) %></td></tr>
+                            <tr><th>CPU encode (parallel segments)</th><td><%= conversionModeCounts.getOrDefault("CPU_SEGMENTED", 0L) %></td></tr>
+                            <tr><th>Reused earlier result</th><td><%= conversionModeCounts.getOrDefault("CACHED", 0L) %></td></tr>
+                        </tbody>
+                    </table>
+                <% } %>
+            </div>
+        </div>
+
+        <div class="card mb-4">
+            <div class="card-header d-flex justify-content-between align-items-center">
+                <h5 class="mb-0">Encoder Capabilities</h5>
+                <form method="post" action="<%= request.getContextPath() %>/admin" class="mb-0">
+                    <input type="hidden" name="action" value="reprobe">
+                    <button type="submit" class="btn btn-sm btn-outline-primary">Re-probe</button>
+                </form>
+            </div>
+            <div class="card-body">
+                <% if (!caps.isFfmpegAvailable()) { %>
+                    <div class="alert alert-danger mb-0"><%= caps.getError() %></div>
+                <% } else { %>
+                    <table class="table table-sm mb-0">
+                        <tbody>
+                            <tr><th>FFmpeg</th><td><%= caps.getFfmpegVersion() %></td></tr>
+                            <tr><th>Hardware accelerators</th><td><%= caps.getHwaccels().isEmpty() ? "none" : String.join(", ", caps.getHwaccels()) %></td></tr>
+                            <tr><th>CUDA device</th><td><%= caps.isCudaUsable() ? "usable" : "not available" %></td></tr>
+                            <tr><th>h264_nvenc / hevc_nvenc</th><td><%= caps.isH264NvencUsable() ? "usable" : "no" %> / <%= caps.isHevcNvencUsable() ? "usable" : "no" %></td></tr>
+                            <tr><th>libx264 / libvpx-vp9 / libopus</th><td><%= caps.hasEncoder("libx264") ? "yes" : "MISSING" %> / <%= caps.hasEncoder("libvpx-vp9") ? "yes" : "MISSING" %> / <%= caps.hasEncoder("libopus") ? "yes" : "MISSING" %></td></tr>
+                            <tr><th>Probed at</th><td><%= caps.getProbedAt() %></td></tr>
+                        </tbody>
+                    </table>
+                    <% if (gpuDisabled) { %>
+                        <div class="alert alert-warning mt-3 mb-0">GPU encoding disabled after repeated failures. Re-probe to try again.</div>
+                    <% } %>
+                <% } %>
+            </div>
+        </div>
+
+        <div class="card mb-4">
             <div class="card-header">
+                <h5 class="mb-0">Database Connection Pool</h5>
+            </div>
+            <div class="card-body">
+                <table class="table table-sm mb-0">
+                    <tbody>
+                        <tr><th>Active / Idle / Max</th><td><%= dbPool.getActive() %> / <%= dbPool.getIdle() %> / <%= dbPool.getMaxSize() %></td></tr>
+                        <tr><th>Waiting threads</th><td><%= dbPool.getWaiting() %></td></tr>
+                        <tr><th>Avg / Max wait</th><td><%= String.format("%.2f", dbPool.getAvgWaitMs()) %> ms / <%= String.format("%.2f", dbPool.getMaxWaitMs()) %> ms</td></tr>
+                        <tr><th>Timeouts</th><td><%= dbPool.getTimeouts() %></td></tr>
+                        <tr><th>Suspected leaks</th><td><%= dbPool.getLeaks() %></td></tr>
+                    </tbody>
+                </table>
+            </div>
+        </div>
+
+        <div class="card mb-4">
+            <div class="card-header d-flex justify-content-between align-items-center">
                 <h5 class="mb-0">Conversion Statistics by User</h5>
+                <div class="btn-group btn-group-sm">
+                    <% for (UserStatsDAO.Sort option : UserStatsDAO.Sort.values()) { %>
+                        <a href="<%= request.getContextPath() %>/admin?sort=<%= option.name().toLowerCase() %>"
+                           class="btn <%= option == sort ? "btn-primary" : "btn-outline-primary" %>">
+                            Top by <%= option.name().toLowerCase().replace('_', ' ') %>
+                        </a>
+                    <% } %>
+                </div>
             </div>
             <div class="card-body">
-                <% if (conversionCounts.isEmpty()) { %>
+                <% if (userStats.isEmpty()) { %>
                     <p class="text-muted">No conversions yet.</p>
                 <% } else { %>
                     <table class="table table-striped">
                         <thead>
                             <tr>
-                                <th>User ID</th>
+                                <th>#</th>
+                                <th>User</th>
                                 <th>Completed Conversions</th>
+                                <th>Bytes In</th>
+                                <th>Bytes Out</th>
+                                <th>Encode Time</th>
                             </tr>
                         </thead>
                         <tbody>
-                            <% for (Map.Entry<Integer, Integer> entry : conversionCounts.entrySet()) { %>
+                            <% int rank = statsPage * (int) request.getAttribute("pageSize"); %>
+                            <% for (UserStats entry : userStats) { %>
                                 <tr>
-                                    <td>User #<%= entry.getKey() %></td>
-                                    <td><span class="badge bg-success"><%= entry.getValue() %></span></td>
+                                    <td><%= ++rank %></td>
+                                    <td><%= entry.getUsername() %> <span class="text-muted">#<%= entry.getUserId() %></span></td>
+                                    <td><span class="badge bg-success"><%= entry.getCompletedJobs() %></span></td>
+                                    <td><%= formatBytes(entry.getBytesIn()) %></td>
+                                    <td><%= formatBytes(entry.getBytesOut()) %></td>
+                                    <td><%= String.format("%.1f min", entry.getEncodeSeconds() / 60) %></td>
                                 </tr>
                             <% } %>
                         </tbody>
                     </table>
                 <% } %>
+                <nav class="d-flex gap-2">
+                    <% if (statsPage > 0) { %>
+                        <a href="<%= request.getContextPath() %>/admin?sort=<%= sort.name().toLowerCase() %>&page=<%= statsPage - 1 %>"
+                           class="btn btn-outline-secondary btn-sm">Previous</a>
+                    <% } %>
+                    <% if (hasNextPage) { %>
+                        <a href="<%= request.getContextPath() %>/admin?sort=<%= sort.name().toLowerCase() %>&page=<%= statsPage + 1 %>"
+                           class="btn btn-outline-primary btn-sm">Next</a>
+                    <% } %>
+                </nav>
             </div>
         </div>
     </div>
@@ -1,6 +1,7 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="com.videoconverter.model.bean.User" %>
 <%@ page import="com.videoconverter.model.bean.ConversionJob" %>
+<%@ page import="com.videoconverter.model.bean.JobPage" %>
 <%@ page import="java.util.List" %>
 <%@ page import="java.text.SimpleDateFormat" %>
 <%@ page import="java.util.TimeZone" %>
@@ -11,7 +12,9 @@
         return;
     }
 
-    List<ConversionJob> jobs = (List<ConversionJob>) request.getAttribute("jobs");
+    List<ConversionJob> activeJobs = (List<ConversionJob>) request.getAttribute("activeJobs");
+    JobPage history = (JobPage) request.getAttribute("history");
+    String cursor = request.getParameter("cursor");
     SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm");
     dateFormat.setTimeZone(TimeZone.getTimeZone("Asia/Ho_Chi_Minh"));
 %>
@@ -23,7 +26,6 @@
     <title>My Jobs - Video Converter</title>
     <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
     <link href="css/style.css" rel="stylesheet">
-    <meta http-equiv="refresh" content="5">
 </head>
 <body>
     <nav class="navbar navbar-dark bg-primary">
@@ -41,11 +43,13 @@
         <h3 class="mb-4">My Conversion Jobs</h3>
 
 
-        <% if (jobs == null || jobs.isEmpty()) { %>
+        <% if (activeJobs.isEmpty() && history.getJobs().isEmpty() && cursor == null) { %>
             <div class="alert alert-info">
                 No conversion jobs yet. <a href="upload" class="alert-link">Upload a video</a> to get started!
             </div>
         <% } else { %>
+            <% if (!activeJobs.isEmpty()) { %>
+            <h5>In progress</h5>
             <div class="table-responsive">
                 <table class="table table-hover">
                     <thead>
@@ -59,46 +63,114 @@
                         </tr>
                     </thead>
                     <tbody>
-                        <% for (ConversionJob job : jobs) { %>
-                            <tr>
-                                <td><%= job.getVideoFilename() %></td>
-                                <td><%= job.getOutputFormat().toUpperCase() %></td>
-                                <td>
-                                    <span class="badge <%= job.getStatusBadgeClass() %>">
-                                        <%= job.getStatus() %>
-                                    </span>
-                                </td>
-                                <td>
-                                    <div class="progress" style="width: 100px;">
-                                        <div class="progress-bar <%= job.getStatusBadgeClass() %>"
-                                             style="width: <%= job.getProgress() %>%">
-                                            <%= job.getProgress() %>%
-                                        </div>
-                                    </div>
-                                </td>
-                                <td><%= dateFormat.format(job.getCreatedAt()) %></td>
-                                <td>
-                                    <% if ("COMPLETED".equals(job.getStatus())) { %>
-                                        <a href="download?jobId=<%= job.getJobId() %>"
-                                           class="btn btn-sm btn-success">Download</a>
-                                    <% } %>
-                                    <form method="post" action="status" style="display: inline;">
-                                        <input type="hidden" name="action" value="delete">
-                                        <input type="hidden" name="jobId" value="<%= job.getJobId() %>">
-                                        <button type="submit" class="btn btn-sm btn-danger"
-                                                onclick="return confirm('Delete this job?')">Delete</button>
-                                    </form>
-                                </td>
-                            </tr>
+                        <% for (ConversionJob job : activeJobs) { %>
+                            <%@ include file="/WEB-INF/jspf/job_row.jspf" %>
                         <% } %>
                     </tbody>
                 </table>
             </div>
-            <small class="text-muted">Page auto-refreshes every 5 seconds</small>
+            <% } %>
+            <small class="text-muted d-block mb-4" id="liveStatus">Live updates connecting...</small>
+
+            <h5>History</h5>
+            <% if (history.getJobs().isEmpty()) { %>
+                <p class="text-muted">No finished jobs<%= cursor == null ? "" : " on this page" %>.</p>
+            <% } else { %>
+            <div class="table-responsive">
+                <table class="table table-hover">
+                    <thead>
+                        <tr>
+                            <th>Video</th>
+                            <th>Format</th>
+                            <th>Status</th>
+                            <th>Progress</th>
+                            <th>Created</th>
+                            <th>Actions</th>
+                        </tr>
+                    </thead>
+                    <tbody>
+                        <% for (ConversionJob job : history.getJobs()) { %>
+                            <%@ include file="/WEB-INF/jspf/job_row.jspf" %>
+                        <% } %>
+                    </tbody>
+                </table>
+            </div>
+            <% } %>
+            <nav class="d-flex gap-2 mb-4">
+                <% if (cursor != null) { %>
+                    <a href="status" class="btn btn-outline-secondary btn-sm">Newest</a>
+                <% } %>
+                <% if (history.hasNext()) { %>
+                    <a href="status?cursor=<%= history.getNextCursor() %>" class="btn btn-outline-primary btn-sm">Older</a>
+                <% } %>
+            </nav>
         <% } %>
     </div>
 
     <script src="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js"></script>
+    <script>
+        // Apply job deltas pushed by the server instead of reloading the whole page.
+        const BADGE_CLASSES = {
+            COMPLETED: 'bg-success',
+            PROCESSING: 'bg-primary',
+            PENDING: 'bg-warning',
+            FAILED: 'bg-danger'
+        };
+
+        function applyJob(job) {
+            const row = document.querySelector('tr[data-job-id="' + job.jobId + '"]');
+            if (!row) {
+                return false;
+            }
+
+            const badgeClass = BADGE_CLASSES[job.status] || 'bg-secondary';
+            const badge = row.querySelector('.job-status');
+            badge.className = 'badge job-status ' + badgeClass;
+            badge.textContent = job.status;
+            badge.title = job.error || '';
+
+            const bar = row.querySelector('.job-progress');
+            bar.className = 'progress-bar job-progress ' + badgeClass;
+            bar.style.width = job.progress + '%';
+            bar.textContent = job.progress + '%';
+
+            // HLS jobs can be watched while still converting; other formats wait for the file.
+            const hls = row.dataset.format === 'hls';
+            const ready = hls ? (job.status === 'PROCESSING' || job.status === 'COMPLETED')
+                              : job.status === 'COMPLETED';
+            const actions = row.querySelector('.job-actions');
+            if (ready && !actions.querySelector('a.btn-success')) {
+                const link = document.createElement('a');
+                link.href = (hls ? 'watch' : 'download') + '?jobId=' + job.jobId;
+                link.className = 'btn btn-sm btn-success';
+                link.textContent = hls ? 'Watch' : 'Download';
+                actions.insertBefore(link, actions.firstChild);
+                actions.insertBefore(document.createTextNode(' '), link.nextSibling);
+            }
+            return true;
+        }
+
+        if (window.EventSource) {
+            const liveStatus = document.getElementById('liveStatus');
+            const source = new EventSource('status/stream');
+
+            source.addEventListener('open', function() {
+                if (liveStatus) liveStatus.textContent = 'Live updates';
+            });
+            source.addEventListener('error', function() {
+                if (liveStatus) liveStatus.textContent = 'Live updates reconnecting...';
+            });
+            source.addEventListener('job', function(e) {
+                applyJob(JSON.parse(e.data));
+            });
+            source.addEventListener('created', function(e) {
+                // A job submitted from another tab: render it once from the server.
+                if (!applyJob(JSON.parse(e.data))) {
+                    window.location.reload();
+                }
+            });
+        }
+    </script>
 </body>
 </html>
 
@@ -1,5 +1,7 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="com.videoconverter.model.bean.User" %>
+<%@ page import="com.videoconverter.util.EncodingProfile" %>
+<%@ page import="com.videoconverter.util.EncodingProfiles" %>
 <%
     User user = (User) session.getAttribute("user");
     if (user == null) {
@@ -80,15 +82,44 @@
                             </div>
 
                             <div class="mb-4">
-                                <label class="form-label">Output Format</label>
-                                <select class="form-select" name="outputFormat" required>
-                                    <option value="">-- Select Format --</option>
-                                    <option value="mp4">MP4 (H.264)</option>
-                                    <option value="avi">AVI</option>
-                                    <option value="mkv">MKV</option>
-                                    <option value="mov">MOV (QuickTime)</option>
-                                    <option value="webm">WebM</option>
+                                <label class="form-label">Output Formats</label>
+                                <div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="mp4" id="fmt-mp4">
+                                        <label class="form-check-label" for="fmt-mp4">MP4 (H.264)</label>
+                                    </div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="avi" id="fmt-avi">
+                                        <label class="form-check-label" for="fmt-avi">AVI</label>
+                                    </div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="mkv" id="fmt-mkv">
+                                        <label class="form-check-label" for="fmt-mkv">MKV</label>
+                                    </div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="mov" id="fmt-mov">
+                                        <label class="form-check-label" for="fmt-mov">MOV (QuickTime)</label>
+                                    </div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="webm" id="fmt-webm">
+                                        <label class="form-check-label" for="fmt-webm">WebM</label>
+                                    </div>
+                                    <div class="form-check form-check-inline">
+                                        <input class="form-check-input" type="checkbox" name="outputFormat" value="hls" id="fmt-hls">
+                                        <label class="form-check-label" for="fmt-hls">HLS (watch while converting)</label>
+                                    </div>
+                                </div>
+                                <small class="text-muted">Pick one or more; several formats are converted in a single pass.</small>
+                            </div>
+
+                            <div class="mb-4">
+                                <label for="profile" class="form-label">Encoding Profile</label>
+                                <select class="form-select" id="profile" name="profile">
+                                    <% for (EncodingProfile profile : EncodingProfiles.getInstance().list()) { %>
+                                        <option value="<%= profile.getName() %>"><%= profile.getName() %> - <%= profile.getDescription() %></option>
+                                    <% } %>
                                 </select>
+                                <small class="text-muted">Slower profiles take more CPU time for smaller files at the same quality.</small>
                             </div>
 
                             <button type="submit" class="btn btn-primary btn-lg w-100" id="uploadBtn">
@@ -124,16 +155,129 @@
     <script>
         let uploadCompleted = false;
 
+        // Resumable upload (tus protocol, see ResumableUploadServlet). The upload URL is remembered per
+        // file, so retrying after a dropped connection or a page reload continues where it stopped.
+        const CHUNK_SIZE = 8 * 1024 * 1024;
+        const MAX_RETRIES = 5;
+
+        function setProgress(loaded, total) {
+            const percent = Math.round((loaded / total) * 100);
+            const progressBar = document.getElementById('uploadProgress');
+            progressBar.style.width = percent + '%';
+            progressBar.textContent = percent + '%';
+        }
+
+        function b64(text) {
+            return btoa(unescape(encodeURIComponent(text)));
+        }
+
+        function request(method, url, headers, body, onProgress) {
+            return new Promise(function(resolve, reject) {
+                const xhr = new XMLHttpRequest();
+                xhr.open(method, url, true);
+                xhr.setRequestHeader('Tus-Resumable', '1.0.0');
+                Object.keys(headers).forEach(function(k) { xhr.setRequestHeader(k, headers[k]); });
+                if (onProgress) {
+                    xhr.upload.addEventListener('progress', onProgress);
+                }
+                xhr.addEventListener('load', function() { resolve(xhr); });
+                xhr.addEventListener('error', function() { reject(new Error('network')); });
+                xhr.send(body);
+            });
+        }
+
+        async function sha256Header(blob) {
+            if (!window.crypto || !crypto.subtle) return null; // only available on https / localhost
+            const digest = await crypto.subtle.digest('SHA-256', await blob.arrayBuffer());
+            return 'sha256 ' + btoa(String.fromCharCode.apply(null, new Uint8Array(digest)));
+        }
+
+        async function currentOffset(url) {
+            const xhr = await request('HEAD', url, {}, null);
+            return xhr.status === 200 ? parseInt(xhr.getResponseHeader('Upload-Offset'), 10) : -1;
+        }
+
+        async function resumableUpload(file, outputFormat, profile) {
+            const key = 'upload:' + [file.name, file.size, file.lastModified, outputFormat, profile].join(':');
+            let url = localStorage.getItem(key);
+            let offset = url ? await currentOffset(url).catch(function() { return -1; }) : -1;
+
+            if (offset < 0) {
+                const created = await request('POST', 'resumable', {
+                    'Upload-Length': String(file.size),
+                    'Upload-Metadata': 'filename ' + b64(file.name) + ',outputFormat ' + b64(outputFormat)
+                        + ',profile ' + b64(profile)
+                }, null);
+                if (created.status !== 201) {
+                    throw new Error(created.status === 429 ? 'You already have too many videos waiting.' : 'Upload failed.');
+                }
+                url = created.getResponseHeader('Location');
+                localStorage.setItem(key, url);
+                offset = 0;
+            }
+
+            let retries = 0;
+            while (true) {
+                const chunk = file.slice(offset, Math.min(offset + CHUNK_SIZE, file.size));
+                const headers = {
+                    'Content-Type': 'application/offset+octet-stream',
+                    'Upload-Offset': String(offset)
+                };
+                const checksum = await sha256Header(chunk);
+                if (checksum) headers['Upload-Checksum'] = checksum;
+
+                const base = offset;
+                let xhr;
+                try {
+                    xhr = await request('PATCH', url, headers, chunk, function(e) {
+                        setProgress(base + e.loaded, file.size);
+                    });
+                } catch (err) {
+                    xhr = null;
+                }
+
+                if (xhr && xhr.status === 204) {
+                    offset = parseInt(xhr.getResponseHeader('Upload-Offset'), 10);
+                    retries = 0;
+                    setProgress(offset, file.size);
+                    if (offset >= file.size) {
+                        localStorage.removeItem(key);
+                        return;
+                    }
+                    continue;
+                }
+                if (xhr && xhr.status === 404) {
+                    localStorage.removeItem(key);
+                    throw new Error('Upload expired. Please try again.');
+                }
+                if (++retries > MAX_RETRIES) {
+                    throw new Error('Upload interrupted. Submit again to resume.');
+                }
+                // Network error, checksum mismatch or offset conflict: back off, ask the server where we are.
+                await new Promise(function(r) { setTimeout(r, Math.min(30000, 1000 * Math.pow(2, retries))); });
+                const serverOffset = await currentOffset(url).catch(function() { return -1; });
+                if (serverOffset >= 0) offset = serverOffset;
+            }
+        }
+
         document.getElementById('uploadForm').addEventListener('submit', function(e) {
             e.preventDefault();
 
             const fileInput = document.getElementById('videoFile');
             const file = fileInput.files[0];
+            const outputFormat = Array.from(this.querySelectorAll('input[name="outputFormat"]:checked'))
+                .map(function(box) { return box.value; })
+                .join(',');
+            const profile = document.getElementById('profile').value;
 
             if (!file) {
                 alert('Please select a file');
                 return;
             }
+            if (!outputFormat) {
+                alert('Please select at least one output format');
+                return;
+            }
 
             const overlay = document.getElementById('uploadingOverlay');
             overlay.style.display = 'flex';
@@ -143,42 +287,19 @@
 
             document.getElementById('uploadBtn').disabled = true;
 
-            const formData = new FormData(this);
-            const xhr = new XMLHttpRequest();
-
-            xhr.upload.addEventListener('progress', function(e) {
-                if (e.lengthComputable) {
-                    const percent = Math.round((e.loaded / e.total) * 100);
-                    const progressBar = document.getElementById('uploadProgress');
-                    progressBar.style.width = percent + '%';
-                    progressBar.textContent = percent + '%';
-                }
-            });
+            resumableUpload(file, outputFormat, profile).then(function() {
+                uploadCompleted = true;
+                document.querySelector('.uploading-content h4').textContent = 'Upload Complete!';
+                document.querySelector('.uploading-content p').textContent = 'Redirecting...';
 
-            xhr.addEventListener('load', function() {
-                if (xhr.status === 200) {
-                    uploadCompleted = true;
-                    document.querySelector('.uploading-content h4').textContent = 'Upload Complete!';
-                    document.querySelector('.uploading-content p').textContent = 'Redirecting...';
-
-                    setTimeout(function() {
-                        window.location.href = 'status';
-                    }, 800);
-                } else {
-                    alert('Upload failed. Please try again.');
-                    overlay.style.display = 'none';
-                    document.getElementById('uploadBtn').disabled = false;
-                }
-            });
-
-            xhr.addEventListener('error', function() {
-                alert('Upload error. Please check your connection and try again.');
+                setTimeout(function() {
+                    window.location.href = 'status?success=true';
+                }, 800);
+            }).catch(function(err) {
+                alert(err.message || 'Upload failed. Please try again.');
                 overlay.style.display = 'none';
                 document.getElementById('uploadBtn').disabled = false;
             });
-
-            xhr.open('POST', 'upload', true);
-            xhr.send(formData);
         });
 
         window.addEventListener('beforeunload', function(e) {
@@ -0,0 +1,70 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page import="com.videoconverter.model.bean.User" %>
+<%@ page import="com.videoconverter.model.bean.ConversionJob" %>
+<%
+    User user = (User) session.getAttribute("user");
+    if (user == null) {
+        response.sendRedirect("login");
+        return;
+    }
+
+    ConversionJob job = (ConversionJob) request.getAttribute("job");
+    if (job == null) {
+        response.sendRedirect("status");
+        return;
+    }
+    String playlistUrl = "hls/" + job.getJobId() + "/index.m3u8";
+%>
+<!DOCTYPE html>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Watch - Video Converter</title>
+    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
+    <link href="css/style.css" rel="stylesheet">
+</head>
+<body>
+    <nav class="navbar navbar-dark bg-primary">
+        <div class="container">
+            <span class="navbar-brand">Video Converter</span>
+            <div>
+                <span class="text-white me-3">Welcome, <%= user.getUsername() %></span>
+                <a href="status" class="btn btn-light btn-sm me-2">My Jobs</a>
+                <a href="logout" class="btn btn-outline-light btn-sm">Logout</a>
+            </div>
+        </div>
+    </nav>
+
+    <div class="container mt-4">
+        <h3 class="mb-3"><%= job.getVideoFilename() %></h3>
+        <video id="player" class="w-100 bg-dark" controls playsinline></video>
+        <small class="text-muted" id="playerStatus">
+            <%= "COMPLETED".equals(job.getStatus()) ? "" : "Still converting - new segments appear as they are ready." %>
+        </small>
+    </div>
+
+    <script src="https://cdn.jsdelivr.net/npm/hls.js@1.5.0/dist/hls.min.js"></script>
+    <script>
+        const video = document.getElementById('player');
+        const playlistUrl = '<%= playlistUrl %>';
+
+        if (window.Hls && Hls.isSupported()) {
+            const hls = new Hls();
+            hls.on(Hls.Events.ERROR, function(event, data) {
+                // The playlist appears a moment after encoding starts; keep asking until it does.
+                if (data.fatal && data.type === Hls.ErrorTypes.NETWORK_ERROR) {
+                    setTimeout(function() { hls.loadSource(playlistUrl); }, 2000);
+                }
+            });
+            hls.loadSource(playlistUrl);
+            hls.attachMedia(video);
+        } else if (video.canPlayType('application/vnd.apple.mpegurl')) {
+            // Safari and iOS play HLS natively
+            video.src = playlistUrl;
+        } else {
+            document.getElementById('playerStatus').textContent = 'This browser cannot play HLS.';
+        }
+    </script>
+</body>
+</html>
@@ -37,7 +37,14 @@ CREATE TABLE `conversion_jobs` (
   `output_path` varchar(500) DEFAULT NULL,
   `error_message` text DEFAULT NULL,
   `created_at` timestamp NOT NULL DEFAULT current_timestamp(),
-  `completed_at` timestamp NULL DEFAULT NULL
+  `completed_at` timestamp NULL DEFAULT NULL,
+  `worker_id` varchar(100) DEFAULT NULL COMMENT 'Lease owner while PROCESSING',
+  `lease_expires_at` timestamp NULL DEFAULT NULL,
+  `attempts` int(11) NOT NULL DEFAULT 0,
+  `conversion_mode` varchar(20) DEFAULT NULL COMMENT 'COPY, COPY_VIDEO, GPU, CPU or CACHED',
+  `profile` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Encoding profile name',
+  `output_size` bigint(20) DEFAULT NULL COMMENT 'Bytes, set on completion',
+  `encode_seconds` decimal(10,3) DEFAULT NULL COMMENT 'Encode wall time, 0 for CACHED'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Conversion job tracking';
 
 --
@@ -53,6 +60,41 @@ INSERT INTO `conversion_jobs` (`job_id`, `video_id`, `user_id`, `output_format`,
 
 -- --------------------------------------------------------
 
+--
+-- Cấu trúc bảng cho bảng `upload_sessions`
+--
+
+CREATE TABLE `upload_sessions` (
+  `upload_id` char(32) NOT NULL,
+  `user_id` int(11) NOT NULL,
+  `filename` varchar(255) NOT NULL,
+  `output_format` varchar(64) NOT NULL,
+  `profile` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Encoding profile for the jobs',
+  `file_path` varchar(500) NOT NULL,
+  `total_size` bigint(20) NOT NULL,
+  `received` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Bytes written contiguously from offset 0',
+  `state` enum('OPEN','SUBMITTING','SUBMITTED') NOT NULL DEFAULT 'OPEN' COMMENT 'SUBMITTED once jobs exist',
+  `job_ids` varchar(255) DEFAULT NULL COMMENT 'Comma-separated jobs created from the upload',
+  `created_at` timestamp NOT NULL DEFAULT current_timestamp(),
+  `updated_at` timestamp NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp()
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Resumable uploads in progress';
+
+-- --------------------------------------------------------
+
+--
+-- Cấu trúc bảng cho bảng `user_stats`
+--
+
+CREATE TABLE `user_stats` (
+  `user_id` int(11) NOT NULL,
+  `completed_jobs` int(11) NOT NULL DEFAULT 0,
+  `bytes_in` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Uploaded video bytes',
+  `bytes_out` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Bytes of completed outputs',
+  `encode_seconds` decimal(14,3) NOT NULL DEFAULT 0.000
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Per-user totals for the admin dashboard, rebuilt periodically';
+
+-- --------------------------------------------------------
+
 --
 -- Cấu trúc bảng cho bảng `users`
 --
@@ -87,7 +129,16 @@ CREATE TABLE `videos` (
   `filename` varchar(255) NOT NULL,
   `file_path` varchar(500) NOT NULL,
   `file_size` bigint(20) NOT NULL,
-  `uploaded_at` timestamp NOT NULL DEFAULT current_timestamp()
+  `uploaded_at` timestamp NOT NULL DEFAULT current_timestamp(),
+  `content_hash` char(64) DEFAULT NULL COMMENT 'SHA-256 of the uploaded file',
+  `container` varchar(100) DEFAULT NULL COMMENT 'ffprobe format_name',
+  `duration` decimal(12,3) DEFAULT NULL COMMENT 'Seconds',
+  `video_codec` varchar(32) DEFAULT NULL,
+  `audio_codec` varchar(32) DEFAULT NULL,
+  `width` int(11) DEFAULT NULL,
+  `height` int(11) DEFAULT NULL,
+  `frame_rate` decimal(8,3) DEFAULT NULL,
+  `bit_rate` bigint(20) DEFAULT NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Uploaded video metadata';
 
 --
@@ -111,10 +162,28 @@ INSERT INTO `videos` (`video_id`, `user_id`, `filename`, `file_path`, `file_size
 ALTER TABLE `conversion_jobs`
   ADD PRIMARY KEY (`job_id`),
   ADD KEY `fk_job_video` (`video_id`),
-  ADD KEY `fk_job_user` (`user_id`),
-  ADD KEY `idx_status` (`status`),
+  ADD KEY `idx_user_created` (`user_id`,`created_at`,`job_id`),
+  ADD KEY `idx_status_created` (`status`,`created_at`,`job_id`),
   ADD KEY `idx_created_at` (`created_at`);
 
+--
+-- Chỉ mục cho bảng `upload_sessions`
+--
+ALTER TABLE `upload_sessions`
+  ADD PRIMARY KEY (`upload_id`),
+  ADD KEY `fk_upload_user` (`user_id`),
+  ADD KEY `idx_updated_at` (`updated_at`);
+
+--
+-- Chỉ mục cho bảng `user_stats`
+--
+ALTER TABLE `user_stats`
+  ADD PRIMARY KEY (`user_id`),
+  ADD KEY `idx_completed_jobs` (`completed_jobs`),
+  ADD KEY `idx_bytes_in` (`bytes_in`),
+  ADD KEY `idx_bytes_out` (`bytes_out`),
+  ADD KEY `idx_encode_seconds` (`encode_seconds`);
+
 --
 -- Chỉ mục cho bảng `users`
 --
@@ -129,7 +198,8 @@ ALTER TABLE `users`
 ALTER TABLE `videos`
   ADD PRIMARY KEY (`video_id`),
   ADD KEY `fk_video_user` (`user_id`),
-  ADD KEY `idx_uploaded_at` (`uploaded_at`);
+  ADD KEY `idx_uploaded_at` (`uploaded_at`),
+  ADD KEY `idx_content_hash` (`content_hash`);
 
 --
 -- AUTO_INCREMENT cho các bảng đã đổ
@@ -164,6 +234,18 @@ ALTER TABLE `conversion_jobs`
   ADD CONSTRAINT `fk_job_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE,
   ADD CONSTRAINT `fk_job_video` FOREIGN KEY (`video_id`) REFERENCES `videos` (`video_id`) ON DELETE CASCADE;
 
+--
+-- Các ràng buộc cho bảng `upload_sessions`
+--
+ALTER TABLE `upload_sessions`
+  ADD CONSTRAINT `fk_upload_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE;
+
+--
+-- Các ràng buộc cho bảng `user_stats`
+--
+ALTER TABLE `user_stats`
+  ADD CONSTRAINT `fk_stats_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE;
+
 --
 -- Các ràng buộc cho bảng `videos`
 --
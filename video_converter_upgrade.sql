@@ -0,0 +1,127 @@
+-- Nâng cấp DB tạo từ bản `video_converter.sql` cũ lên schema hiện tại.
+--
+-- Chạy lại nhiều lần vẫn an toàn: cột, chỉ mục và bảng chỉ được thêm khi chưa có, chỉ mục cũ
+-- chỉ bị xoá khi còn. Chạy bằng client `mysql` (cần DELIMITER), ví dụ:
+--   docker compose exec -T db mysql -uroot -prootpass video_converter < video_converter_upgrade.sql
+
+SET NAMES utf8mb4;
+
+DELIMITER $$
+
+DROP PROCEDURE IF EXISTS `vc_add_column`$$
+CREATE PROCEDURE `vc_add_column`(IN tbl VARCHAR(64), IN col VARCHAR(64), IN def TEXT)
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.COLUMNS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND COLUMN_NAME = col) THEN
+    SET @vc_ddl = CONCAT('ALTER TABLE `', tbl, '` ADD COLUMN `', col, '` ', def);
+    PREPARE vc_stmt FROM @vc_ddl;
+    EXECUTE vc_stmt;
+    DEALLOCATE PREPARE vc_stmt;
+  END IF;
+END$$
+
+DROP PROCEDURE IF EXISTS `vc_add_key`$$
+CREATE PROCEDURE `vc_add_key`(IN tbl VARCHAR(64), IN idx VARCHAR(64), IN cols TEXT)
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND INDEX_NAME = idx) THEN
+    SET @vc_ddl = CONCAT('ALTER TABLE `', tbl, '` ADD KEY `', idx, '` ', cols);
+    PREPARE vc_stmt FROM @vc_ddl;
+    EXECUTE vc_stmt;
+    DEALLOCATE PREPARE vc_stmt;
+  END IF;
+END$$
+
+DROP PROCEDURE IF EXISTS `vc_drop_key`$$
+CREATE PROCEDURE `vc_drop_key`(IN tbl VARCHAR(64), IN idx VARCHAR(64))
+BEGIN
+  IF EXISTS (SELECT 1 FROM information_schema.STATISTICS
+             WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND INDEX_NAME = idx) THEN
+    SET @vc_ddl = CONCAT('ALTER TABLE `', tbl, '` DROP KEY `', idx, '`');
+    PREPARE vc_stmt FROM @vc_ddl;
+    EXECUTE vc_stmt;
+    DEALLOCATE PREPARE vc_stmt;
+  END IF;
+END$$
+
+DELIMITER ;
+
+--
+-- Bảng `conversion_jobs`: lease của worker, chế độ chuyển đổi, profile, thống kê output
+--
+CALL vc_add_column('conversion_jobs', 'worker_id', "varchar(100) DEFAULT NULL COMMENT 'Lease owner while PROCESSING'");
+CALL vc_add_column('conversion_jobs', 'lease_expires_at', "timestamp NULL DEFAULT NULL");
+CALL vc_add_column('conversion_jobs', 'attempts', "int(11) NOT NULL DEFAULT 0");
+CALL vc_add_column('conversion_jobs', 'conversion_mode', "varchar(20) DEFAULT NULL COMMENT 'COPY, COPY_VIDEO, GPU, CPU or CACHED'");
+CALL vc_add_column('conversion_jobs', 'profile', "varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Encoding profile name'");
+CALL vc_add_column('conversion_jobs', 'output_size', "bigint(20) DEFAULT NULL COMMENT 'Bytes, set on completion'");
+CALL vc_add_column('conversion_jobs', 'encode_seconds', "decimal(10,3) DEFAULT NULL COMMENT 'Encode wall time, 0 for CACHED'");
+
+-- Chỉ mục mới phải có trước khi xoá chỉ mục cũ: idx_user_created thay fk_job_user cho khoá ngoại user_id.
+CALL vc_add_key('conversion_jobs', 'idx_status_created', '(`status`,`created_at`,`job_id`)');
+CALL vc_add_key('conversion_jobs', 'idx_user_created', '(`user_id`,`created_at`,`job_id`)');
+CALL vc_drop_key('conversion_jobs', 'idx_status');
+CALL vc_drop_key('conversion_jobs', 'fk_job_user');
+
+--
+-- Bảng `videos`: metadata từ ffprobe và hash nội dung
+--
+CALL vc_add_column('videos', 'content_hash', "char(64) DEFAULT NULL COMMENT 'SHA-256 of the uploaded file'");
+CALL vc_add_column('videos', 'container', "varchar(100) DEFAULT NULL COMMENT 'ffprobe format_name'");
+CALL vc_add_column('videos', 'duration', "decimal(12,3) DEFAULT NULL COMMENT 'Seconds'");
+CALL vc_add_column('videos', 'video_codec', "varchar(32) DEFAULT NULL");
+CALL vc_add_column('videos', 'audio_codec', "varchar(32) DEFAULT NULL");
+CALL vc_add_column('videos', 'width', "int(11) DEFAULT NULL");
+CALL vc_add_column('videos', 'height', "int(11) DEFAULT NULL");
+CALL vc_add_column('videos', 'frame_rate', "decimal(8,3) DEFAULT NULL");
+CALL vc_add_column('videos', 'bit_rate', "bigint(20) DEFAULT NULL");
+CALL vc_add_key('videos', 'idx_content_hash', '(`content_hash`)');
+
+--
+-- Bảng `upload_sessions`: upload tiếp tục được
+--
+CREATE TABLE IF NOT EXISTS `upload_sessions` (
+  `upload_id` char(32) NOT NULL,
+  `user_id` int(11) NOT NULL,
+  `filename` varchar(255) NOT NULL,
+  `output_format` varchar(64) NOT NULL,
+  `profile` varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Encoding profile for the jobs',
+  `file_path` varchar(500) NOT NULL,
+  `total_size` bigint(20) NOT NULL,
+  `received` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Bytes written contiguously from offset 0',
+  `state` enum('OPEN','SUBMITTING','SUBMITTED') NOT NULL DEFAULT 'OPEN' COMMENT 'SUBMITTED once jobs exist',
+  `job_ids` varchar(255) DEFAULT NULL COMMENT 'Comma-separated jobs created from the upload',
+  `created_at` timestamp NOT NULL DEFAULT current_timestamp(),
+  `updated_at` timestamp NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp(),
+  PRIMARY KEY (`upload_id`),
+  KEY `fk_upload_user` (`user_id`),
+  KEY `idx_updated_at` (`updated_at`),
+  CONSTRAINT `fk_upload_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Resumable uploads in progress';
+
+-- Bảng tạo từ bản trước: danh sách định dạng, profile và trạng thái submit.
+ALTER TABLE `upload_sessions` MODIFY `output_format` varchar(64) NOT NULL;
+CALL vc_add_column('upload_sessions', 'profile', "varchar(32) NOT NULL DEFAULT 'default' COMMENT 'Encoding profile for the jobs' AFTER `output_format`");
+CALL vc_add_column('upload_sessions', 'state', "enum('OPEN','SUBMITTING','SUBMITTED') NOT NULL DEFAULT 'OPEN' COMMENT 'SUBMITTED once jobs exist' AFTER `received`");
+CALL vc_add_column('upload_sessions', 'job_ids', "varchar(255) DEFAULT NULL COMMENT 'Comma-separated jobs created from the upload' AFTER `state`");
+
+--
+-- Bảng `user_stats`: app tự dựng lại lúc khởi động
+--
+CREATE TABLE IF NOT EXISTS `user_stats` (
+  `user_id` int(11) NOT NULL,
+  `completed_jobs` int(11) NOT NULL DEFAULT 0,
+  `bytes_in` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Uploaded video bytes',
+  `bytes_out` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Bytes of completed outputs',
+  `encode_seconds` decimal(14,3) NOT NULL DEFAULT 0.000,
+  PRIMARY KEY (`user_id`),
+  KEY `idx_completed_jobs` (`completed_jobs`),
+  KEY `idx_bytes_in` (`bytes_in`),
+  KEY `idx_bytes_out` (`bytes_out`),
+  KEY `idx_encode_seconds` (`encode_seconds`),
+  CONSTRAINT `fk_stats_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`user_id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Per-user totals for the admin dashboard, rebuilt periodically';
+
+DROP PROCEDURE IF EXISTS `vc_add_column`;
+DROP PROCEDURE IF EXISTS `vc_add_key`;
+DROP PROCEDURE IF EXISTS `vc_drop_key`;